@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.vaticle.typedb.osi.loader.generator;
+
+import com.google.gson.Gson;
+import com.vaticle.typedb.osi.loader.config.Configuration;
+import com.vaticle.typedb.osi.loader.util.GeneratorUtil;
+import com.vaticle.typeql.lang.TypeQL;
+import com.vaticle.typeql.lang.common.TypeQLToken;
+import com.vaticle.typeql.lang.pattern.constraint.ThingConstraint;
+import com.vaticle.typeql.lang.pattern.variable.ThingVariable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query text of one entity insert with string, long, double and datetime ownerships: the TypeQL builder followed by
+ * toString (which the client does before sending), against {@link TypeQLEmitter}. Values are pre-parsed, so that
+ * (with the gc profiler enabled in build.gradle) gc.alloc.rate.norm is the allocation per row of building the query.
+ * <p>
+ * Run with: ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InsertEmitBenchmark {
+
+    private static final TypeQLToken.Predicate.Equality EQ = TypeQLToken.Predicate.Equality.EQ;
+
+    private AttributePlan[] plans;
+    private ArrayList<ArrayList<ThingConstraint.Value<?>>> values;
+
+    @Setup
+    public void setup() {
+        String[] header = new String[]{"phone_number", "first_name", "age", "score", "registered"};
+        Configuration.Definition.Attribute[] attributes = new Configuration.Definition.Attribute[header.length];
+        for (int i = 0; i < header.length; i++) {
+            attributes[i] = new Gson().fromJson("{\"attribute\": \"" + header[i].replace('_', '-') + "\", \"column\": \"" + header[i] + "\"}",
+                    Configuration.Definition.Attribute.class);
+        }
+        plans = AttributePlan.compile("persons.csv", GeneratorUtil.getColumnIndexes(header), attributes);
+        values = new ArrayList<>();
+        values.add(new ArrayList<>(List.of(new ThingConstraint.Value.String(EQ, "+7 171 898 0853"))));
+        values.add(new ArrayList<>(List.of(new ThingConstraint.Value.String(EQ, "Melli \"Mel\""))));
+        values.add(new ArrayList<>(List.of(new ThingConstraint.Value.Long(EQ, 42L))));
+        values.add(new ArrayList<>(List.of(new ThingConstraint.Value.Double(EQ, 7.25))));
+        values.add(new ArrayList<>(List.of(new ThingConstraint.Value.DateTime(EQ, LocalDateTime.of(2021, 1, 1, 12, 30, 5)))));
+    }
+
+    @Benchmark
+    public String builder() {
+        ThingVariable.Thing entity = TypeQL.var("e").isa("person");
+        AttributePlan.constrain(entity, plans, values);
+        return TypeQL.insert(entity).toString();
+    }
+
+    @Benchmark
+    public String emitter() {
+        return TypeQLEmitter.thingInsert("e", "person", plans, values);
+    }
+}
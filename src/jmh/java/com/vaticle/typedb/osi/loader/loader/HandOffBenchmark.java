@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.vaticle.typedb.osi.loader.loader;
+
+import com.vaticle.typedb.common.collection.Either;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reader-to-writer hand-off of row batches: the former LinkedBlockingQueue of Either-wrapped batch groups with a
+ * re-enqueued poison pill, against {@link BatchRingBuffer}. Rows are pre-built, so that (with the gc profiler enabled
+ * in build.gradle) gc.alloc.rate.norm is the hand-off's own allocation per batch.
+ * <p>
+ * Run with: ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HandOffBenchmark {
+
+    private static final int BATCHES = 10_000;
+    private static final Object DONE = new Object();
+
+    @Param({"1", "4"})
+    public int writers;
+
+    @Param({"100"})
+    public int batchSize;
+
+    private ExecutorService executor;
+    private String[][] rows;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        executor = Executors.newFixedThreadPool(writers);
+        rows = new String[batchSize][];
+        for (int i = 0; i < batchSize; i++) {
+            rows[i] = new String[]{"row-" + i, "+7 171 898 0" + i, "2021-01-01"};
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCHES)
+    public void linkedBlockingQueue(Blackhole blackhole) throws InterruptedException, ExecutionException {
+        LinkedBlockingQueue<Either<List<List<String[]>>, Object>> queue = new LinkedBlockingQueue<>(writers * 4);
+        List<Future<?>> consumers = new ArrayList<>(writers);
+        for (int i = 0; i < writers; i++) {
+            consumers.add(executor.submit(() -> {
+                Either<List<List<String[]>>, Object> item;
+                while ((item = queue.take()).isFirst()) {
+                    for (List<String[]> group : item.first()) {
+                        for (String[] row : group) blackhole.consume(row);
+                    }
+                }
+                queue.put(item);
+                return null;
+            }));
+        }
+        for (int b = 0; b < BATCHES; b++) {
+            List<String[]> batch = new ArrayList<>(batchSize);
+            for (String[] row : rows) batch.add(row);
+            List<List<String[]>> group = new ArrayList<>(1);
+            group.add(batch);
+            queue.put(Either.first(group));
+        }
+        queue.put(Either.second(DONE));
+        for (Future<?> consumer : consumers) consumer.get();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCHES)
+    public void batchRingBuffer(Blackhole blackhole) throws InterruptedException, ExecutionException {
+        BatchRingBuffer ring = new BatchRingBuffer(writers * 4, batchSize);
+        List<Future<?>> consumers = new ArrayList<>(writers);
+        for (int i = 0; i < writers; i++) {
+            consumers.add(executor.submit(() -> {
+                BatchRingBuffer.Batch batch;
+                while ((batch = ring.take()) != null) {
+                    for (String[] row : batch.rows()) blackhole.consume(row);
+                    ring.release(batch);
+                }
+            }));
+        }
+        for (int b = 0; b < BATCHES; b++) {
+            BatchRingBuffer.Batch batch = ring.claim();
+            for (String[] row : rows) batch.rows().add(row);
+            ring.publish(batch);
+        }
+        ring.close();
+        for (Future<?> consumer : consumers) consumer.get();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.vaticle.typedb.osi.loader.util;
+
+import com.vaticle.typeql.lang.common.TypeQLToken;
+import com.vaticle.typeql.lang.pattern.constraint.ThingConstraint;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding of long, double and datetime cells: the former exception-based java parsing against {@link ValueDecoder}.
+ * "clean" cells all parse; in "dirty" ones a fifth are not of the column type (empty markers, typos, other formats).
+ * Datetimes repeat, as in real feeds (a day's worth of rows shares a date). Reported per cell.
+ * <p>
+ * Run with: ./gradlew jmh
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValueDecoderBenchmark {
+
+    private static final int CELLS = 1024;
+    private static final TypeQLToken.Predicate.Equality EQ = TypeQLToken.Predicate.Equality.EQ;
+    private static final String[] DIRT = {"n/a", "", "NULL", "1,5", "12b", "-", "2021/01/01", "unknown"};
+
+    @Param({"clean", "dirty"})
+    public String input;
+
+    private String[] longs;
+    private String[] doubles;
+    private String[] dateTimes;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        longs = new String[CELLS];
+        doubles = new String[CELLS];
+        dateTimes = new String[CELLS];
+        for (int i = 0; i < CELLS; i++) {
+            longs[i] = Long.toString(random.nextInt(10_000_000) - 5_000_000);
+            doubles[i] = Double.toString(Math.round(random.nextDouble() * 1e7) / 100.0);
+            dateTimes[i] = random.nextBoolean()
+                    ? String.format("2021-%02d-%02d", 1 + i / 100, 1 + i % 28)
+                    : String.format("2021-%02d-%02dT%02d:%02d:%02d", 1 + i / 100, 1 + i % 28, random.nextInt(24), random.nextInt(60), random.nextInt(60));
+            if (input.equals("dirty") && i % 5 == 0) {
+                longs[i] = DIRT[random.nextInt(DIRT.length)];
+                doubles[i] = DIRT[random.nextInt(DIRT.length)];
+                dateTimes[i] = DIRT[random.nextInt(DIRT.length)];
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CELLS)
+    public void javaLong(Blackhole blackhole) {
+        for (String value : longs) {
+            try {
+                blackhole.consume(new ThingConstraint.Value.Long(EQ, Long.parseLong(value)));
+            } catch (NumberFormatException numberFormatException) {
+                blackhole.consume(value);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CELLS)
+    public void decoderLong(Blackhole blackhole) {
+        for (String value : longs) {
+            blackhole.consume(ValueDecoder.longValue(value));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CELLS)
+    public void javaDouble(Blackhole blackhole) {
+        for (String value : doubles) {
+            try {
+                blackhole.consume(new ThingConstraint.Value.Double(EQ, Double.parseDouble(value)));
+            } catch (NumberFormatException numberFormatException) {
+                blackhole.consume(value);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CELLS)
+    public void decoderDouble(Blackhole blackhole) {
+        for (String value : doubles) {
+            blackhole.consume(ValueDecoder.doubleValue(value));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CELLS)
+    public void javaDateTime(Blackhole blackhole) {
+        for (String value : dateTimes) {
+            try {
+                String[] dt = value.split("T");
+                LocalDate date = LocalDate.parse(dt[0], DateTimeFormatter.ISO_DATE);
+                LocalDateTime dateTime = dt.length > 1 ? date.atTime(LocalTime.parse(dt[1], DateTimeFormatter.ISO_TIME)) : date.atStartOfDay();
+                blackhole.consume(new ThingConstraint.Value.DateTime(EQ, dateTime));
+            } catch (DateTimeException dateTimeException) {
+                blackhole.consume(value);
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CELLS)
+    public void decoderDateTime(Blackhole blackhole) {
+        for (String value : dateTimes) {
+            blackhole.consume(ValueDecoder.dateTimeValue(value));
+        }
+    }
+}
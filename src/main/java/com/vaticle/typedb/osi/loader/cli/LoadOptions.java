@@ -41,6 +41,40 @@ public class LoadOptions {
     @CommandLine.Option(names = {"-mi", "--allowMultiInsert"}, description = "Allow match-inserts to match multiple answers and insert for each.", defaultValue = "false")
     public boolean multiInsert;
 
+    @CommandLine.Option(names = {"-pd", "--partitionedDispatch"}, description = "optional - route rows to writers by a hash of the values identifying the thing they write to, as matched (cleaned and preprocessed), so that rows updating the same thing are written by the same writer - relations are routed by their first player only, so this is best-effort for them - default: rows are shared round-robin", defaultValue = "false")
+    public boolean partitionedDispatch;
+
+    @CommandLine.Option(names = {"-mr", "--maxRetries"}, description = "optional - number of times a batch failing with a transient error (conflict, timeout, server unavailable or restarted - the session is reopened) is retried (with exponential backoff) before it is split in half to isolate failing rows - batches failing with other errors are split right away (default: 5)", defaultValue = "5")
+    public int maxRetries;
+
+    @CommandLine.Option(names = {"-rp", "--replay"}, description = "optional - path to the errors.jsonl of an earlier run: load only the rows recorded there as not loaded, in place of the data files - matched to the columns by the header they were recorded with, so data files since re-exported or removed are fine (rows logged as malformed or with column type warnings were loaded and are not replayed)")
+    public String replayFile;
+
+    @CommandLine.Option(names = {"-rs", "--resume"}, description = "optional - resume an interrupted load from its checkpoint: skip completed files and the committed rows of the others (not with clean migration)", defaultValue = "false")
+    public boolean resume;
+
+    @CommandLine.Option(names = {"-cp", "--checkpoint"}, description = "optional - file the progress of the load is saved to, for --resume (default: <database>.checkpoint.json)")
+    public String checkpointFile;
+
+    @CommandLine.Option(names = {"-dl", "--delta"}, description = "optional - delta loading: directory of the fingerprints of the rows loaded by the last run of every generator, per database; rows loaded then are skipped, and the keys of changed and removed rows written to <generator>_delta.jsonl in the log directory (with clean migration, the fingerprints are discarded and every row is loaded)")
+    public String deltaDirectory;
+
+    @CommandLine.Option(names = {"-fo", "--follow"}, description = "optional - key of a generator whose last data file is followed once everything else is loaded: rows appended to it are loaded as they come, until the loader is stopped (not for gzipped files)")
+    public String followGenerator;
+
+    @CommandLine.Option(names = {"-ff", "--followFlushMillis"}, description = "optional - when following, rows are committed at the latest this many milliseconds after they were read, even if their batch is not full (default: 1000)", defaultValue = "1000")
+    public long followFlushMillis;
+
+    @CommandLine.Option(names = {"-ms", "--metricsSeconds"}, description = "optional - interval in seconds of the metrics summaries logged while loading, 0 for none; a report of all metrics is logged at the end (default: 60)", defaultValue = "60")
+    public long metricsSeconds;
+
+    @CommandLine.Option(names = {"-pp", "--prometheusPort"}, description = "optional - serve the metrics in the Prometheus format at http://127.0.0.1:<port>/metrics (localhost only) - default: not served", defaultValue = "0")
+    public int prometheusPort;
+
+    public String getCheckpointFile() {
+        return checkpointFile != null ? checkpointFile : databaseName + ".checkpoint.json";
+    }
+
     public static LoadOptions parse(String[] args) {
         CommandLine commandLine = new CommandLine(new TypeDBLoaderCLI())
                 .addSubcommand("load", new LoadOptions());
@@ -77,5 +111,13 @@ public class LoadOptions {
         spec.commandLine().getOut().println("\tTypeDB server: " + typedbURI);
         spec.commandLine().getOut().println("\tdelete database and all data in it for a clean new migration?: " + cleanMigration);
         spec.commandLine().getOut().println("\treload schema (if not doing clean migration): " + loadSchema);
+        spec.commandLine().getOut().println("\tpartition rows to writers by match/key columns: " + partitionedDispatch);
+        spec.commandLine().getOut().println("\tretries per failed batch: " + maxRetries);
+        spec.commandLine().getOut().println("\tresume from checkpoint " + getCheckpointFile() + ": " + resume);
+        spec.commandLine().getOut().println("\tmetrics summary every (seconds): " + metricsSeconds);
+        if (prometheusPort > 0) spec.commandLine().getOut().println("\tPrometheus metrics at: http://127.0.0.1:" + prometheusPort + "/metrics");
+        if (deltaDirectory != null) spec.commandLine().getOut().println("\tdelta loading against fingerprints in: " + deltaDirectory);
+        if (followGenerator != null) spec.commandLine().getOut().println("\tfollowing the last data file of: " + followGenerator + " (flushing every " + followFlushMillis + " ms)");
+        if (replayFile != null) spec.commandLine().getOut().println("\treplaying rows recorded in: " + replayFile);
     }
 }
\ No newline at end of file
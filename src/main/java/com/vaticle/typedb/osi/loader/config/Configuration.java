@@ -179,8 +179,13 @@ public class Configuration {
         }
 
         public static class GeneratorConfig {
+
+            private static final long DEFAULT_BLOOM_FILTER_EXPECTED_INSERTIONS = 1_000_000;
+
             Character separator;
             Integer rowsPerCommit;
+            Double bloomFilterFalsePositiveRate;
+            Long bloomFilterExpectedInsertions;
 
             public Character getSeparator() {
                 return separator;
@@ -189,6 +194,15 @@ public class Configuration {
             public Integer getRowsPerCommit() {
                 return rowsPerCommit;
             }
+
+            public Double getBloomFilterFalsePositiveRate() {
+                return bloomFilterFalsePositiveRate;
+            }
+
+            public Long getBloomFilterExpectedInsertions() {
+                if (bloomFilterExpectedInsertions == null) return DEFAULT_BLOOM_FILTER_EXPECTED_INSERTIONS;
+                else return bloomFilterExpectedInsertions;
+            }
         }
 
         public static class Attribute extends Generator {
@@ -351,6 +365,11 @@ public class Configuration {
         public static class PreprocessorParameters {
             String regexMatch;
             String regexReplace;
+            String prefix;
+            String suffix;
+            Integer beginIndex;
+            Integer endIndex;
+            Map<String, String> lookup;
 
             public String getRegexMatch() {
                 return regexMatch;
@@ -359,6 +378,26 @@ public class Configuration {
             public String getRegexReplace() {
                 return regexReplace;
             }
+
+            public String getPrefix() {
+                return prefix;
+            }
+
+            public String getSuffix() {
+                return suffix;
+            }
+
+            public Integer getBeginIndex() {
+                return beginIndex;
+            }
+
+            public Integer getEndIndex() {
+                return endIndex;
+            }
+
+            public Map<String, String> getLookup() {
+                return lookup;
+            }
         }
     }
 
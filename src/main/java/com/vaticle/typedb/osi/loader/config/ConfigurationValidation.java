@@ -20,6 +20,8 @@ import com.vaticle.typedb.client.api.TypeDBSession;
 import com.vaticle.typedb.client.api.TypeDBTransaction;
 import com.vaticle.typedb.client.api.answer.ConceptMap;
 import com.vaticle.typedb.client.common.exception.TypeDBClientException;
+import com.vaticle.typedb.osi.loader.io.ReplaySource;
+import com.vaticle.typedb.osi.loader.preprocessor.Preprocessor;
 import com.vaticle.typedb.osi.loader.util.Util;
 import com.vaticle.typeql.lang.TypeQL;
 import com.vaticle.typeql.lang.query.TypeQLMatch;
@@ -280,6 +282,17 @@ public class ConfigurationValidation {
             validationReport.get("error").add(breadcrumbs + ".rowsPerCommit: missing required field: rowsPerCommit must be specified here or in defaultConfig");
             valid = false;
         }
+        if (config != null && config.getBloomFilterFalsePositiveRate() != null) {
+            double rate = config.getBloomFilterFalsePositiveRate();
+            if (rate <= 0 || rate >= 1) {
+                validationReport.get("errors").add(breadcrumbs + ".bloomFilterFalsePositiveRate: must be between 0 and 1 (exclusive)");
+                valid = false;
+            }
+            if (config.getBloomFilterExpectedInsertions() <= 0) {
+                validationReport.get("errors").add(breadcrumbs + ".bloomFilterExpectedInsertions: must be > 0");
+                valid = false;
+            }
+        }
         return valid;
     }
 
@@ -321,6 +334,8 @@ public class ConfigurationValidation {
                 try {
                     Util.getFileHeader(filepath, fileSeparator);
                 } catch (IOException fileNotFoundException) {
+                    // a replay only reads the files it has recorded rows of
+                    if (ReplaySource.isReplaying() && !ReplaySource.hasRecords(filepath)) continue;
                     validationReport.get("errors").add(breadcrumbs + ".data: <" + filepath + ">: file not found");
                     valid = false;
                 } catch (NullPointerException nullPointerException) {
@@ -364,6 +379,13 @@ public class ConfigurationValidation {
         } else {
             valColumnInHeader(validationReport, breadcrumbs, configuration, generator, attribute.getColumn());
         }
+        if (attribute.getPreprocessorConfig() != null) {
+            try {
+                Preprocessor.compile(attribute.getPreprocessorConfig());
+            } catch (IllegalArgumentException illegalArgumentException) {
+                validationReport.get("errors").add(breadcrumbs + ".preprocessorConfig: " + illegalArgumentException.getMessage());
+            }
+        }
         if (isInsert) {
             if (attribute.getRequired() == null) {
                 validationReport.get("warnings").add(breadcrumbs + ".required: field not set - defaults to false");
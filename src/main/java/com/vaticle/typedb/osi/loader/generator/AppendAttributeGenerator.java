@@ -18,7 +18,6 @@ package com.vaticle.typedb.osi.loader.generator;
 
 import com.vaticle.typedb.client.api.TypeDBTransaction;
 import com.vaticle.typedb.client.api.answer.ConceptMap;
-import com.vaticle.typedb.client.common.exception.TypeDBClientException;
 import com.vaticle.typedb.osi.loader.config.Configuration;
 import com.vaticle.typedb.osi.loader.io.FileLogger;
 import com.vaticle.typedb.osi.loader.util.GeneratorUtil;
@@ -35,78 +34,123 @@ import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static com.vaticle.typedb.osi.loader.util.TypeDBUtil.safeInsert;
 
 public class AppendAttributeGenerator implements Generator {
     private static final Logger dataLogger = LogManager.getLogger("com.vaticle.typedb.osi.loader.error");
     private final String filePath;
+    private final String fileNoExtension;
     private final String[] header;
     private final Configuration.Generator.AppendAttribute appendConfiguration;
     private final char fileSeparator;
+    private final AttributePlan[] matchOwnerships;
+    private final AttributePlan[] insertOwnerships;
+    private final AttributePlan[] requiredInsertOwnerships;
 
     public AppendAttributeGenerator(String filePath, Configuration.Generator.AppendAttribute appendConfiguration, char fileSeparator) throws IOException {
         this.filePath = filePath;
+        this.fileNoExtension = FilenameUtils.removeExtension(FilenameUtils.getName(filePath));
         this.header = Util.getFileHeader(filePath, fileSeparator);
+        Map<String, Integer> columns = GeneratorUtil.getColumnIndexes(header);
         this.appendConfiguration = appendConfiguration;
         this.fileSeparator = fileSeparator;
+        this.matchOwnerships = AttributePlan.compile(filePath, columns, appendConfiguration.getMatch().getOwnerships());
+        this.insertOwnerships = AttributePlan.compile(filePath, columns, appendConfiguration.getInsert().getOwnerships());
+        this.requiredInsertOwnerships = AttributePlan.required(insertOwnerships);
     }
 
     @Override
     public void write(TypeDBTransaction tx, String[] row, boolean allowMultiInsert) {
-        String fileName = FilenameUtils.getName(filePath);
-        String fileNoExtension = FilenameUtils.removeExtension(fileName);
-        String originalRow = String.join(Character.toString(fileSeparator), row);
+        write(tx, Collections.singletonList(row), allowMultiInsert);
+    }
 
-        if (row.length > header.length) {
-            FileLogger.getLogger().logMalformed(fileName, originalRow);
-            dataLogger.error("Malformed Row detected in <" + filePath + "> - written to <" + fileNoExtension + "_malformed.log" + ">");
+    /**
+     * Rows appending to the same thing (i.e. with the same match ownerships) are coalesced into a single match-insert,
+     * so that the thing is matched once per batch and only one writer touches it.
+     */
+    @Override
+    public void write(TypeDBTransaction tx, List<String[]> rows, boolean allowMultiInsert) {
+        for (List<AppendRow> group : groupByMatch(rows).values()) {
+            TypeQLInsert query = generateMatchInsertStatement(group.get(0), group);
+            Iterator<ConceptMap> answers = TypeDBUtil.executeMatch(tx, query);
+            if (!answers.hasNext()) {
+                FileLogger.getLogger().logNoMatches(filePath, rows(group), fileSeparator);
+                dataLogger.error("Match-insert failed - File <" + filePath + "> row <" + GeneratorUtil.originalRows(rows(group), fileSeparator) + "> generates query <" + query + "> which matched no answers.");
+            } else {
+                safeInsert(tx, query, answers, allowMultiInsert, filePath, () -> rows(group), fileSeparator, dataLogger);
+            }
         }
+    }
 
-        TypeQLInsert query = generateMatchInsertStatement(row);
+    /**
+     * Groups the valid rows by their match ownerships, in order of first appearance; invalid and malformed rows are
+     * logged.
+     */
+    LinkedHashMap<String, List<AppendRow>> groupByMatch(List<String[]> rows) {
+        LinkedHashMap<String, List<AppendRow>> rowsByMatch = new LinkedHashMap<>();
+        for (String[] row : rows) {
+            if (row.length > header.length) {
+                FileLogger.getLogger().logMalformed(filePath, row, fileSeparator);
+                dataLogger.error("Malformed Row detected in <" + filePath + "> - written to <" + fileNoExtension + "_malformed.log" + ">");
+            }
 
-        if (appendAttributeInsertStatementValid(query)) {
-            try {
-                Iterator<ConceptMap> answers = TypeDBUtil.executeMatch(tx, query);
-                if (!answers.hasNext()) {
-                    FileLogger.getLogger().logNoMatches(fileName, originalRow);
-                    dataLogger.error("Match-insert failed - File <" + filePath + "> row <" + originalRow + "> generates query <" + query + "> which matched no answers.");
-                } else {
-                    safeInsert(tx, query, answers, allowMultiInsert, filePath, originalRow, dataLogger);
-                }
-            } catch (TypeDBClientException typeDBClientException) {
-                FileLogger.getLogger().logUnavailable(fileName, originalRow);
-                dataLogger.error("TypeDB Unavailable - Row in <" + filePath + "> not inserted - written to <" + fileNoExtension + "_unavailable.log" + ">");
+            if (!requiredCellsPresent(row)) {
+                FileLogger.getLogger().logInvalid(filePath, row, fileSeparator);
+                dataLogger.error("Invalid Row detected in <" + filePath + "> - written to <" + fileNoExtension + "_invalid.log" + "> - missing required value");
+                continue;
+            }
+
+            AppendRow appendRow = generateAppendRow(row);
+            if (appendAttributeInsertStatementValid(appendRow)) {
+                rowsByMatch.computeIfAbsent(matchKey(appendRow), k -> new ArrayList<>()).add(appendRow);
+            } else {
+                TypeQLInsert query = generateMatchInsertStatement(appendRow, Collections.singletonList(appendRow));
+                FileLogger.getLogger().logInvalid(filePath, row, fileSeparator);
+                dataLogger.error("Invalid Row detected in <" + filePath + "> - written to <" + fileNoExtension + "_invalid.log" + "> - invalid Statement: <" + query.toString().replace("\n", " ") + ">");
             }
-        } else {
-            FileLogger.getLogger().logInvalid(fileName, originalRow);
-            dataLogger.error("Invalid Row detected in <" + filePath + "> - written to <" + fileNoExtension + "_invalid.log" + "> - invalid Statement: <" + query.toString().replace("\n", " ") + ">");
         }
+        return rowsByMatch;
     }
 
     public TypeQLInsert generateMatchInsertStatement(String[] row) {
-        if (row.length > 0) {
+        AppendRow appendRow = generateAppendRow(row);
+        return generateMatchInsertStatement(appendRow, Collections.singletonList(appendRow));
+    }
+
+    /**
+     * Matches the thing by the match ownerships of matchRow, and inserts the ownerships of all appendRows into it - each
+     * distinct value once.
+     */
+    TypeQLInsert generateMatchInsertStatement(AppendRow matchRow, List<AppendRow> appendRows) {
+        if (matchRow.row.length > 0) {
             ThingVariable.Thing entityMatchStatement = TypeQL.var("thing")
                     .isa(appendConfiguration.getMatch().getType());
-            for (Configuration.Definition.Attribute consAtt : appendConfiguration.getMatch().getOwnerships()) {
-                ArrayList<ThingConstraint.Value<?>> constraintValues = GeneratorUtil.generateValueConstraintsConstrainingAttribute(
-                        row, header, filePath, fileSeparator, consAtt);
-                for (ThingConstraint.Value<?> constraintValue : constraintValues) {
-                    entityMatchStatement.constrain(GeneratorUtil.valueToHasConstraint(consAtt.getAttribute(), constraintValue));
-                }
-            }
+            AttributePlan.constrain(entityMatchStatement, matchOwnerships, matchRow.matchValues);
 
             UnboundVariable insertUnboundVar = TypeQL.var("thing");
             ThingVariable.Thing insertStatement = null;
-            for (Configuration.Definition.Attribute attributeToAppend : appendConfiguration.getInsert().getOwnerships()) {
-                ArrayList<ThingConstraint.Value<?>> constraintValues = GeneratorUtil.generateValueConstraintsConstrainingAttribute(
-                        row, header, filePath, fileSeparator, attributeToAppend);
-                for (ThingConstraint.Value<?> constraintValue : constraintValues) {
-                    if (insertStatement == null) {
-                        insertStatement = insertUnboundVar.constrain(GeneratorUtil.valueToHasConstraint(attributeToAppend.getAttribute(), constraintValue));
-                    } else {
-                        insertStatement.constrain(GeneratorUtil.valueToHasConstraint(attributeToAppend.getAttribute(), constraintValue));
+            Set<String> appended = new HashSet<>();
+            for (AppendRow appendRow : appendRows) {
+                for (int i = 0; i < insertOwnerships.length; i++) {
+                    for (ThingConstraint.Value<?> constraintValue : appendRow.insertValues.get(i)) {
+                        // the same value may be appended by several coalesced rows
+                        if (!appended.add(ownershipKey(insertOwnerships[i].getAttributeType(), constraintValue))) continue;
+                        if (insertStatement == null) {
+                            insertStatement = insertUnboundVar.constrain(GeneratorUtil.valueToHasConstraint(insertOwnerships[i].getAttributeType(), constraintValue));
+                        } else {
+                            insertStatement.constrain(GeneratorUtil.valueToHasConstraint(insertOwnerships[i].getAttributeType(), constraintValue));
+                        }
                     }
                 }
             }
@@ -121,21 +165,87 @@ public class AppendAttributeGenerator implements Generator {
         }
     }
 
-    public boolean appendAttributeInsertStatementValid(TypeQLInsert insert) {
-        if (insert == null) return false;
-        if (!insert.toString().contains("isa " + appendConfiguration.getMatch().getType())) return false;
-        for (Configuration.Definition.Attribute ownershipThingGetter : appendConfiguration.getMatch().getOwnerships()) {
-            if (!insert.toString().contains("has " + ownershipThingGetter.getAttribute())) return false;
-        }
-        if (appendConfiguration.getInsert().getRequiredOwnerships() != null) {
-            for (Configuration.Definition.Attribute attribute : appendConfiguration.getInsert().getRequiredOwnerships()) {
-                if (!insert.toString().contains("has " + attribute.getAttribute())) return false;
+    private AppendRow generateAppendRow(String[] row) {
+        return new AppendRow(row, AttributePlan.values(matchOwnerships, row, filePath, fileSeparator),
+                AttributePlan.values(insertOwnerships, row, filePath, fileSeparator));
+    }
+
+    private static List<String[]> rows(List<AppendRow> group) {
+        return group.stream().map(appendRow -> appendRow.row).collect(Collectors.toList());
+    }
+
+    private String matchKey(AppendRow appendRow) {
+        StringBuilder key = new StringBuilder();
+        for (int i = 0; i < matchOwnerships.length; i++) {
+            for (ThingConstraint.Value<?> constraintValue : appendRow.matchValues.get(i)) {
+                key.append(ownershipKey(matchOwnerships[i].getAttributeType(), constraintValue)).append('\u0000');
             }
         }
-        return true;
+        return key.toString();
+    }
+
+    private static String ownershipKey(String attributeType, ThingConstraint.Value<?> constraintValue) {
+        return attributeType + ":" + constraintValue.value();
+    }
+
+    /**
+     * A row is valid if it is not empty, has a value for every match ownership and for every required insert
+     * ownership, and appends at least one value.
+     */
+    public boolean appendAttributeInsertStatementValid(String[] row) {
+        return requiredCellsPresent(row) && appendAttributeInsertStatementValid(generateAppendRow(row));
+    }
+
+    // checked on the raw row before any value is parsed
+    private boolean requiredCellsPresent(String[] row) {
+        return AttributePlan.allCellsPresent(matchOwnerships, row)
+                && AttributePlan.allCellsPresent(requiredInsertOwnerships, row)
+                && AttributePlan.anyCellPresent(insertOwnerships, row);
+    }
+
+    private boolean appendAttributeInsertStatementValid(AppendRow appendRow) {
+        return appendRow.row.length > 0
+                && AttributePlan.allPresent(appendRow.matchValues)
+                && AttributePlan.requiredPresent(insertOwnerships, appendRow.insertValues)
+                && AttributePlan.anyPresent(appendRow.insertValues);
     }
 
     public char getFileSeparator() {
         return this.fileSeparator;
     }
+
+    @Override
+    public String[] getHeader() {
+        return header;
+    }
+
+    @Override
+    public int[] getColumns() {
+        return IntStream.concat(Arrays.stream(AttributePlan.columns(matchOwnerships)), Arrays.stream(AttributePlan.columns(insertOwnerships))).toArray();
+    }
+
+    @Override
+    public int[] getPartitionColumns() {
+        return AttributePlan.columns(matchOwnerships);
+    }
+
+    @Override
+    public String getPartitionKey(String[] row) {
+        StringBuilder key = new StringBuilder();
+        for (AttributePlan ownership : matchOwnerships) ownership.appendKey(key, row);
+        return key.toString();
+    }
+
+    static class AppendRow {
+        private final String[] row;
+        private final ArrayList<ArrayList<ThingConstraint.Value<?>>> matchValues;
+        private final ArrayList<ArrayList<ThingConstraint.Value<?>>> insertValues;
+
+        private AppendRow(String[] row, ArrayList<ArrayList<ThingConstraint.Value<?>>> matchValues,
+                          ArrayList<ArrayList<ThingConstraint.Value<?>>> insertValues) {
+            this.row = row;
+            this.matchValues = matchValues;
+            this.insertValues = insertValues;
+        }
+    }
 }
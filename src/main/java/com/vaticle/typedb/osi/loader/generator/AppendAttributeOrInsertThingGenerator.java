@@ -18,9 +18,9 @@ package com.vaticle.typedb.osi.loader.generator;
 
 import com.vaticle.typedb.client.api.TypeDBTransaction;
 import com.vaticle.typedb.client.api.answer.ConceptMap;
-import com.vaticle.typedb.client.common.exception.TypeDBClientException;
 import com.vaticle.typedb.osi.loader.config.Configuration;
 import com.vaticle.typedb.osi.loader.io.FileLogger;
+import com.vaticle.typedb.osi.loader.util.BloomFilter;
 import com.vaticle.typedb.osi.loader.util.GeneratorUtil;
 import com.vaticle.typedb.osi.loader.util.TypeDBUtil;
 import com.vaticle.typedb.osi.loader.util.Util;
@@ -35,88 +35,147 @@ import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
-import java.util.stream.Stream;
+import java.util.Map;
+import java.util.stream.IntStream;
 
 import static com.vaticle.typedb.osi.loader.util.TypeDBUtil.safeInsert;
 
 public class AppendAttributeOrInsertThingGenerator implements Generator {
     private static final Logger dataLogger = LogManager.getLogger("com.vaticle.typedb.osi.loader.error");
     private final String filePath;
+    private final String fileNoExtension;
     private final String[] header;
     private final Configuration.Generator.AppendAttributeOrInsertThing appendOrInsertConfiguration;
     private final char fileSeparator;
+    private final BloomFilter matchFilter;
+    private final AttributePlan[] matchOwnerships;
+    private final AttributePlan[] insertOwnerships;
+    private final AttributePlan[] requiredMatchOwnerships;
+    private final AttributePlan[] requiredInsertOwnerships;
 
     public AppendAttributeOrInsertThingGenerator(String filePath, Configuration.Generator.AppendAttributeOrInsertThing appendOrInsertConfiguration, char fileSeparator) throws IOException {
+        this(filePath, appendOrInsertConfiguration, fileSeparator, null);
+    }
+
+    /**
+     * @param matchFilter optional filter containing every match ownership (see {@link #matchFilterKey}) that may already
+     *                    be owned by a thing of the match type - rows with an ownership absent from the filter skip the
+     *                    match query and are inserted straight away. The generator adds the ownerships of every row it
+     *                    writes, so the filter has to be shared by all generators writing the same things.
+     */
+    public AppendAttributeOrInsertThingGenerator(String filePath, Configuration.Generator.AppendAttributeOrInsertThing appendOrInsertConfiguration, char fileSeparator, BloomFilter matchFilter) throws IOException {
         this.filePath = filePath;
+        this.fileNoExtension = FilenameUtils.removeExtension(FilenameUtils.getName(filePath));
         this.header = Util.getFileHeader(filePath, fileSeparator);
+        Map<String, Integer> columns = GeneratorUtil.getColumnIndexes(header);
         this.appendOrInsertConfiguration = appendOrInsertConfiguration;
         this.fileSeparator = fileSeparator;
+        this.matchFilter = matchFilter;
+        this.matchOwnerships = AttributePlan.compile(filePath, columns, appendOrInsertConfiguration.getMatch().getOwnerships());
+        this.insertOwnerships = AttributePlan.compile(filePath, columns, appendOrInsertConfiguration.getInsert().getOwnerships());
+        this.requiredMatchOwnerships = AttributePlan.required(matchOwnerships);
+        this.requiredInsertOwnerships = AttributePlan.required(insertOwnerships);
     }
 
     @Override
     public void write(TypeDBTransaction tx, String[] row, boolean allowMultiInsert) {
-        String fileName = FilenameUtils.getName(filePath);
-        String fileNoExtension = FilenameUtils.removeExtension(fileName);
-        String originalRow = String.join(Character.toString(fileSeparator), row);
-
         if (row.length > header.length) {
-            FileLogger.getLogger().logMalformed(fileName, originalRow);
+            FileLogger.getLogger().logMalformed(filePath, row, fileSeparator);
             dataLogger.error("Malformed Row detected in <" + filePath + "> - written to <" + fileNoExtension + "_malformed.log" + ">");
         }
 
-        TypeQLInsert appendQuery = generateMatchInsertStatement(row);
-        TypeQLInsert insertQuery = generateThingInsertStatement(row);
+        // both appending and inserting need every required ownership
+        if (!requiredCellsPresent(row)) {
+            FileLogger.getLogger().logInvalid(filePath, row, fileSeparator);
+            dataLogger.error("Invalid Row detected in <" + filePath + "> - written to <" + fileNoExtension + "_invalid.log" + "> - missing required value");
+            return;
+        }
+
+        ArrayList<ArrayList<ThingConstraint.Value<?>>> matchValues = AttributePlan.values(matchOwnerships, row, filePath, fileSeparator);
+        ArrayList<ArrayList<ThingConstraint.Value<?>>> insertValues = AttributePlan.values(insertOwnerships, row, filePath, fileSeparator);
 
-        if (appendAttributeInsertStatementValid(appendQuery)) {
-            try {
+        if (appendAttributeInsertStatementValid(row, matchValues, insertValues)) {
+            if (matchFilter != null && !matchFilterMightContain(matchValues)) {
+                // no thing owns all match ownerships yet - skip the match round trip
+                insertThing(tx, row, matchValues, insertValues);
+            } else {
+                TypeQLInsert appendQuery = generateMatchInsertStatement(row, matchValues, insertValues);
                 Iterator<ConceptMap> answers = TypeDBUtil.executeMatch(tx, appendQuery);
                 if (!answers.hasNext()) {
-                    if (thingInsertStatementValid(insertQuery)) {
-                        tx.query().insert(insertQuery);
-                    } else {
-                        FileLogger.getLogger().logInvalid(fileName, originalRow);
-                        dataLogger.error("Invalid Row detected in <" + filePath + "> - written to <" + fileNoExtension + "_invalid.log" + "> - invalid Statement: <" + insertQuery.toString().replace("\n", " ") + ">");
-                    }
+                    insertThing(tx, row, matchValues, insertValues);
                 } else {
-                    safeInsert(tx, appendQuery, answers, allowMultiInsert, filePath, originalRow, dataLogger);
+                    safeInsert(tx, appendQuery, answers, allowMultiInsert, filePath, () -> Collections.singletonList(row), fileSeparator, dataLogger);
                 }
-            } catch (TypeDBClientException typeDBClientException) {
-                FileLogger.getLogger().logUnavailable(fileName, originalRow);
-                dataLogger.error("TypeDB Unavailable - Row in <" + filePath + "> not inserted - written to <" + fileNoExtension + "_unavailable.log" + ">");
             }
         } else {
-            if (thingInsertStatementValid(insertQuery)) {
-                tx.query().insert(insertQuery);
+            if (thingInsertStatementValid(row, matchValues, insertValues)) {
+                TypeDBUtil.insert(tx, generateThingInsertStatement(row, matchValues, insertValues));
+                matchFilterPut(matchValues);
             } else {
-                FileLogger.getLogger().logInvalid(fileName, originalRow);
+                TypeQLInsert appendQuery = generateMatchInsertStatement(row, matchValues, insertValues);
+                TypeQLInsert insertQuery = generateThingInsertStatement(row, matchValues, insertValues);
+                FileLogger.getLogger().logInvalid(filePath, row, fileSeparator);
                 dataLogger.error("Invalid Row detected in <" + filePath + "> - written to <" + fileNoExtension + "_invalid.log" + "> - invalid Statements: <" + appendQuery.toString().replace("\n", " ") + "> and <" + insertQuery.toString().replace("\n", " ") + ">");
             }
         }
     }
 
+    private void insertThing(TypeDBTransaction tx, String[] row, ArrayList<ArrayList<ThingConstraint.Value<?>>> matchValues,
+                             ArrayList<ArrayList<ThingConstraint.Value<?>>> insertValues) {
+        TypeQLInsert insertQuery = generateThingInsertStatement(row, matchValues, insertValues);
+        if (thingInsertStatementValid(row, matchValues, insertValues)) {
+            TypeDBUtil.insert(tx, insertQuery);
+            matchFilterPut(matchValues);
+        } else {
+            FileLogger.getLogger().logInvalid(filePath, row, fileSeparator);
+            dataLogger.error("Invalid Row detected in <" + filePath + "> - written to <" + fileNoExtension + "_invalid.log" + "> - invalid Statement: <" + insertQuery.toString().replace("\n", " ") + ">");
+        }
+    }
+
+    public static String matchFilterKey(String attributeType, Object value) {
+        return attributeType + ":" + value;
+    }
+
+    private boolean matchFilterMightContain(ArrayList<ArrayList<ThingConstraint.Value<?>>> matchValues) {
+        for (int i = 0; i < matchOwnerships.length; i++) {
+            for (ThingConstraint.Value<?> value : matchValues.get(i)) {
+                if (!matchFilter.mightContain(matchFilterKey(matchOwnerships[i].getAttributeType(), value.value()))) return false;
+            }
+        }
+        return true;
+    }
+
+    private void matchFilterPut(ArrayList<ArrayList<ThingConstraint.Value<?>>> matchValues) {
+        if (matchFilter == null) return;
+        for (int i = 0; i < matchOwnerships.length; i++) {
+            for (ThingConstraint.Value<?> value : matchValues.get(i)) {
+                matchFilter.put(matchFilterKey(matchOwnerships[i].getAttributeType(), value.value()));
+            }
+        }
+    }
+
     public TypeQLInsert generateMatchInsertStatement(String[] row) {
+        return generateMatchInsertStatement(row, AttributePlan.values(matchOwnerships, row, filePath, fileSeparator), AttributePlan.values(insertOwnerships, row, filePath, fileSeparator));
+    }
+
+    private TypeQLInsert generateMatchInsertStatement(String[] row, ArrayList<ArrayList<ThingConstraint.Value<?>>> matchValues,
+                                                      ArrayList<ArrayList<ThingConstraint.Value<?>>> insertValues) {
         if (row.length > 0) {
             ThingVariable.Thing entityMatchStatement = TypeQL.var("thing")
                     .isa(appendOrInsertConfiguration.getMatch().getType());
-            for (Configuration.Definition.Attribute ownershipThingGetter : appendOrInsertConfiguration.getMatch().getOwnerships()) {
-                ArrayList<ThingConstraint.Value<?>> constraintValues = GeneratorUtil.generateValueConstraintsConstrainingAttribute(
-                        row, header, filePath, fileSeparator, ownershipThingGetter);
-                for (ThingConstraint.Value<?> constraintValue : constraintValues) {
-                    entityMatchStatement.constrain(GeneratorUtil.valueToHasConstraint(ownershipThingGetter.getAttribute(), constraintValue));
-                }
-            }
+            AttributePlan.constrain(entityMatchStatement, matchOwnerships, matchValues);
 
             UnboundVariable insertUnboundVar = TypeQL.var("thing");
             ThingVariable.Thing insertStatement = null;
-            for (Configuration.Definition.Attribute attributeToAppend : appendOrInsertConfiguration.getInsert().getOwnerships()) {
-                ArrayList<ThingConstraint.Value<?>> constraintValues = GeneratorUtil.generateValueConstraintsConstrainingAttribute(
-                        row, header, filePath, fileSeparator, attributeToAppend);
-                for (ThingConstraint.Value<?> constraintValue : constraintValues) {
+            for (int i = 0; i < insertOwnerships.length; i++) {
+                for (ThingConstraint.Value<?> constraintValue : insertValues.get(i)) {
                     if (insertStatement == null) {
-                        insertStatement = insertUnboundVar.constrain(GeneratorUtil.valueToHasConstraint(attributeToAppend.getAttribute(), constraintValue));
+                        insertStatement = insertUnboundVar.constrain(GeneratorUtil.valueToHasConstraint(insertOwnerships[i].getAttributeType(), constraintValue));
                     } else {
-                        insertStatement.constrain(GeneratorUtil.valueToHasConstraint(attributeToAppend.getAttribute(), constraintValue));
+                        insertStatement.constrain(GeneratorUtil.valueToHasConstraint(insertOwnerships[i].getAttributeType(), constraintValue));
                     }
                 }
             }
@@ -132,56 +191,84 @@ public class AppendAttributeOrInsertThingGenerator implements Generator {
     }
 
     public TypeQLInsert generateThingInsertStatement(String[] row) {
+        return generateThingInsertStatement(row, AttributePlan.values(matchOwnerships, row, filePath, fileSeparator), AttributePlan.values(insertOwnerships, row, filePath, fileSeparator));
+    }
+
+    private TypeQLInsert generateThingInsertStatement(String[] row, ArrayList<ArrayList<ThingConstraint.Value<?>>> matchValues,
+                                                      ArrayList<ArrayList<ThingConstraint.Value<?>>> insertValues) {
         if (row.length > 0) {
             ThingVariable.Thing insertStatement = GeneratorUtil.generateBoundThingVar(appendOrInsertConfiguration.getMatch().getType());
 
-            for (Configuration.Definition.Attribute attribute : appendOrInsertConfiguration.getMatch().getOwnerships()) {
-                ArrayList<ThingConstraint.Value<?>> constraintValues = GeneratorUtil.generateValueConstraintsConstrainingAttribute(
-                        row, header, filePath, fileSeparator, attribute);
-                for (ThingConstraint.Value<?> constraintValue : constraintValues) {
-                    insertStatement.constrain(GeneratorUtil.valueToHasConstraint(attribute.getAttribute(), constraintValue));
-                }
-            }
-
-            GeneratorUtil.constrainThingWithHasAttributes(row, header, filePath, fileSeparator, insertStatement, appendOrInsertConfiguration.getInsert().getOwnerships());
-
+            AttributePlan.constrain(insertStatement, matchOwnerships, matchValues);
+            AttributePlan.constrain(insertStatement, insertOwnerships, insertValues);
             return TypeQL.insert(insertStatement);
         } else {
             return TypeQL.insert(TypeQL.var("null").isa("null").has("null", "null"));
         }
     }
 
-    public boolean appendAttributeInsertStatementValid(TypeQLInsert insert) {
-        if (insert == null) return false;
-        if (!insert.toString().contains("isa " + appendOrInsertConfiguration.getMatch().getType())) return false;
-        for (Configuration.Definition.Attribute ownershipThingGetter : appendOrInsertConfiguration.getMatch().getOwnerships()) {
-            if (!insert.toString().contains("has " + ownershipThingGetter.getAttribute())) return false;
-        }
-        if (appendOrInsertConfiguration.getInsert().getRequiredOwnerships() != null) {
-            for (Configuration.Definition.Attribute attribute : appendOrInsertConfiguration.getInsert().getRequiredOwnerships()) {
-                if (!insert.toString().contains("has " + attribute.getAttribute())) return false;
-            }
-        }
-        return true;
+    /**
+     * A row can be appended if it is not empty, has a value for every match ownership and for every required insert
+     * ownership, and appends at least one value.
+     */
+    public boolean appendAttributeInsertStatementValid(String[] row) {
+        return requiredCellsPresent(row) && appendAttributeInsertStatementValid(row, AttributePlan.values(matchOwnerships, row, filePath, fileSeparator),
+                AttributePlan.values(insertOwnerships, row, filePath, fileSeparator));
     }
 
-    public boolean thingInsertStatementValid(TypeQLInsert insert) {
-        if (insert == null) return false;
-        if (!insert.toString().contains("isa " + appendOrInsertConfiguration.getMatch().getType())) return false;
-        for (Configuration.Definition.Attribute ownershipThingGetter : appendOrInsertConfiguration.getMatch().getOwnerships()) {
-            if (ownershipThingGetter.getRequired() != null && ownershipThingGetter.getRequired()) {
-                if (!insert.toString().contains(", has " + ownershipThingGetter.getAttribute())) return false;
-            }
-        }
-        if (appendOrInsertConfiguration.getInsert().getRequiredOwnerships() != null) {
-            for (Configuration.Definition.Attribute attribute : appendOrInsertConfiguration.getInsert().getRequiredOwnerships()) {
-                if (!insert.toString().contains("has " + attribute.getAttribute())) return false;
-            }
-        }
-        return true;
+    private boolean appendAttributeInsertStatementValid(String[] row, ArrayList<ArrayList<ThingConstraint.Value<?>>> matchValues,
+                                                        ArrayList<ArrayList<ThingConstraint.Value<?>>> insertValues) {
+        return row.length > 0
+                && AttributePlan.allPresent(matchValues)
+                && AttributePlan.requiredPresent(insertOwnerships, insertValues)
+                && AttributePlan.anyPresent(insertValues);
+    }
+
+    /**
+     * A row can be inserted as a new thing if it is not empty and has a value for every required match and insert
+     * ownership.
+     */
+    public boolean thingInsertStatementValid(String[] row) {
+        return requiredCellsPresent(row) && thingInsertStatementValid(row, AttributePlan.values(matchOwnerships, row, filePath, fileSeparator),
+                AttributePlan.values(insertOwnerships, row, filePath, fileSeparator));
+    }
+
+    private boolean thingInsertStatementValid(String[] row, ArrayList<ArrayList<ThingConstraint.Value<?>>> matchValues,
+                                              ArrayList<ArrayList<ThingConstraint.Value<?>>> insertValues) {
+        return row.length > 0
+                && AttributePlan.requiredPresent(matchOwnerships, matchValues)
+                && AttributePlan.requiredPresent(insertOwnerships, insertValues);
+    }
+
+    // checked on the raw row before any value is parsed
+    private boolean requiredCellsPresent(String[] row) {
+        return AttributePlan.allCellsPresent(requiredMatchOwnerships, row)
+                && AttributePlan.allCellsPresent(requiredInsertOwnerships, row);
     }
 
     public char getFileSeparator() {
         return this.fileSeparator;
     }
+
+    @Override
+    public String[] getHeader() {
+        return header;
+    }
+
+    @Override
+    public int[] getColumns() {
+        return IntStream.concat(Arrays.stream(AttributePlan.columns(matchOwnerships)), Arrays.stream(AttributePlan.columns(insertOwnerships))).toArray();
+    }
+
+    @Override
+    public int[] getPartitionColumns() {
+        return AttributePlan.columns(matchOwnerships);
+    }
+
+    @Override
+    public String getPartitionKey(String[] row) {
+        StringBuilder key = new StringBuilder();
+        for (AttributePlan ownership : matchOwnerships) ownership.appendKey(key, row);
+        return key.toString();
+    }
 }
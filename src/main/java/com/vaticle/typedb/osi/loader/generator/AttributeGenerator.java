@@ -17,10 +17,10 @@
 package com.vaticle.typedb.osi.loader.generator;
 
 import com.vaticle.typedb.client.api.TypeDBTransaction;
-import com.vaticle.typedb.client.common.exception.TypeDBClientException;
 import com.vaticle.typedb.osi.loader.config.Configuration;
 import com.vaticle.typedb.osi.loader.io.FileLogger;
 import com.vaticle.typedb.osi.loader.util.GeneratorUtil;
+import com.vaticle.typedb.osi.loader.util.TypeDBUtil;
 import com.vaticle.typedb.osi.loader.util.Util;
 import com.vaticle.typeql.lang.TypeQL;
 import com.vaticle.typeql.lang.pattern.constraint.ThingConstraint;
@@ -32,60 +32,56 @@ import org.apache.logging.log4j.Logger;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 public class AttributeGenerator implements Generator {
     private static final Logger dataLogger = LogManager.getLogger("com.vaticle.typedb.osi.loader.error");
     private final String filePath;
+    private final String fileNoExtension;
     private final String[] header;
     private final Configuration.Generator.Attribute attributeConfiguration;
     private final char fileSeparator;
+    private final AttributePlan attribute;
 
     public AttributeGenerator(String filePath, Configuration.Generator.Attribute attributeConfiguration, char fileSeparator) throws IOException {
         this.filePath = filePath;
+        this.fileNoExtension = FilenameUtils.removeExtension(FilenameUtils.getName(filePath));
         this.header = Util.getFileHeader(filePath, fileSeparator);
+        Map<String, Integer> columns = GeneratorUtil.getColumnIndexes(header);
         this.attributeConfiguration = attributeConfiguration;
         this.fileSeparator = fileSeparator;
+        this.attribute = new AttributePlan(filePath, columns, attributeConfiguration.getInsert());
     }
 
     @Override
     public void write(TypeDBTransaction tx, String[] row, boolean allowMultiInsert) {
-
-        String fileName = FilenameUtils.getName(filePath);
-        String fileNoExtension = FilenameUtils.removeExtension(fileName);
-        String originalRow = String.join(Character.toString(fileSeparator), row);
-
         if (row.length > header.length) {
-            FileLogger.getLogger().logMalformed(fileName, originalRow);
+            FileLogger.getLogger().logMalformed(filePath, row, fileSeparator);
             dataLogger.error("Malformed Row detected in <" + filePath + "> - written to <" + fileNoExtension + "_malformed.log" + ">");
         }
 
-        for (TypeQLInsert statement : generateInsertStatements(row)) {
-            if (isValid(statement)) {
-                try {
-                    tx.query().insert(statement);
-                } catch (TypeDBClientException clientException) {
-                    FileLogger.getLogger().logUnavailable(fileName, originalRow);
-                    dataLogger.error("TypeDB Unavailable - Row in <" + filePath + "> not inserted - written to <" + fileNoExtension + "_unavailable.log" + ">");
-                }
+        if (row.length == 0) {
+            FileLogger.getLogger().logInvalid(filePath, row, fileSeparator);
+            dataLogger.error("Invalid Row detected in <" + filePath + "> - written to <" + fileNoExtension + "_invalid.log" + "> - empty row");
+            return;
+        }
+        for (ThingConstraint.Value<?> value : attribute.values(row, filePath, fileSeparator)) {
+            String query = TypeQLEmitter.attributeInsert("a", attribute.getAttributeType(), value);
+            if (query != null) {
+                TypeDBUtil.insert(tx, query);
             } else {
-                FileLogger.getLogger().logInvalid(fileName, originalRow);
-                dataLogger.error("Invalid Row detected in <" + filePath + "> - written to <" + fileNoExtension + "_invalid.log" + "> - invalid Statement: <" + statement.toString().replace("\n", " ") + ">");
+                TypeDBUtil.insert(tx, generateInsertStatement(value));
             }
         }
     }
 
     public List<TypeQLInsert> generateInsertStatements(String[] row) {
         if (row.length > 0) {
-            ArrayList<ThingConstraint.Value<?>> constraints = GeneratorUtil.generateValueConstraintsConstrainingAttribute(
-                    row, header, filePath, fileSeparator, attributeConfiguration.getInsert());
+            ArrayList<ThingConstraint.Value<?>> constraints = attribute.values(row, filePath, fileSeparator);
 
             List<TypeQLInsert> insertStatements = new ArrayList<>();
             for (ThingConstraint.Value<?> constraint : constraints) {
-                insertStatements.add(TypeQL.insert(
-                        TypeQL.var("a")
-                                .constrain(constraint)
-                                .isa(attributeConfiguration.getInsert().getAttribute())
-                ));
+                insertStatements.add(generateInsertStatement(constraint));
             }
             return insertStatements;
         } else {
@@ -94,11 +90,21 @@ public class AttributeGenerator implements Generator {
 
     }
 
-    private boolean isValid(TypeQLInsert insert) {
-        return insert.toString().contains("isa " + attributeConfiguration.getInsert().getAttribute());
+    private TypeQLInsert generateInsertStatement(ThingConstraint.Value<?> constraint) {
+        return TypeQL.insert(TypeQL.var("a").constrain(constraint).isa(attribute.getAttributeType()));
     }
 
     public char getFileSeparator() {
         return this.fileSeparator;
     }
+
+    @Override
+    public String[] getHeader() {
+        return header;
+    }
+
+    @Override
+    public int[] getColumns() {
+        return new int[]{attribute.getColumn()};
+    }
 }
@@ -0,0 +1,243 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.vaticle.typedb.osi.loader.generator;
+
+import com.vaticle.typedb.osi.loader.config.Configuration;
+import com.vaticle.typedb.osi.loader.preprocessor.Preprocessor;
+import com.vaticle.typedb.osi.loader.type.AttributeValueType;
+import com.vaticle.typedb.osi.loader.util.GeneratorUtil;
+import com.vaticle.typedb.osi.loader.util.Util;
+import com.vaticle.typedb.osi.loader.util.ValueDecoder;
+import com.vaticle.typeql.lang.pattern.constraint.ThingConstraint;
+import com.vaticle.typeql.lang.pattern.variable.ThingVariable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+/**
+ * An attribute of the data config compiled against a file header: the column is resolved to its index, the list
+ * separator to a pattern and the preprocessor compiled once per file, so that generating the values of a row only
+ * reads and parses its cells.
+ * A column missing from the header is reported here, once, and yields no values for any row.
+ * The concept value type must be set on the attribute before compiling.
+ */
+public class AttributePlan {
+
+    private final String attributeType;
+    private final int column;
+    private final AttributeValueType valueType;
+    private final Pattern listSeparator;
+    private final Preprocessor preprocessor;
+    private final boolean required;
+
+    public AttributePlan(String filePath, Map<String, Integer> columns, Configuration.Definition.Attribute attribute) {
+        this.attributeType = attribute.getAttribute();
+        this.column = GeneratorUtil.getColumnIndexByName(columns, attribute.getColumn());
+        if (column < 0) {
+            Util.warn("column <{}> of attribute <{}> not found in header of file <{}> - no values will be loaded for it",
+                    attribute.getColumn(), attributeType, filePath);
+        }
+        this.valueType = attribute.getConceptValueType();
+        this.listSeparator = attribute.getListSeparator() != null ? Pattern.compile(attribute.getListSeparator()) : null;
+        this.preprocessor = attribute.getPreprocessorConfig() != null ? Preprocessor.compile(attribute.getPreprocessorConfig()) : null;
+        this.required = attribute.getRequired() != null && attribute.getRequired();
+    }
+
+    public static AttributePlan[] compile(String filePath, Map<String, Integer> columns, Configuration.Definition.Attribute[] attributes) {
+        if (attributes == null) return new AttributePlan[0];
+        AttributePlan[] plans = new AttributePlan[attributes.length];
+        for (int i = 0; i < attributes.length; i++) {
+            plans[i] = new AttributePlan(filePath, columns, attributes[i]);
+        }
+        return plans;
+    }
+
+    public static int[] columns(AttributePlan[] plans) {
+        int[] columns = new int[plans.length];
+        for (int i = 0; i < plans.length; i++) {
+            columns[i] = plans[i].getColumn();
+        }
+        return columns;
+    }
+
+    /**
+     * The values of each of the attributes in the row, aligned with the attributes.
+     */
+    public static ArrayList<ArrayList<ThingConstraint.Value<?>>> values(AttributePlan[] plans, String[] row,
+                                                                         String filePath, char fileSeparator) {
+        ArrayList<ArrayList<ThingConstraint.Value<?>>> values = new ArrayList<>(plans.length);
+        for (AttributePlan plan : plans) {
+            values.add(plan.values(row, filePath, fileSeparator));
+        }
+        return values;
+    }
+
+    /**
+     * True if every required attribute has at least one (successfully parsed) value.
+     */
+    public static boolean requiredPresent(AttributePlan[] plans, ArrayList<ArrayList<ThingConstraint.Value<?>>> values) {
+        for (int i = 0; i < plans.length; i++) {
+            if (plans[i].isRequired() && values.get(i).isEmpty()) return false;
+        }
+        return true;
+    }
+
+    public static boolean allPresent(ArrayList<ArrayList<ThingConstraint.Value<?>>> values) {
+        for (ArrayList<ThingConstraint.Value<?>> attributeValues : values) {
+            if (attributeValues.isEmpty()) return false;
+        }
+        return true;
+    }
+
+    public static boolean anyPresent(ArrayList<ArrayList<ThingConstraint.Value<?>>> values) {
+        for (ArrayList<ThingConstraint.Value<?>> attributeValues : values) {
+            if (!attributeValues.isEmpty()) return true;
+        }
+        return false;
+    }
+
+    public static AttributePlan[] required(AttributePlan[] plans) {
+        return Arrays.stream(plans).filter(AttributePlan::isRequired).toArray(AttributePlan[]::new);
+    }
+
+    /**
+     * True if the row has a non-empty cell for every one of the attributes - a cheap check on the raw row that must
+     * hold for {@link #allPresent} to hold, and is done before any value is parsed.
+     */
+    public static boolean allCellsPresent(AttributePlan[] plans, String[] row) {
+        for (AttributePlan plan : plans) {
+            if (!plan.cellPresent(row)) return false;
+        }
+        return true;
+    }
+
+    public static boolean anyCellPresent(AttributePlan[] plans, String[] row) {
+        for (AttributePlan plan : plans) {
+            if (plan.cellPresent(row)) return true;
+        }
+        return false;
+    }
+
+    public boolean cellPresent(String[] row) {
+        return column >= 0 && column < row.length && row[column] != null && !row[column].isEmpty();
+    }
+
+    /**
+     * The value constraints of this attribute in the row - one per list element, none if the cell is missing or empty.
+     */
+    public ArrayList<ThingConstraint.Value<?>> values(String[] row, String filePath, char fileSeparator) {
+        ArrayList<ThingConstraint.Value<?>> valueConstraints = new ArrayList<>();
+        if (column < 0 || column >= row.length) return valueConstraints;
+        String token = row[column];
+        if (token == null || token.isEmpty()) return valueConstraints;
+
+        String cleanedToken = GeneratorUtil.cleanToken(token);
+        if (listSeparator == null) {
+            addValue(valueConstraints, cleanedToken, row, filePath, fileSeparator);
+        } else {
+            for (String exploded : listSeparator.split(cleanedToken)) {
+                String cleanedExplodedToken = GeneratorUtil.cleanToken(exploded);
+                if (!cleanedExplodedToken.isEmpty()) {
+                    addValue(valueConstraints, cleanedExplodedToken, row, filePath, fileSeparator);
+                }
+            }
+        }
+        return valueConstraints;
+    }
+
+    /**
+     * Adds a has-constraint to the thing for every value of the attributes.
+     */
+    public static void constrain(ThingVariable<?> thing, AttributePlan[] plans, ArrayList<ArrayList<ThingConstraint.Value<?>>> values) {
+        for (int i = 0; i < plans.length; i++) {
+            for (ThingConstraint.Value<?> value : values.get(i)) {
+                thing.constrain(GeneratorUtil.valueToHasConstraint(plans[i].getAttributeType(), value));
+            }
+        }
+    }
+
+    private void addValue(ArrayList<ThingConstraint.Value<?>> valueConstraints, String cleanedValue,
+                          String[] row, String filePath, char fileSeparator) {
+        ThingConstraint.Value<?> valueConstraint = GeneratorUtil.generateValueConstraint(
+                attributeType, valueType, cleanedValue, preprocessor, row, filePath, fileSeparator);
+        if (valueConstraint != null) {
+            valueConstraints.add(valueConstraint);
+        }
+    }
+
+    /**
+     * Appends the values of the attribute in the row to the key, the way the match compares them - cleaned,
+     * preprocessed and decoded to the value type (list values as a set) - but without logging values that do not
+     * decode, which the writer does.
+     */
+    public void appendKey(StringBuilder key, String[] row) {
+        key.append('\u0000');
+        if (column < 0 || column >= row.length || row[column] == null || row[column].isEmpty()) return;
+        String cleanedToken = GeneratorUtil.cleanToken(row[column]);
+        if (listSeparator == null) {
+            key.append(keyValue(cleanedToken));
+            return;
+        }
+        TreeSet<String> values = new TreeSet<>();
+        for (String exploded : listSeparator.split(cleanedToken)) {
+            String cleanedExplodedToken = GeneratorUtil.cleanToken(exploded);
+            if (!cleanedExplodedToken.isEmpty()) values.add(keyValue(cleanedExplodedToken));
+        }
+        key.append(String.join("\u0001", values));
+    }
+
+    private String keyValue(String cleanedValue) {
+        if (preprocessor != null) cleanedValue = preprocessor.applyProcessor(cleanedValue);
+        ThingConstraint.Value<?> decoded = null;
+        switch (valueType) {
+            case LONG:
+                decoded = ValueDecoder.longValue(cleanedValue);
+                break;
+            case DOUBLE:
+                decoded = ValueDecoder.doubleValue(cleanedValue);
+                break;
+            case BOOLEAN:
+                decoded = ValueDecoder.booleanValue(cleanedValue);
+                break;
+            case DATETIME:
+                decoded = ValueDecoder.dateTimeValue(cleanedValue);
+                break;
+            default:
+                break;
+        }
+        return decoded != null ? String.valueOf(decoded.value()) : cleanedValue;
+    }
+
+    public String getAttributeType() {
+        return attributeType;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    public AttributeValueType getValueType() {
+        return valueType;
+    }
+
+    public boolean isRequired() {
+        return required;
+    }
+}
@@ -17,13 +17,13 @@
 package com.vaticle.typedb.osi.loader.generator;
 
 import com.vaticle.typedb.client.api.TypeDBTransaction;
-import com.vaticle.typedb.client.common.exception.TypeDBClientException;
 import com.vaticle.typedb.osi.loader.config.Configuration;
 import com.vaticle.typedb.osi.loader.io.FileLogger;
 import com.vaticle.typedb.osi.loader.util.GeneratorUtil;
 import com.vaticle.typedb.osi.loader.util.TypeDBUtil;
 import com.vaticle.typedb.osi.loader.util.Util;
 import com.vaticle.typeql.lang.TypeQL;
+import com.vaticle.typeql.lang.pattern.constraint.ThingConstraint;
 import com.vaticle.typeql.lang.pattern.variable.ThingVariable;
 import com.vaticle.typeql.lang.query.TypeQLInsert;
 import org.apache.commons.io.FilenameUtils;
@@ -31,68 +31,95 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Map;
 
 public class EntityGenerator implements Generator {
     private static final Logger dataLogger = LogManager.getLogger("com.vaticle.typedb.osi.loader.error");
     private final String filePath;
+    private final String fileNoExtension;
     private final String[] header;
     private final Configuration.Generator.Entity entityConfiguration;
     private final char fileSeparator;
+    private final AttributePlan[] ownerships;
+    private final AttributePlan[] requiredOwnerships;
 
     public EntityGenerator(String filePath, Configuration.Generator.Entity entityConfiguration, char fileSeparator) throws IOException {
         this.filePath = filePath;
+        this.fileNoExtension = FilenameUtils.removeExtension(FilenameUtils.getName(filePath));
         this.header = Util.getFileHeader(filePath, fileSeparator);
+        Map<String, Integer> columns = GeneratorUtil.getColumnIndexes(header);
         this.entityConfiguration = entityConfiguration;
         this.fileSeparator = fileSeparator;
+        this.ownerships = AttributePlan.compile(filePath, columns, entityConfiguration.getInsert().getOwnerships());
+        this.requiredOwnerships = AttributePlan.required(ownerships);
     }
 
     @Override
     public void write(TypeDBTransaction tx, String[] row, boolean allowMultiInsert) {
-        String fileName = FilenameUtils.getName(filePath);
-        String fileNoExtension = FilenameUtils.removeExtension(fileName);
-        String originalRow = String.join(Character.toString(fileSeparator), row);
-
         if (row.length > header.length) {
-            FileLogger.getLogger().logMalformed(fileName, originalRow);
+            FileLogger.getLogger().logMalformed(filePath, row, fileSeparator);
             dataLogger.error("Malformed Row detected in <" + filePath + "> - written to <" + fileNoExtension + "_malformed.log" + ">");
         }
 
-        TypeQLInsert query = generateThingInsertStatement(row);
-        if (valid(query)) {
-            try {
-                tx.query().insert(query);
-            } catch (TypeDBClientException typeDBClientException) {
-                FileLogger.getLogger().logUnavailable(fileName, originalRow);
-                dataLogger.error("TypeDB Unavailable - Row in <" + filePath + "> not inserted - written to <" + fileNoExtension + "_unavailable.log" + ">");
+        if (!AttributePlan.allCellsPresent(requiredOwnerships, row)) {
+            FileLogger.getLogger().logInvalid(filePath, row, fileSeparator);
+            dataLogger.error("Invalid Row detected in <" + filePath + "> - written to <" + fileNoExtension + "_invalid.log" + "> - missing required value");
+            return;
+        }
+
+        ArrayList<ArrayList<ThingConstraint.Value<?>>> values = AttributePlan.values(ownerships, row, filePath, fileSeparator);
+        if (valid(row, values)) {
+            String query = TypeQLEmitter.thingInsert("e", entityConfiguration.getInsert().getEntity(), ownerships, values);
+            if (query != null) {
+                TypeDBUtil.insert(tx, query);
+            } else {
+                TypeDBUtil.insert(tx, generateThingInsertStatement(row, values));
             }
         } else {
-            FileLogger.getLogger().logInvalid(fileName, originalRow);
+            TypeQLInsert query = generateThingInsertStatement(row, values);
+            FileLogger.getLogger().logInvalid(filePath, row, fileSeparator);
             dataLogger.error("Invalid Row detected in <" + filePath + "> - written to <" + fileNoExtension + "_invalid.log" + "> - invalid Statement: <" + query.toString().replace("\n", " ") + ">");
         }
     }
 
     public TypeQLInsert generateThingInsertStatement(String[] row) {
+        return generateThingInsertStatement(row, AttributePlan.values(ownerships, row, filePath, fileSeparator));
+    }
+
+    private TypeQLInsert generateThingInsertStatement(String[] row, ArrayList<ArrayList<ThingConstraint.Value<?>>> values) {
         if (row.length > 0) {
             ThingVariable.Thing insertStatement = GeneratorUtil.generateBoundThingVar(entityConfiguration.getInsert().getEntity());
-
-            GeneratorUtil.constrainThingWithHasAttributes(row, header, filePath, fileSeparator, insertStatement, entityConfiguration.getInsert().getOwnerships());
-
+            AttributePlan.constrain(insertStatement, ownerships, values);
             return TypeQL.insert(insertStatement);
         } else {
             return TypeQL.insert(TypeQL.var("null").isa("null").has("null", "null"));
         }
     }
 
-    public boolean valid(TypeQLInsert insert) {
-        if (insert == null) return false;
-        if (!insert.toString().contains("isa " + entityConfiguration.getInsert().getEntity())) return false;
-        for (Configuration.Definition.Attribute attribute : entityConfiguration.getInsert().getRequiredOwnerships()) {
-            if (!insert.toString().contains("has " + attribute.getAttribute())) return false;
-        }
-        return true;
+    /**
+     * A row is valid if it is not empty and every required ownership has a value.
+     */
+    public boolean valid(String[] row) {
+        return AttributePlan.allCellsPresent(requiredOwnerships, row)
+                && valid(row, AttributePlan.values(ownerships, row, filePath, fileSeparator));
+    }
+
+    private boolean valid(String[] row, ArrayList<ArrayList<ThingConstraint.Value<?>>> values) {
+        return row.length > 0 && AttributePlan.requiredPresent(ownerships, values);
     }
 
     public char getFileSeparator() {
         return this.fileSeparator;
     }
+
+    @Override
+    public String[] getHeader() {
+        return header;
+    }
+
+    @Override
+    public int[] getColumns() {
+        return AttributePlan.columns(ownerships);
+    }
 }
@@ -18,7 +18,39 @@ package com.vaticle.typedb.osi.loader.generator;
 
 import com.vaticle.typedb.client.api.TypeDBTransaction;
 
+import java.util.List;
+
 public interface Generator {
     void write(TypeDBTransaction tx, String[] row, boolean allowMultiInsert);
+
+    default void write(TypeDBTransaction tx, List<String[]> rows, boolean allowMultiInsert) {
+        for (String[] row : rows) {
+            write(tx, row, allowMultiInsert);
+        }
+    }
+
     char getFileSeparator();
+
+    String[] getHeader();
+
+    /**
+     * Indexes of the columns identifying the thing a row writes to - dispatch is only partitioned when there are any.
+     * Empty for generators that only insert new things.
+     */
+    default int[] getPartitionColumns() {
+        return new int[0];
+    }
+
+    /**
+     * The values identifying the thing a row writes to, as the generator matches them (cleaned, preprocessed and
+     * decoded): rows with equal keys are routed to the same writer when dispatch is partitioned.
+     */
+    default String getPartitionKey(String[] row) {
+        return "";
+    }
+
+    /**
+     * Indexes of all the columns the generator reads - a row is loaded the same way as long as they are unchanged.
+     */
+    int[] getColumns();
 }
@@ -0,0 +1,170 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.vaticle.typedb.osi.loader.generator;
+
+import com.vaticle.typedb.osi.loader.config.Configuration;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A relation player of the data config compiled against a file header, with its nested players and attributes.
+ * <p>
+ * A top-level player is named after its position among the players present in a row ("player-0", "player-1", ...),
+ * which is only known per row - the variable names of a player and of all its nested players are therefore
+ * precomputed for every position the player can take.
+ */
+public class PlayerPlan {
+
+    public enum Kind {ATTRIBUTE, BY_ATTRIBUTE, BY_PLAYER, NONE}
+
+    private final Kind kind;
+    private final String role;
+    private final String type;
+    private final boolean required;
+    private final AttributePlan attribute;
+    private final AttributePlan[] ownerships;
+    private final PlayerPlan[] players;
+    private final String[] vars;
+
+    private PlayerPlan(String filePath, Map<String, Integer> columns, Configuration.Definition.Player player,
+                       int positions, String suffix) {
+        Configuration.Definition.Thing match = player.getMatch();
+        this.kind = match.getOwnerships() != null ? Kind.BY_ATTRIBUTE
+                : match.getAttribute() != null ? Kind.ATTRIBUTE
+                : match.getPlayers() != null ? Kind.BY_PLAYER
+                : Kind.NONE;
+        this.role = player.getRole();
+        this.type = match.getType();
+        this.required = player.getRequired() != null && player.getRequired();
+        this.attribute = kind == Kind.ATTRIBUTE ? new AttributePlan(filePath, columns, match.getAttribute()) : null;
+        this.ownerships = kind == Kind.BY_ATTRIBUTE ? AttributePlan.compile(filePath, columns, match.getOwnerships()) : new AttributePlan[0];
+        if (kind == Kind.BY_PLAYER) {
+            this.players = new PlayerPlan[match.getPlayers().length];
+            for (int idx = 0; idx < players.length; idx++) {
+                players[idx] = new PlayerPlan(filePath, columns, match.getPlayers()[idx], positions, suffix + "-" + idx);
+            }
+        } else {
+            this.players = new PlayerPlan[0];
+        }
+        this.vars = new String[positions];
+        for (int position = 0; position < positions; position++) {
+            vars[position] = "player-" + position + suffix;
+        }
+    }
+
+    public static PlayerPlan[] compile(String filePath, Map<String, Integer> columns, Configuration.Definition.Player[] players) {
+        PlayerPlan[] plans = new PlayerPlan[players.length];
+        for (int i = 0; i < players.length; i++) {
+            // the i-th player can be at most the i-th one present in a row
+            plans[i] = new PlayerPlan(filePath, columns, players[i], i + 1, "");
+        }
+        return plans;
+    }
+
+    public static PlayerPlan[] required(PlayerPlan[] plans) {
+        return Arrays.stream(plans).filter(PlayerPlan::isRequired).toArray(PlayerPlan[]::new);
+    }
+
+    /**
+     * Cheap checks on the raw row, done before any value is parsed: a player can only be part of the query if
+     * {@link #anyCellPresent} holds, and only be fully identified (as required for a required player) if
+     * {@link #allCellsPresent} holds.
+     */
+    public boolean anyCellPresent(String[] row) {
+        switch (kind) {
+            case ATTRIBUTE:
+                return attribute.cellPresent(row);
+            case BY_ATTRIBUTE:
+                return AttributePlan.anyCellPresent(ownerships, row);
+            case BY_PLAYER:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public boolean allCellsPresent(String[] row) {
+        switch (kind) {
+            case ATTRIBUTE:
+                return attribute.cellPresent(row);
+            case BY_ATTRIBUTE:
+                return AttributePlan.allCellsPresent(ownerships, row);
+            case BY_PLAYER:
+                for (PlayerPlan player : players) {
+                    if (!player.anyCellPresent(row)) return false;
+                }
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Appends the values this player is matched by in the row to the key - see {@link AttributePlan#appendKey}.
+     */
+    public void appendKey(StringBuilder key, String[] row) {
+        switch (kind) {
+            case ATTRIBUTE:
+                attribute.appendKey(key, row);
+                break;
+            case BY_ATTRIBUTE:
+                for (AttributePlan ownership : ownerships) ownership.appendKey(key, row);
+                break;
+            case BY_PLAYER:
+                for (PlayerPlan player : players) player.appendKey(key, row);
+                break;
+            default:
+                break;
+        }
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public boolean isRequired() {
+        return required;
+    }
+
+    public AttributePlan getAttribute() {
+        return attribute;
+    }
+
+    public AttributePlan[] getOwnerships() {
+        return ownerships;
+    }
+
+    public PlayerPlan[] getPlayers() {
+        return players;
+    }
+
+    /**
+     * The variable of this player, given the position of its top-level player among the players present in the row.
+     */
+    public String getVar(int position) {
+        return vars[position];
+    }
+}
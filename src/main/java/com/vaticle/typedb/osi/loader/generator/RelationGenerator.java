@@ -18,11 +18,10 @@ package com.vaticle.typedb.osi.loader.generator;
 
 import com.vaticle.typedb.client.api.TypeDBTransaction;
 import com.vaticle.typedb.client.api.answer.ConceptMap;
-import com.vaticle.typedb.client.common.exception.TypeDBClientException;
 import com.vaticle.typedb.osi.loader.config.Configuration;
 import com.vaticle.typedb.osi.loader.io.FileLogger;
-import com.vaticle.typedb.osi.loader.util.GeneratorUtil;
 import com.vaticle.typedb.osi.loader.util.TypeDBUtil;
+import com.vaticle.typedb.osi.loader.util.GeneratorUtil;
 import com.vaticle.typedb.osi.loader.util.Util;
 import com.vaticle.typeql.lang.TypeQL;
 import com.vaticle.typeql.lang.pattern.constraint.ThingConstraint;
@@ -35,113 +34,101 @@ import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.Map;
 
-import static com.vaticle.typedb.osi.loader.util.GeneratorUtil.constrainThingWithHasAttributes;
 import static com.vaticle.typedb.osi.loader.util.TypeDBUtil.safeInsert;
 
 public class RelationGenerator implements Generator {
     private static final Logger dataLogger = LogManager.getLogger("com.vaticle.typedb.osi.loader.error");
     private final String filePath;
+    private final String fileNoExtension;
     private final String[] header;
     private final Configuration.Generator.Relation relationConfiguration;
     private final char fileSeparator;
+    private final PlayerPlan[] players;
+    private final AttributePlan[] ownerships;
+    private final PlayerPlan[] requiredPlayers;
+    private final AttributePlan[] requiredOwnerships;
 
     public RelationGenerator(String filePath, Configuration.Generator.Relation relationConfiguration, char fileSeparator) throws IOException {
         this.filePath = filePath;
+        this.fileNoExtension = FilenameUtils.removeExtension(FilenameUtils.getName(filePath));
         this.header = Util.getFileHeader(filePath, fileSeparator);
+        Map<String, Integer> columns = GeneratorUtil.getColumnIndexes(header);
         this.relationConfiguration = relationConfiguration;
         this.fileSeparator = fileSeparator;
+        this.players = PlayerPlan.compile(filePath, columns, relationConfiguration.getInsert().getPlayers());
+        this.ownerships = AttributePlan.compile(filePath, columns, relationConfiguration.getInsert().getOwnerships());
+        this.requiredPlayers = PlayerPlan.required(players);
+        this.requiredOwnerships = AttributePlan.required(ownerships);
     }
 
     @Override
     public void write(TypeDBTransaction tx, String[] row, boolean allowMultiInsert) {
-        String fileName = FilenameUtils.getName(filePath);
-        String fileNoExtension = FilenameUtils.removeExtension(fileName);
-        String originalRow = String.join(Character.toString(fileSeparator), row);
-
         if (row.length > header.length) {
-            FileLogger.getLogger().logMalformed(fileName, originalRow);
+            FileLogger.getLogger().logMalformed(filePath, row, fileSeparator);
             dataLogger.error("Malformed Row detected in <" + filePath + "> - written to <" + fileNoExtension + "_malformed.log" + ">");
         }
 
-        TypeQLInsert query = generateMatchInsertStatement(row);
+        if (!requiredCellsPresent(row)) {
+            FileLogger.getLogger().logInvalid(filePath, row, fileSeparator);
+            dataLogger.error("Invalid Row detected in <" + filePath + "> - written to <" + fileNoExtension + "_invalid.log" + "> - missing required value");
+            return;
+        }
 
-        if (relationInsertStatementValid(query)) {
-            try {
-                Iterator<ConceptMap> answers = TypeDBUtil.executeMatch(tx, query);
-                if (!answers.hasNext()) {
-                    FileLogger.getLogger().logNoMatches(fileName, originalRow);
-                    dataLogger.error("Match-insert failed - File <" + filePath + "> row <" + originalRow + "> generates query <" + query + "> which matched no answers.");
-                } else {
-                    safeInsert(tx, query, answers, allowMultiInsert, filePath, originalRow, dataLogger);
-                }
-            } catch (TypeDBClientException typeDBClientException) {
-                FileLogger.getLogger().logUnavailable(fileName, originalRow);
-                dataLogger.error("TypeDB Unavailable - Row in <" + filePath + "> not inserted - written to <" + fileNoExtension + "_unavailable.log" + ">");
+        RelationRow relationRow = generateRelationRow(row);
+        TypeQLInsert query = generateMatchInsertStatement(relationRow);
+
+        if (relationInsertStatementValid(relationRow)) {
+            Iterator<ConceptMap> answers = TypeDBUtil.executeMatch(tx, query);
+            if (!answers.hasNext()) {
+                String originalRow = GeneratorUtil.originalRow(row, fileSeparator);
+                FileLogger.getLogger().logNoMatches(filePath, Collections.singletonList(row), fileSeparator);
+                dataLogger.error("Match-insert failed - File <" + filePath + "> row <" + originalRow + "> generates query <" + query + "> which matched no answers.");
+            } else {
+                safeInsert(tx, query, answers, allowMultiInsert, filePath, () -> Collections.singletonList(row), fileSeparator, dataLogger);
             }
         } else {
-            FileLogger.getLogger().logInvalid(fileName, originalRow);
+            FileLogger.getLogger().logInvalid(filePath, row, fileSeparator);
             dataLogger.error("Invalid Row detected in <" + filePath + "> - written to <" + fileNoExtension + "_invalid.log" + "> - invalid Statement: <" + query.toString().replace("\n", " ") + ">");
         }
     }
 
+    private RelationRow generateRelationRow(String[] row) {
+        PlayerValues[] playerValues = new PlayerValues[players.length];
+        for (int i = 0; i < players.length; i++) {
+            playerValues[i] = new PlayerValues(players[i], row);
+        }
+        return new RelationRow(row, playerValues, AttributePlan.values(ownerships, row, filePath, fileSeparator));
+    }
+
     public TypeQLInsert generateMatchInsertStatement(String[] row) {
-        if (row.length > 0) {
+        return generateMatchInsertStatement(generateRelationRow(row));
+    }
+
+    private TypeQLInsert generateMatchInsertStatement(RelationRow relationRow) {
+        if (relationRow.row.length > 0) {
             ArrayList<ThingVariable<?>> playerMatchStatements = new ArrayList<>();
-            ArrayList<String> playerVars = new ArrayList<>();
-            ArrayList<String> roleTypes = new ArrayList<>();
+            ThingVariable.Relation insertStatement = null;
 
             int playerIdx = 0;
-            for (Configuration.Definition.Player player : relationConfiguration.getInsert().getPlayers()) {
-                String playerVar = "player-" + playerIdx;
-
-                // ATTRIBUTE PLAYER
-                if (Util.playerType(player).equals("attribute")) {
-                    ThingVariable.Attribute playerMatchStatement = getAttributePlayerMatchStatement(row, player, playerVar);
-                    if (playerMatchStatement != null) {
-                        playerMatchStatements.add(playerMatchStatement);
-                        playerVars.add(playerVar);
-                        roleTypes.add(player.getRole());
-                        playerIdx += 1;
-                    }
-                }
-
-                // ENTITY & RELATION PLAYER BY ATTRIBUTE(s)
-                if (Util.playerType(player).equals("byAttribute")) {
-                    ThingVariable.Thing playerMatchStatement = getThingPlayerMatchStatementByAttribute(row, player, playerVar);
-                    if (playerMatchStatement.constraints().stream().anyMatch(ThingConstraint::isHas)) {
-                        playerMatchStatements.add(playerMatchStatement);
-                        playerVars.add(playerVar);
-                        roleTypes.add(player.getRole());
-                        playerIdx += 1;
-                    }
-                }
-
-//                // Relation PLAYER BY PLAYERs
-                if (Util.playerType(player).equals("byPlayer")) {
-                    ArrayList<ThingVariable<?>> playerMatchStatement = getRelationPlayerMatchStatement(row, player, playerVar);
-                    playerMatchStatements.addAll(playerMatchStatement);
-                    playerVars.add(playerVar);
-                    roleTypes.add(player.getRole());
-                    playerIdx += 1;
-                }
-
-            }
-
-            ThingVariable.Relation insertStatement = null;
-            for (int i = 0; i < roleTypes.size(); i++) {
+            for (PlayerValues player : relationRow.players) {
+                if (!player.present()) continue;
+                recursiveAssemblyMatchStatement(player, playerIdx, playerMatchStatements);
+                String playerVar = player.plan.getVar(playerIdx);
                 if (insertStatement == null) {
-                    insertStatement = TypeQL.var("rel").rel(roleTypes.get(i), playerVars.get(i));
+                    insertStatement = TypeQL.var("rel").rel(player.plan.getRole(), playerVar);
                 } else {
-                    insertStatement = insertStatement.rel(roleTypes.get(i), playerVars.get(i));
+                    insertStatement = insertStatement.rel(player.plan.getRole(), playerVar);
                 }
+                playerIdx += 1;
             }
+
             if (insertStatement != null) {
                 insertStatement = insertStatement.isa(relationConfiguration.getInsert().getRelation());
-                if (relationConfiguration.getInsert().getOwnerships() != null) {
-                    constrainThingWithHasAttributes(row, header, filePath, fileSeparator, insertStatement, relationConfiguration.getInsert().getOwnerships());
-                }
+                AttributePlan.constrain(insertStatement, ownerships, relationRow.ownershipValues);
 
                 return TypeQL.match(playerMatchStatements).insert(insertStatement);
             } else {
@@ -152,166 +139,203 @@ public class RelationGenerator implements Generator {
         }
     }
 
-    private ThingVariable.Thing getThingPlayerMatchStatementByAttribute(String[] row, Configuration.Definition.Player player, String playerVar) {
-        ThingVariable.Thing playerMatchStatement = TypeQL.var(playerVar).isa(player.getMatch().getType());
-        for (Configuration.Definition.Attribute consA : player.getMatch().getOwnerships()) {
-            ArrayList<ThingConstraint.Value<?>> constraintValues = GeneratorUtil.generateValueConstraintsConstrainingAttribute(
-                    row, header, filePath, fileSeparator, consA);
-            for (ThingConstraint.Value<?> constraintValue : constraintValues) {
-                playerMatchStatement.constrain(GeneratorUtil.valueToHasConstraint(consA.getAttribute(), constraintValue));
-            }
+    private void recursiveAssemblyMatchStatement(PlayerValues player,
+                                                 int playerIdx,
+                                                 ArrayList<ThingVariable<?>> statements) {
+        String playerVar = player.plan.getVar(playerIdx);
+        switch (player.plan.getKind()) {
+            case ATTRIBUTE:
+                //terminating condition - attribute player:
+                if (player.present()) {
+                    statements.add(TypeQL.var(playerVar)
+                            .constrain(player.values.get(0).get(0))
+                            .isa(player.plan.getType()));
+                }
+                break;
+            case BY_ATTRIBUTE:
+                //terminating condition - byAttribute player:
+                if (player.present()) {
+                    ThingVariable.Thing statement = TypeQL.var(playerVar).isa(player.plan.getType());
+                    AttributePlan.constrain(statement, player.plan.getOwnerships(), player.values);
+                    statements.add(statement);
+                }
+                break;
+            case BY_PLAYER:
+                // identify relation player "byPlayer"
+                //create the relation statement with the player vars that will be filled in recursion:
+                UnboundVariable ubv = TypeQL.var(playerVar);
+                ThingVariable.Relation relationMatch = null;
+                for (PlayerValues curPlayer : player.players) {
+                    String curPlayerVar = curPlayer.plan.getVar(playerIdx);
+                    if (relationMatch == null) {
+                        relationMatch = ubv.rel(curPlayer.plan.getRole(), curPlayerVar);
+                    } else {
+                        relationMatch = relationMatch.rel(curPlayer.plan.getRole(), curPlayerVar);
+                    }
+                    // this is where the recursion happens to fill the player var!
+                    recursiveAssemblyMatchStatement(curPlayer, playerIdx, statements);
+                }
+                assert relationMatch != null;
+                statements.add(relationMatch.isa(player.plan.getType()));
+                break;
+            default:
         }
-        return playerMatchStatement;
     }
 
-    private ThingVariable.Attribute getAttributePlayerMatchStatement(String[] row, Configuration.Definition.Player player, String playerVar) {
-        ArrayList<ThingConstraint.Value<?>> constraints = GeneratorUtil.generateValueConstraintsConstrainingAttribute(
-                row, header, filePath, fileSeparator, player.getMatch().getAttribute());
-        if (constraints.size() > 0) {
-            return TypeQL.var(playerVar)
-                    .constrain(constraints.get(0))
-                    .isa(player.getMatch().getType());
-        } else {
-            return null;
-        }
+    /**
+     * A row is valid if it is not empty, has at least one player, all required players (an attribute player with its
+     * value, a player by attribute with values for all its ownerships, a player by players with all its players) and
+     * a value for every required ownership.
+     */
+    public boolean relationInsertStatementValid(String[] row) {
+        return requiredCellsPresent(row) && relationInsertStatementValid(generateRelationRow(row));
     }
 
-    private ArrayList<ThingVariable<?>> getRelationPlayerMatchStatement(String[] row, Configuration.Definition.Player player, String playerVar) {
-        return recursiveAssemblyMatchStatement(row, player, playerVar);
+    // checked on the raw row before any value is parsed
+    private boolean requiredCellsPresent(String[] row) {
+        for (PlayerPlan player : requiredPlayers) {
+            if (!player.allCellsPresent(row)) return false;
+        }
+        return AttributePlan.allCellsPresent(requiredOwnerships, row);
     }
 
-    private ArrayList<ThingVariable<?>> recursiveAssemblyMatchStatement(String[] row,
-                                                                        Configuration.Definition.Player player,
-                                                                        String playerVar) {
-        if (Util.playerType(player).equals("attribute")) {
-            //terminating condition - attribute player:
-            ArrayList<ThingVariable<?>> statements = new ArrayList<>();
-            ThingVariable<?> statement = getAttributePlayerMatchStatement(row, player, playerVar);
-            if (statement != null) {
-                statements.add(statement);
-            }
-            return statements;
-        } else if (Util.playerType(player).equals("byAttribute")) {
-            //terminating condition - byAttribute player:
-            ArrayList<ThingVariable<?>> statements = new ArrayList<>();
-            ThingVariable<?> statement = getThingPlayerMatchStatementByAttribute(row, player, playerVar);
-            if (statement != null && statement.constraints().stream().anyMatch(ThingConstraint::isHas)) {
-                statements.add(statement);
-            }
-            return statements;
-        } else if (Util.playerType(player).equals("byPlayer")) {
-            // identify relation player "byPlayer"
-            ArrayList<ThingVariable<?>> statements = new ArrayList<>();
-            //create the relation statement with the player vars that will be filled in recursion:
-            UnboundVariable ubv = TypeQL.var(playerVar);
-            ThingVariable.Relation relationMatch = null;
-            for (int idx = 0; idx < player.getMatch().getPlayers().length; idx++) {
-                Configuration.Definition.Player curPlayer = player.getMatch().getPlayers()[idx];
-                String curPlayerVar = playerVar + "-" + idx;
-                if (idx == 0) {
-                    relationMatch = ubv.rel(curPlayer.getRole(), curPlayerVar);
-                } else {
-                    relationMatch = relationMatch.rel(curPlayer.getRole(), curPlayerVar);
-                }
-                // this is where the recursion happens to fill the player var!
-                ArrayList<ThingVariable<?>> recursiveMatch = recursiveAssemblyMatchStatement(row, curPlayer, curPlayerVar);
-                // now add whatever the recursion brought back:
-                statements.addAll(recursiveMatch);
-            }
-            assert relationMatch != null;
-            relationMatch = relationMatch.isa(player.getMatch().getType());
-            statements.add(relationMatch);
+    private boolean relationInsertStatementValid(RelationRow relationRow) {
+        if (relationRow.row.length == 0) return false;
 
-            return statements;
-        } else {
-            return null;
+        boolean anyPlayer = false;
+        for (PlayerValues player : relationRow.players) {
+            if (player.present()) anyPlayer = true;
+            if (player.plan.isRequired() && !player.complete()) return false;
         }
+        return anyPlayer && AttributePlan.requiredPresent(ownerships, relationRow.ownershipValues);
     }
 
-    public boolean relationInsertStatementValid(TypeQLInsert insert) {
-        if (insert == null) return false;
-        if (!insert.toString().contains("isa " + relationConfiguration.getInsert().getRelation())) return false;
+    public char getFileSeparator() {
+        return this.fileSeparator;
+    }
 
-        int idx = 0;
-        for (Configuration.Definition.Player player : relationConfiguration.getInsert().getRequiredPlayers()) {
-            // if attribute player
-            // the attribute must be in the match statement
-            if (Util.playerType(player).equals("attribute")) {
-                if (!validateAttributePlayer(player, insert)) {
-                    return false;
-                }
-            } else if (Util.playerType(player).equals("byAttribute")) {
-                if (!validateByAttributePlayer(player, insert)) {
-                    return false;
-                }
-            } else if (Util.playerType(player).equals("byPlayer")) {
-                if (!recursiveValidationPlayers(player, insert, "player-" + idx)) {
-                    return false;
-                }
-            }
-            idx++;
-        }
+    @Override
+    public String[] getHeader() {
+        return header;
+    }
 
-        // all required attributes part of the insert statement
-        if (relationConfiguration.getInsert().getRequiredOwnerships() != null) {
-            for (Configuration.Definition.Attribute attribute : relationConfiguration.getInsert().getRequiredOwnerships()) {
-                if (!insert.toString().contains("has " + attribute.getAttribute())) return false;
-            }
-        }
-        // all roles that are required must be in the insert statement
-        for (Configuration.Definition.Player player : relationConfiguration.getInsert().getRequiredPlayers()) {
-            if (!insert.toString().contains(player.getRole() + ":")) return false;
+    @Override
+    public int[] getColumns() {
+        ArrayList<Integer> columns = new ArrayList<>();
+        for (PlayerPlan player : players) {
+            recursiveCollectPlayerColumns(player, columns);
         }
-        // must have number of requireNonNull players
-        int requiredPlayers = relationConfiguration.getInsert().getRequiredPlayers().length;
-        for (int i = 0; i < requiredPlayers; i++) {
-            if (!insert.toString().contains("player-" + i)) return false;
+        for (AttributePlan ownership : ownerships) {
+            columns.add(ownership.getColumn());
         }
+        return columns.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Relations are partitioned by their first player only, so that relations played in by the same first player are
+     * written by the same writer. This is best-effort: relations sharing any other player may still be written
+     * concurrently by different writers, and conflict on commit.
+     */
+    @Override
+    public int[] getPartitionColumns() {
+        ArrayList<Integer> columns = new ArrayList<>();
+        recursiveCollectPlayerColumns(players[0], columns);
+        return columns.stream().mapToInt(Integer::intValue).toArray();
+    }
 
-        return true;
+    @Override
+    public String getPartitionKey(String[] row) {
+        StringBuilder key = new StringBuilder();
+        players[0].appendKey(key, row);
+        return key.toString();
     }
 
-    private boolean validateAttributePlayer(Configuration.Definition.Player player, TypeQLInsert insert) {
-        return insert.toString().contains("isa " + player.getMatch().getType());
+    private void recursiveCollectPlayerColumns(PlayerPlan player, ArrayList<Integer> columns) {
+        switch (player.getKind()) {
+            case ATTRIBUTE:
+                columns.add(player.getAttribute().getColumn());
+                break;
+            case BY_ATTRIBUTE:
+                for (AttributePlan ownership : player.getOwnerships()) {
+                    columns.add(ownership.getColumn());
+                }
+                break;
+            case BY_PLAYER:
+                for (PlayerPlan curPlayer : player.getPlayers()) {
+                    recursiveCollectPlayerColumns(curPlayer, columns);
+                }
+                break;
+            default:
+        }
     }
 
-    private boolean validateByAttributePlayer(Configuration.Definition.Player player, TypeQLInsert insert) {
-        if (!insert.toString().contains("isa " + player.getMatch().getType())) return false;
-        // each identifying attribute of the entity must be in the match statement
-        Configuration.Definition.Attribute[] ownerships = player.getMatch().getOwnerships();
-        for (Configuration.Definition.Attribute ownership : ownerships) {
-            if (ownership != null) {
-                if (!insert.toString().contains("has " + ownership.getAttribute())) return false;
-            }
+    private static class RelationRow {
+        private final String[] row;
+        private final PlayerValues[] players;
+        private final ArrayList<ArrayList<ThingConstraint.Value<?>>> ownershipValues;
+
+        private RelationRow(String[] row, PlayerValues[] players, ArrayList<ArrayList<ThingConstraint.Value<?>>> ownershipValues) {
+            this.row = row;
+            this.players = players;
+            this.ownershipValues = ownershipValues;
         }
-        return true;
     }
 
-    private boolean recursiveValidationPlayers(Configuration.Definition.Player player, TypeQLInsert insert, String playerVar) {
-
-        if (Util.playerType(player).equals("attribute")) {
-            //terminating condition - attribute player:
-            return validateAttributePlayer(player, insert);
-        } else if (Util.playerType(player).equals("byAttribute")) {
-            //terminating condition - byAttribute player:
-            return validateByAttributePlayer(player, insert);
-        } else if (Util.playerType(player).equals("byPlayer")) {
-            for (int idx = 0; idx < player.getMatch().getPlayers().length; idx++) {
-                // if player is a relation with players - check validity of "shallow" relation player
-                Configuration.Definition.Player curPlayer = player.getMatch().getPlayers()[idx];
-                String curPlayerVar = playerVar + "-" + idx;
-                if (!insert.toString().contains("isa " + curPlayer.getMatch().getType())) return false;
-                if (!insert.toString().contains(curPlayer.getRole() + ":")) return false;
-                if (!insert.toString().contains(curPlayerVar)) return false;
-                recursiveValidationPlayers(curPlayer, insert, curPlayerVar);
+    /**
+     * The values of a player (and its nested players) in a row: a single list for an attribute player, one list per
+     * ownership for a player by attribute.
+     */
+    private class PlayerValues {
+        private final PlayerPlan plan;
+        private final ArrayList<ArrayList<ThingConstraint.Value<?>>> values;
+        private final PlayerValues[] players;
+
+        private PlayerValues(PlayerPlan plan, String[] row) {
+            this.plan = plan;
+            this.players = new PlayerValues[plan.getPlayers().length];
+            switch (plan.getKind()) {
+                case ATTRIBUTE:
+                    this.values = new ArrayList<>(1);
+                    values.add(plan.getAttribute().values(row, filePath, fileSeparator));
+                    break;
+                case BY_ATTRIBUTE:
+                    this.values = AttributePlan.values(plan.getOwnerships(), row, filePath, fileSeparator);
+                    break;
+                default:
+                    this.values = new ArrayList<>(0);
+                    for (int idx = 0; idx < players.length; idx++) {
+                        players[idx] = new PlayerValues(plan.getPlayers()[idx], row);
+                    }
             }
-            return true;
-        } else {
-            return false;
         }
-    }
 
-    public char getFileSeparator() {
-        return this.fileSeparator;
+        // whether the player is part of the query
+        private boolean present() {
+            switch (plan.getKind()) {
+                case ATTRIBUTE:
+                case BY_ATTRIBUTE:
+                    return AttributePlan.anyPresent(values);
+                case BY_PLAYER:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        // whether the player is fully identified, as required for a required player
+        private boolean complete() {
+            switch (plan.getKind()) {
+                case ATTRIBUTE:
+                case BY_ATTRIBUTE:
+                    return AttributePlan.allPresent(values);
+                case BY_PLAYER:
+                    for (PlayerValues player : players) {
+                        if (!player.present()) return false;
+                    }
+                    return true;
+                default:
+                    return false;
+            }
+        }
     }
 }
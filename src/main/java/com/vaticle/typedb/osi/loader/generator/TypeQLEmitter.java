@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.vaticle.typedb.osi.loader.generator;
+
+import com.vaticle.typeql.lang.pattern.constraint.ThingConstraint;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+
+/**
+ * Writes simple insert queries as TypeQL text straight into a per-thread, reused buffer - bypassing the TypeQL builder
+ * objects, which the client would otherwise only serialise again. The text parses to the same query the builder
+ * produces. Methods return null if a value has no TypeQL literal (NaN or infinite doubles, years beyond 0-9999); the
+ * caller then falls back to the builder.
+ */
+public class TypeQLEmitter {
+
+    private static final ThreadLocal<StringBuilder> buffer = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    /**
+     * insert $var isa type, has attribute value, ...;
+     */
+    public static String thingInsert(String var, String type, AttributePlan[] plans,
+                                     ArrayList<ArrayList<ThingConstraint.Value<?>>> values) {
+        StringBuilder query = buffer.get();
+        query.setLength(0);
+        query.append("insert $").append(var).append(" isa ").append(type);
+        for (int i = 0; i < plans.length; i++) {
+            for (ThingConstraint.Value<?> value : values.get(i)) {
+                query.append(", has ").append(plans[i].getAttributeType()).append(' ');
+                if (!appendValue(query, value.value())) return null;
+            }
+        }
+        return query.append(';').toString();
+    }
+
+    /**
+     * insert $var value isa type;
+     */
+    public static String attributeInsert(String var, String type, ThingConstraint.Value<?> value) {
+        StringBuilder query = buffer.get();
+        query.setLength(0);
+        query.append("insert $").append(var).append(' ');
+        if (!appendValue(query, value.value())) return null;
+        return query.append(" isa ").append(type).append(';').toString();
+    }
+
+    static boolean appendValue(StringBuilder query, Object value) {
+        if (value instanceof String) {
+            appendString(query, (String) value);
+        } else if (value instanceof Long || value instanceof Boolean) {
+            query.append(value);
+        } else if (value instanceof Double) {
+            double d = (Double) value;
+            if (Double.isNaN(d) || Double.isInfinite(d)) return false;
+            // TypeQL doubles need a decimal point and have no exponent
+            String plain = BigDecimal.valueOf(d).toPlainString();
+            query.append(plain);
+            if (plain.indexOf('.') < 0) query.append(".0");
+        } else if (value instanceof LocalDateTime) {
+            return appendDateTime(query, (LocalDateTime) value);
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    // double-quoted, with backslashes and double quotes escaped
+    private static void appendString(StringBuilder query, String value) {
+        query.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') query.append('\\');
+            query.append(c);
+        }
+        query.append('"');
+    }
+
+    // yyyy-MM-ddTHH:mm[:ss[.SSS]] - TypeQL datetimes have at most millisecond precision
+    private static boolean appendDateTime(StringBuilder query, LocalDateTime dateTime) {
+        if (dateTime.getYear() < 0 || dateTime.getYear() > 9999) return false;
+        pad(query, dateTime.getYear(), 4).append('-');
+        pad(query, dateTime.getMonthValue(), 2).append('-');
+        pad(query, dateTime.getDayOfMonth(), 2).append('T');
+        pad(query, dateTime.getHour(), 2).append(':');
+        pad(query, dateTime.getMinute(), 2);
+        int millis = dateTime.getNano() / 1_000_000;
+        if (dateTime.getSecond() != 0 || millis != 0) {
+            pad(query.append(':'), dateTime.getSecond(), 2);
+            if (millis != 0) pad(query.append('.'), millis, 3);
+        }
+        return true;
+    }
+
+    private static StringBuilder pad(StringBuilder query, int value, int digits) {
+        for (int limit = 10, i = 1; i < digits; i++, limit *= 10) {
+            if (value < limit) query.append('0');
+        }
+        return query.append(value);
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vaticle.typedb.osi.loader.io;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Finds the block of a bgzip (BGZF) file holding a given offset of its uncompressed content: a BGZF file is a series of
+ * gzip members of at most 64 KiB each, whose compressed size is in the header and uncompressed size in the trailer -
+ * so any member can be inflated on its own. The blocks are looked up in the ".gzi" index written by "bgzip -i" if
+ * there is one, or else found by walking the block headers, without inflating anything.
+ */
+public class BgzfIndex {
+
+    private static final int HEADER_SIZE = 18;
+
+    /**
+     * Compressed and uncompressed offset of the start of the block holding the uncompressed offset, or null if the
+     * file is not in BGZF format.
+     */
+    public static long[] findBlock(String filePath, long offset) throws IOException {
+        File index = new File(filePath + ".gzi");
+        if (index.isFile()) return findInIndex(index, offset);
+        return findByHeaders(filePath, offset);
+    }
+
+    // a .gzi index: the number of entries, then a (compressed, uncompressed) offset pair per block after the first
+    private static long[] findInIndex(File index, long offset) throws IOException {
+        long[] block = new long[]{0, 0};
+        try (InputStream in = Files.newInputStream(index.toPath())) {
+            DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+            long entries = Long.reverseBytes(data.readLong());
+            for (long i = 0; i < entries; i++) {
+                long compressed = Long.reverseBytes(data.readLong());
+                long uncompressed = Long.reverseBytes(data.readLong());
+                if (uncompressed > offset) break;
+                block[0] = compressed;
+                block[1] = uncompressed;
+            }
+        } catch (EOFException eofException) {
+            throw new IOException("bgzip index <" + index + "> is truncated");
+        }
+        return block;
+    }
+
+    private static long[] findByHeaders(String filePath, long offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filePath), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer trailer = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            long compressed = 0;
+            long uncompressed = 0;
+            long size = channel.size();
+            while (compressed < size) {
+                header.clear();
+                if (readFully(channel, header, compressed) < HEADER_SIZE) return null;
+                int blockSize = blockSize(header);
+                if (blockSize < 0) return null;
+                trailer.clear();
+                if (readFully(channel, trailer, compressed + blockSize - 4) < 4) return null;
+                long blockUncompressed = trailer.getInt(0) & 0xFFFFFFFFL;
+                if (uncompressed + blockUncompressed > offset) break;
+                compressed += blockSize;
+                uncompressed += blockUncompressed;
+            }
+            return new long[]{compressed, uncompressed};
+        }
+    }
+
+    // total size of the block, from the "BC" extra subfield of its header, or -1 if it has none
+    private static int blockSize(ByteBuffer header) {
+        boolean gzip = (header.get(0) & 0xFF) == 31 && (header.get(1) & 0xFF) == 139 && header.get(2) == 8;
+        boolean extra = (header.get(3) & 4) != 0;
+        if (!gzip || !extra || (header.getShort(10) & 0xFFFF) != 6) return -1;
+        if (header.get(12) != 'B' || header.get(13) != 'C' || header.getShort(14) != 2) return -1;
+        return (header.getShort(16) & 0xFFFF) + 1;
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + total);
+            if (read < 0) break;
+            total += read;
+        }
+        return total;
+    }
+}
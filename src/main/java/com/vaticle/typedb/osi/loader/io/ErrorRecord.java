@@ -0,0 +1,139 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.vaticle.typedb.osi.loader.io;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * One line of the structured error log: a row that failed, with its cells exactly as they were parsed.
+ */
+public class ErrorRecord {
+
+    public static final String FILE_NAME = "errors.jsonl";
+
+    String file;
+    long line;
+    Reason reason;
+    String[] header;
+    String[] cells;
+
+    public enum Reason {
+        MALFORMED("_malformed.log", false),
+        INVALID("_invalid.log", true),
+        UNAVAILABLE("_unavailable.log", true),
+        NO_MATCHES("_no_matches.log", true),
+        TOO_MANY_MATCHES("_too_many_matches.log", true),
+        COLUMN_TYPE("_column_type.log", false);
+
+        private final String suffix;
+        private final boolean replayable;
+
+        Reason(String suffix, boolean replayable) {
+            this.suffix = suffix;
+            this.replayable = replayable;
+        }
+
+        public String getSuffix() {
+            return suffix;
+        }
+
+        /**
+         * Rows logged for a warning (malformed, column type) were loaded nevertheless and must not be replayed.
+         */
+        public boolean isReplayable() {
+            return replayable;
+        }
+    }
+
+    public ErrorRecord(String file, long line, Reason reason, String[] header, String[] cells) {
+        this.file = file;
+        this.line = line;
+        this.reason = reason;
+        this.header = header;
+        this.cells = cells;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    /**
+     * Line of the row in its file (the header being line 1), or -1 if unknown.
+     */
+    public long getLine() {
+        return line;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    public String[] getHeader() {
+        return header;
+    }
+
+    public String[] getCells() {
+        return cells;
+    }
+
+    /**
+     * Reads the rows of a structured error log that were not loaded, grouped by file and in line order - every line
+     * only once, even if it failed for more than one reason.
+     */
+    public static Map<String, List<ErrorRecord>> readReplayable(String path) throws IOException {
+        Gson gson = new Gson();
+        Map<String, List<ErrorRecord>> records = new LinkedHashMap<>();
+        Set<String> seen = new HashSet<>();
+        try (BufferedReader br = Files.newBufferedReader(Paths.get(path), UTF_8)) {
+            String json;
+            long lineNumber = 0;
+            while ((json = br.readLine()) != null) {
+                lineNumber++;
+                if (json.isBlank()) continue;
+                ErrorRecord record;
+                try {
+                    record = gson.fromJson(json, ErrorRecord.class);
+                } catch (JsonParseException jsonParseException) {
+                    throw new IOException("line " + lineNumber + " of <" + path + "> is not an error record: " + jsonParseException.getMessage());
+                }
+                if (record == null || record.file == null || record.cells == null) {
+                    throw new IOException("line " + lineNumber + " of <" + path + "> is not an error record");
+                }
+                if (record.reason == null || !record.reason.isReplayable()) continue;
+                if (record.line >= 0 && !seen.add(record.line + ":" + record.file)) continue;
+                records.computeIfAbsent(record.file, k -> new ArrayList<>()).add(record);
+            }
+        }
+        records.values().forEach(rows -> rows.sort(Comparator.comparingLong(ErrorRecord::getLine)));
+        return records;
+    }
+}
@@ -16,27 +16,66 @@
 
 package com.vaticle.typedb.osi.loader.io;
 
+import com.google.gson.Gson;
+import com.vaticle.typedb.osi.loader.metrics.MetricsRegistry;
 import org.apache.commons.io.FilenameUtils;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Error logs of the rows that could not be loaded, one file per source file and category. Callers only enqueue the
+ * line; a background thread appends it to a writer that stays open for the whole run, and flushes the writers whenever
+ * the queue runs dry, on {@link #flush()} and on shutdown. The queue is lock-free, so that writer threads logging rows
+ * never contend on it, and bounded by a separate count: callers park while it is full - the disk lagging behind -
+ * rather than holding every logged row in memory.
+ * <p>
+ * Rows logged with their cells are also written as {@link ErrorRecord}s to {@value ErrorRecord#FILE_NAME}, which keeps
+ * them exactly as parsed, together with their line, header and reason, so that they can be replayed.
+ * <p>
+ * A writer thread defers what it logs while a transaction is open ({@link #deferLogs()}), so that rows are only logged
+ * once the transaction commits - not once per attempt, nor for attempts that are rolled back.
+ */
 public class FileLogger {
 
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+    private static final int QUEUE_CAPACITY = 1 << 16;
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long FLUSH_TIMEOUT_SECONDS = 60;
+
     private static FileLogger logger = null;
+    private static String directory = null;
+    private static final ThreadLocal<List<Runnable>> deferred = new ThreadLocal<>();
     private final String directoryString;
+    private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<>();
+    // entries in the queue - checked by callers before offering, so the capacity may be exceeded by one per caller
+    private final AtomicInteger queued = new AtomicInteger();
+    private final Thread drainer;
+    private final Gson gson = new Gson();
 
     private FileLogger() {
-        DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd-HH_mm_ss").withZone(ZoneId.systemDefault());
-        File directory = new File(DATE_TIME_FORMATTER.format(new Date().toInstant()));
-        this.directoryString = directory.toString();
-        if (! directory.exists()){
-            directory.mkdir();
-        }
+        this.directoryString = directory();
+        this.drainer = new Thread(this::drain, "file-logger");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "file-logger-shutdown"));
     }
 
     public static synchronized FileLogger getLogger() {
@@ -46,75 +85,273 @@ public class FileLogger {
         return logger;
     }
 
-    public synchronized void logMalformed(String sourceFile, String errorString) {
-        try {
-            FileWriter fw = new FileWriter(directoryString + "/" + FilenameUtils.removeExtension(sourceFile) + "_malformed.log", true);
-            fw.append(errorString.replace("null", ""));
-            fw.append("\n");
-            fw.flush();
-            fw.close();
-        } catch (IOException ioException) {
-            ioException.printStackTrace();
-        }
+    public String getDirectory() {
+        return directoryString;
     }
 
-    public synchronized void logInvalid(String sourceFile, String errorString) {
-        try {
-            FileWriter fw = new FileWriter(directoryString + "/" + FilenameUtils.removeExtension(sourceFile) + "_invalid.log", true);
-            fw.append(errorString.replace("null", ""));
-            fw.append("\n");
-            fw.flush();
-            fw.close();
-        } catch (IOException ioException) {
-            ioException.printStackTrace();
+    /**
+     * The directory of this run, for the error logs and whatever else is written next to them - named after the time
+     * it is first asked for, and only created then, so that it can be used without starting the logger.
+     */
+    public static synchronized String directory() {
+        if (directory == null) {
+            DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd-HH_mm_ss").withZone(ZoneId.systemDefault());
+            directory = DATE_TIME_FORMATTER.format(new Date().toInstant());
         }
+        File directoryFile = new File(directory);
+        if (! directoryFile.exists()){
+            directoryFile.mkdir();
+        }
+        return directory;
     }
 
-    public synchronized void logUnavailable(String sourceFile, String errorString) {
-        try {
-            FileWriter fw = new FileWriter(directoryString + "/" + FilenameUtils.removeExtension(sourceFile) + "_unavailable.log", true);
-            fw.append(errorString.replace("null", ""));
-            fw.append("\n");
-            fw.flush();
-            fw.close();
-        } catch (IOException ioException) {
-            ioException.printStackTrace();
+    /**
+     * Flushes the logs, if any row has been logged at all (without starting the logger otherwise).
+     */
+    public static void flushLogs() {
+        FileLogger current;
+        synchronized (FileLogger.class) {
+            current = logger;
         }
+        if (current != null) current.flush();
+    }
+
+    /**
+     * Holds back what the current thread logs from now on, until {@link #emitDeferredLogs()} or
+     * {@link #discardDeferredLogs()}.
+     */
+    public static void deferLogs() {
+        deferred.set(new ArrayList<>());
+    }
+
+    /**
+     * Logs what the current thread has held back (its transaction has committed).
+     */
+    public static void emitDeferredLogs() {
+        List<Runnable> logs = deferred.get();
+        deferred.remove();
+        if (logs != null) logs.forEach(Runnable::run);
+    }
+
+    /**
+     * Drops what the current thread has held back (its transaction was rolled back).
+     */
+    public static void discardDeferredLogs() {
+        deferred.remove();
+    }
+
+    public void logMalformed(String sourceFile, String errorString) {
+        log(sourceFile, ErrorRecord.Reason.MALFORMED.getSuffix(), errorString);
+    }
+
+    public void logInvalid(String sourceFile, String errorString) {
+        log(sourceFile, ErrorRecord.Reason.INVALID.getSuffix(), errorString);
+    }
+
+    public void logUnavailable(String sourceFile, String errorString) {
+        log(sourceFile, ErrorRecord.Reason.UNAVAILABLE.getSuffix(), errorString);
     }
 
     public void logNoMatches(String sourceFile, String row) {
+        log(sourceFile, ErrorRecord.Reason.NO_MATCHES.getSuffix(), row);
+    }
+
+    public void logTooManyMatches(String sourceFile, String row) {
+        log(sourceFile, ErrorRecord.Reason.TOO_MANY_MATCHES.getSuffix(), row);
+    }
+
+    public void logColumnWarnings(String sourceFile, String errorString) {
+        log(sourceFile, ErrorRecord.Reason.COLUMN_TYPE.getSuffix(), errorString);
+    }
+
+    public void logMalformed(String filePath, String[] row, char fileSeparator) {
+        log(ErrorRecord.Reason.MALFORMED, filePath, Collections.singletonList(row), fileSeparator);
+    }
+
+    public void logInvalid(String filePath, String[] row, char fileSeparator) {
+        log(ErrorRecord.Reason.INVALID, filePath, Collections.singletonList(row), fileSeparator);
+    }
+
+    public void logUnavailable(String filePath, String[] row, char fileSeparator) {
+        log(ErrorRecord.Reason.UNAVAILABLE, filePath, Collections.singletonList(row), fileSeparator);
+    }
+
+    public void logNoMatches(String filePath, List<String[]> rows, char fileSeparator) {
+        log(ErrorRecord.Reason.NO_MATCHES, filePath, rows, fileSeparator);
+    }
+
+    public void logTooManyMatches(String filePath, List<String[]> rows, char fileSeparator) {
+        log(ErrorRecord.Reason.TOO_MANY_MATCHES, filePath, rows, fileSeparator);
+    }
+
+    public void logColumnWarnings(String filePath, String[] row, char fileSeparator) {
+        log(ErrorRecord.Reason.COLUMN_TYPE, filePath, Collections.singletonList(row), fileSeparator);
+    }
+
+    /**
+     * Blocks until every line logged so far is written and flushed to its file (for a minute at most).
+     */
+    public void flush() {
+        CountDownLatch flushed = new CountDownLatch(1);
+        enqueue(new Entry(null, null, null, null, flushed));
+        LockSupport.unpark(drainer);
         try {
-            FileWriter fw = new FileWriter(directoryString + "/" + FilenameUtils.removeExtension(sourceFile) + "_no_matches.log", true);
-            fw.append(row.replace("null", ""));
-            fw.append("\n");
-            fw.flush();
-            fw.close();
-        } catch (IOException ioException) {
-            ioException.printStackTrace();
+            if (!flushed.await(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                System.err.println("file-logger: error logs not flushed within " + FLUSH_TIMEOUT_SECONDS + " seconds");
+            }
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
         }
     }
 
-    public void logTooManyMatches(String sourceFile, String row) {
+    // parks while the queue is full; should the drainer have died, writes the entry itself
+    private void enqueue(Entry entry) {
+        boolean interrupted = false;
         try {
-            FileWriter fw = new FileWriter(directoryString + "/" + FilenameUtils.removeExtension(sourceFile) + "_too_many_matches.log", true);
-            fw.append(row.replace("null", ""));
-            fw.append("\n");
-            fw.flush();
-            fw.close();
-        } catch (IOException ioException) {
-            ioException.printStackTrace();
+            while (queued.get() >= QUEUE_CAPACITY) {
+                if (!drainer.isAlive()) {
+                    appendDirectly(entry);
+                    return;
+                }
+                LockSupport.parkNanos(this, FULL_PARK_NANOS);
+                // an interrupt would keep the park from parking: it is restored once the entry is queued
+                interrupted |= Thread.interrupted();
+            }
+            queued.incrementAndGet();
+            queue.offer(entry);
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    private synchronized void appendDirectly(Entry entry) {
+        if (entry.flushed != null) {
+            entry.flushed.countDown();
+            return;
+        }
+        Map<String, Writer> writers = new HashMap<>();
+        append(writers, pathOf(entry), lineOf(entry));
+        for (Writer writer : writers.values()) {
+            try {
+                writer.close();
+            } catch (IOException ioException) {
+                ioException.printStackTrace();
+            }
+        }
+    }
+
+    private void log(String sourceFile, String suffix, String line) {
+        List<Runnable> logs = deferred.get();
+        if (logs != null) {
+            logs.add(() -> log(sourceFile, suffix, line));
+            return;
         }
+        enqueue(new Entry(sourceFile, suffix, line, null, null));
     }
 
-    public synchronized void logColumnWarnings(String sourceFile, String errorString) {
+    // line and header are looked up here, on the thread that processes the rows
+    private void log(ErrorRecord.Reason reason, String filePath, List<String[]> rows, char fileSeparator) {
+        List<Runnable> logs = deferred.get();
+        if (logs != null) {
+            // emitted on the same thread, with the same rows still bound
+            List<String[]> deferredRows = new ArrayList<>(rows);
+            logs.add(() -> log(reason, filePath, deferredRows, fileSeparator));
+            return;
+        }
+        String sourceFile = FilenameUtils.getName(filePath);
+        String separator = Character.toString(fileSeparator);
+        StringBuilder lines = new StringBuilder();
+        for (String[] row : rows) {
+            if (lines.length() > 0) lines.append("\n");
+            lines.append(String.join(separator, row));
+        }
+        log(sourceFile, reason.getSuffix(), lines.toString());
+        MetricsRegistry.logged(reason, rows.size());
+        String[] header = RowContext.header();
+        for (String[] row : rows) {
+            ErrorRecord record = new ErrorRecord(filePath, RowContext.lineOf(row), reason, header, row);
+            enqueue(new Entry(null, null, null, record, null));
+            if (reason.isReplayable()) RowContext.failed(row);
+        }
+    }
+
+    // the writers are only ever touched by the drainer thread - which survives any entry failing to be written
+    private void drain() {
+        Map<String, Writer> writers = new HashMap<>();
+        boolean dirty = false;
+        while (true) {
+            Entry entry = queue.poll();
+            if (entry != null) queued.decrementAndGet();
+            try {
+                if (entry == null) {
+                    if (dirty) {
+                        flushAll(writers);
+                        dirty = false;
+                    }
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                } else if (entry.flushed != null) {
+                    flushAll(writers);
+                    dirty = false;
+                } else {
+                    dirty |= append(writers, pathOf(entry), lineOf(entry));
+                }
+            } catch (Throwable throwable) {
+                throwable.printStackTrace();
+            } finally {
+                if (entry != null && entry.flushed != null) entry.flushed.countDown();
+            }
+        }
+    }
+
+    private String pathOf(Entry entry) {
+        if (entry.record != null) return directoryString + "/" + ErrorRecord.FILE_NAME;
+        return directoryString + "/" + FilenameUtils.removeExtension(entry.sourceFile) + entry.suffix;
+    }
+
+    private String lineOf(Entry entry) {
+        if (entry.record != null) return gson.toJson(entry.record);
+        return entry.line != null ? entry.line.replace("null", "") : "";
+    }
+
+    private static boolean append(Map<String, Writer> writers, String path, String line) {
         try {
-            FileWriter fw = new FileWriter(directoryString + "/" + FilenameUtils.removeExtension(sourceFile) + "_column_type.log", true);
-            fw.append(errorString.replace("null", ""));
-            fw.append("\n");
-            fw.flush();
-            fw.close();
+            Writer writer = writers.get(path);
+            if (writer == null) {
+                writer = new BufferedWriter(new FileWriter(path, true), BUFFER_SIZE);
+                writers.put(path, writer);
+            }
+            writer.append(line);
+            writer.append("\n");
+            return true;
         } catch (IOException ioException) {
             ioException.printStackTrace();
+            return false;
+        }
+    }
+
+    private static void flushAll(Map<String, Writer> writers) {
+        for (Writer writer : writers.values()) {
+            try {
+                writer.flush();
+            } catch (IOException ioException) {
+                ioException.printStackTrace();
+            }
+        }
+    }
+
+    private static class Entry {
+        private final String sourceFile;
+        private final String suffix;
+        private final String line;
+        private final ErrorRecord record;
+        private final CountDownLatch flushed;
+
+        private Entry(String sourceFile, String suffix, String line, ErrorRecord record, CountDownLatch flushed) {
+            this.sourceFile = sourceFile;
+            this.suffix = suffix;
+            this.line = line;
+            this.record = record;
+            this.flushed = flushed;
         }
     }
 }
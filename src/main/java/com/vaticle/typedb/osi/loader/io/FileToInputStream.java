@@ -17,9 +17,13 @@
 package com.vaticle.typedb.osi.loader.io;
 
 import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
 import java.io.FileInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.GZIPInputStream;
 
 public class FileToInputStream {
@@ -28,6 +32,8 @@ public class FileToInputStream {
         try {
             if (filepath == null) {
                 return null;
+            } else if (StreamSource.STDIN.equals(filepath)) {
+                return new BufferedInputStream(System.in, 128_000);
             } else if (filepath.endsWith(".gz")) {
                 return new BufferedInputStream(new GZIPInputStream(new FileInputStream(filepath)), 128_000);
             } else {
@@ -38,4 +44,81 @@ public class FileToInputStream {
             return null;
         }
     }
+
+    /**
+     * The content of the file from the given offset on - the offset in its uncompressed content, for ".gz" files. Plain
+     * files are seeked, bgzip files are started at the block holding the offset, and other gzip files are inflated and
+     * skipped up to it.
+     */
+    public static InputStream getInputStream(String filepath, long offset) throws IOException {
+        return getInputStream(filepath, offset, null);
+    }
+
+    /**
+     * Like {@link #getInputStream(String, long)}, counting the bytes read from the file itself (compressed, for ".gz"
+     * files) in fileBytesRead - which starts at the position in the file reading starts from.
+     */
+    public static InputStream getInputStream(String filepath, long offset, AtomicLong fileBytesRead) throws IOException {
+        if (offset == 0 && fileBytesRead == null) {
+            InputStream is = getInputStream(filepath);
+            if (is == null) throw new IOException("cannot read <" + filepath + ">");
+            return is;
+        } else if (filepath.endsWith(".gz")) {
+            long[] block = offset > 0 ? BgzfIndex.findBlock(filepath, offset) : null;
+            long position = block != null ? block[0] : 0;
+            FileInputStream file = new FileInputStream(filepath);
+            if (position > 0) file.getChannel().position(position);
+            InputStream is = new BufferedInputStream(new GZIPInputStream(counting(file, position, fileBytesRead), 1 << 16), 128_000);
+            try {
+                skipFully(is, block != null ? offset - block[1] : offset);
+            } catch (IOException ioException) {
+                is.close();
+                throw ioException;
+            }
+            return is;
+        } else {
+            if (offset > new File(filepath).length()) throw new IOException("offset " + offset + " is past the end of <" + filepath + ">");
+            FileInputStream file = new FileInputStream(filepath);
+            if (offset > 0) file.getChannel().position(offset);
+            return new BufferedInputStream(counting(file, offset, fileBytesRead), 128_000);
+        }
+    }
+
+    private static InputStream counting(InputStream in, long position, AtomicLong bytesRead) {
+        if (bytesRead == null) return in;
+        bytesRead.set(position);
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int b = in.read();
+                if (b >= 0) bytesRead.incrementAndGet();
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int read = in.read(buffer, offset, length);
+                if (read > 0) bytesRead.addAndGet(read);
+                return read;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long skipped = in.skip(n);
+                bytesRead.addAndGet(skipped);
+                return skipped;
+            }
+        };
+    }
+
+    private static void skipFully(InputStream is, long bytes) throws IOException {
+        while (bytes > 0) {
+            long skipped = is.skip(bytes);
+            if (skipped <= 0) {
+                if (is.read() < 0) throw new EOFException("end of stream " + bytes + " bytes before the offset");
+                skipped = 1;
+            }
+            bytes -= skipped;
+        }
+    }
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vaticle.typedb.osi.loader.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Reads UTF-8 lines like {@link java.io.BufferedReader#readLine()} (ending at "\n", "\r" or "\r\n"), keeping track of
+ * the byte offset in the stream at which the next line starts - so that a load can later be resumed from there.
+ */
+public class LineReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private byte[] carry = new byte[256];
+    private int carryLength;
+    // bytes of an unterminated last line held in carry, until the rest of it is appended to the file
+    private int pending;
+    // the last line ended with "\r" at the end of the data: a "\n" appended next still belongs to it
+    private boolean skipNewline;
+    private int position;
+    private int limit;
+    // offset in the stream of buffer[0]
+    private long bufferOffset;
+
+    /**
+     * @param offset the offset in the whole stream at which the input stream starts
+     */
+    public LineReader(InputStream in, long offset) {
+        this.in = in;
+        this.bufferOffset = offset;
+    }
+
+    /**
+     * Offset of the next line to be read.
+     */
+    public long offset() {
+        return bufferOffset + position - pending;
+    }
+
+    /**
+     * The next line without its terminator, or null at the end of the stream.
+     */
+    public String readLine() throws IOException {
+        return nextLine(true, false);
+    }
+
+    /**
+     * Like {@link #readLine()}, but a last line without terminator is not returned: it is kept, and returned once the
+     * rest of it has been appended to the file - for files still being written to.
+     */
+    public String readCompleteLine() throws IOException {
+        return nextLine(true, true);
+    }
+
+    /**
+     * Skips the next line without decoding it; false at the end of the stream.
+     */
+    public boolean skipLine() throws IOException {
+        return nextLine(false, false) != null;
+    }
+
+    private String nextLine(boolean decode, boolean complete) throws IOException {
+        carryLength = pending;
+        pending = 0;
+        if (skipNewline && (position < limit || fill())) {
+            skipNewline = false;
+            if (buffer[position] == '\n') position++;
+        }
+        int start = position;
+        boolean any = carryLength > 0;
+        while (true) {
+            if (position == limit) {
+                if (decode || complete) append(start, position - start);
+                any |= position > start;
+                if (!fill()) {
+                    if (!any) return null;
+                    if (complete) {
+                        pending = carryLength;
+                        return null;
+                    }
+                    return decode ? new String(carry, 0, carryLength, UTF_8) : "";
+                }
+                start = 0;
+            }
+            byte b = buffer[position++];
+            if (b == '\n' || b == '\r') {
+                String line = null;
+                if (decode) {
+                    if (carryLength == 0) {
+                        line = new String(buffer, start, position - 1 - start, UTF_8);
+                    } else {
+                        append(start, position - 1 - start);
+                        line = new String(carry, 0, carryLength, UTF_8);
+                    }
+                }
+                if (b == '\r') {
+                    if (position < limit || fill()) {
+                        if (buffer[position] == '\n') position++;
+                    } else if (complete) {
+                        skipNewline = true;
+                    }
+                }
+                return decode ? line : "";
+            }
+        }
+    }
+
+    private void append(int start, int length) {
+        if (carryLength + length > carry.length) carry = Arrays.copyOf(carry, Math.max(carry.length * 2, carryLength + length));
+        System.arraycopy(buffer, start, carry, carryLength, length);
+        carryLength += length;
+    }
+
+    // replaces the buffer with the next bytes of the stream; false at its end
+    private boolean fill() throws IOException {
+        bufferOffset += limit;
+        position = 0;
+        limit = 0;
+        int read;
+        while ((read = in.read(buffer, 0, buffer.length)) == 0) {
+            Thread.onSpinWait();
+        }
+        if (read < 0) return false;
+        limit = read;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.vaticle.typedb.osi.loader.io;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The rows recorded in a structured error log, replayed in place of the lines of their data files. They are read once,
+ * before the configuration is validated: a data file that no longer exists is replayed with the header its rows were
+ * recorded with, and one without recorded rows is not needed at all.
+ */
+public class ReplaySource {
+
+    private static String path;
+    private static Map<String, List<ErrorRecord>> records;
+
+    /**
+     * The replayable rows of the error log, by data file - read on the first call only.
+     */
+    public static synchronized Map<String, List<ErrorRecord>> load(String errorLog) throws IOException {
+        if (records == null || !errorLog.equals(path)) {
+            records = ErrorRecord.readReplayable(errorLog);
+            path = errorLog;
+        }
+        return records;
+    }
+
+    public static synchronized boolean isReplaying() {
+        return records != null;
+    }
+
+    public static synchronized boolean hasRecords(String filePath) {
+        return records != null && records.containsKey(filePath);
+    }
+
+    static synchronized void clear() {
+        records = null;
+        path = null;
+    }
+
+    /**
+     * The header the first row of the file was recorded with, or null if none was recorded.
+     */
+    public static synchronized String[] header(String filePath) {
+        if (records == null || !records.containsKey(filePath)) return null;
+        return records.get(filePath).get(0).getHeader();
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.vaticle.typedb.osi.loader.io;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The batch of rows the current writer thread is processing, with the header and line numbers of their file - so that
+ * a failing row can be traced back to its line without threading line numbers through every generator.
+ */
+public class RowContext {
+
+    private static final ThreadLocal<RowContext> current = new ThreadLocal<>();
+
+    private final String[] header;
+    private final List<String[]> rows;
+    private final long[] lines;
+    private final Consumer<String[]> onFailure;
+    private int hint;
+
+    private RowContext(String[] header, List<String[]> rows, long[] lines, Consumer<String[]> onFailure) {
+        this.header = header;
+        this.rows = rows;
+        this.lines = lines;
+        this.onFailure = onFailure;
+    }
+
+    /**
+     * @param lines the line of each row, at the same index
+     */
+    public static void bind(String[] header, List<String[]> rows, long[] lines) {
+        bind(header, rows, lines, null);
+    }
+
+    /**
+     * @param onFailure told about every row that is not loaded (but not about rows only warned about)
+     */
+    public static void bind(String[] header, List<String[]> rows, long[] lines, Consumer<String[]> onFailure) {
+        current.set(new RowContext(header, rows, lines, onFailure));
+    }
+
+    public static void clear() {
+        current.remove();
+    }
+
+    static String[] header() {
+        RowContext context = current.get();
+        return context != null ? context.header : null;
+    }
+
+    static void failed(String[] row) {
+        RowContext context = current.get();
+        if (context != null && context.onFailure != null) context.onFailure.accept(row);
+    }
+
+    /**
+     * The line of the row (looked up by identity), or -1 if it is not in the bound batch.
+     */
+    static long lineOf(String[] row) {
+        RowContext context = current.get();
+        return context != null ? context.find(row) : -1;
+    }
+
+    // failing rows are mostly looked up in batch order, so the scan starts where the last one was found
+    private long find(String[] row) {
+        int size = rows.size();
+        for (int i = 0; i < size; i++) {
+            int index = (hint + i) % size;
+            if (rows.get(index) == row) {
+                hint = index;
+                return index < lines.length ? lines[index] : -1;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vaticle.typedb.osi.loader.io;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Data sources that are streams rather than files: stdin ("-") and named pipes (or any other path that is not a
+ * regular file). A stream can be read only once: its header line is read when it is first needed (validating the
+ * configuration, creating a generator) and kept, and the loader then takes the reader, positioned after the header.
+ */
+public class StreamSource {
+
+    public static final String STDIN = "-";
+
+    private static final Map<String, StreamSource> sources = new HashMap<>();
+
+    private final LineReader reader;
+    private final String header;
+    private boolean taken;
+
+    private StreamSource(LineReader reader, String header) {
+        this.reader = reader;
+        this.header = header;
+    }
+
+    public static boolean isStream(String filePath) {
+        if (STDIN.equals(filePath)) return true;
+        Path path = Paths.get(filePath);
+        return Files.exists(path) && !Files.isRegularFile(path) && !Files.isDirectory(path);
+    }
+
+    /**
+     * The header line of the stream, or null if it is empty.
+     */
+    public static synchronized String header(String filePath) throws IOException {
+        return open(filePath).header;
+    }
+
+    /**
+     * The reader of the stream, positioned after its header - for the one load reading it.
+     */
+    public static synchronized LineReader take(String filePath) throws IOException {
+        StreamSource source = open(filePath);
+        if (source.taken) throw new IOException("<" + filePath + "> is a stream and has already been read");
+        source.taken = true;
+        return source.reader;
+    }
+
+    private static StreamSource open(String filePath) throws IOException {
+        StreamSource source = sources.get(filePath);
+        if (source == null) {
+            // read unbuffered: the line reader does the buffering
+            InputStream in = STDIN.equals(filePath) ? System.in : new FileInputStream(filePath);
+            if (filePath.endsWith(".gz")) in = new GZIPInputStream(in, 1 << 16);
+            LineReader reader = new LineReader(in, 0);
+            source = new StreamSource(reader, reader.readLine());
+            sources.put(filePath, source);
+        }
+        return source;
+    }
+}
@@ -19,7 +19,7 @@ package com.vaticle.typedb.osi.loader.loader;
 import com.vaticle.typedb.client.api.TypeDBClient;
 import com.vaticle.typedb.client.api.TypeDBSession;
 import com.vaticle.typedb.client.api.TypeDBTransaction;
-import com.vaticle.typedb.common.collection.Either;
+import com.vaticle.typedb.client.api.answer.ConceptMap;
 import com.vaticle.typedb.common.concurrent.NamedThreadFactory;
 import com.vaticle.typedb.osi.loader.cli.LoadOptions;
 import com.vaticle.typedb.osi.loader.config.Configuration;
@@ -29,38 +29,86 @@ import com.vaticle.typedb.osi.loader.generator.AttributeGenerator;
 import com.vaticle.typedb.osi.loader.generator.EntityGenerator;
 import com.vaticle.typedb.osi.loader.generator.Generator;
 import com.vaticle.typedb.osi.loader.generator.RelationGenerator;
+import com.vaticle.typedb.osi.loader.io.ErrorRecord;
+import com.vaticle.typedb.osi.loader.io.FileLogger;
+import com.vaticle.typedb.osi.loader.io.FileToInputStream;
+import com.vaticle.typedb.osi.loader.io.LineReader;
+import com.vaticle.typedb.osi.loader.io.ReplaySource;
+import com.vaticle.typedb.osi.loader.io.RowContext;
+import com.vaticle.typedb.osi.loader.io.StreamSource;
+import com.vaticle.typedb.osi.loader.metrics.FileMetrics;
+import com.vaticle.typedb.osi.loader.metrics.GeneratorMetrics;
+import com.vaticle.typedb.osi.loader.metrics.MetricsRegistry;
+import com.vaticle.typedb.osi.loader.metrics.Progress;
+import com.vaticle.typedb.osi.loader.metrics.PrometheusEndpoint;
+import com.vaticle.typedb.osi.loader.metrics.Stage;
+import com.vaticle.typedb.osi.loader.status.Checkpoint;
+import com.vaticle.typedb.osi.loader.status.FingerprintStore;
+import com.vaticle.typedb.osi.loader.status.MigrationStatus;
+import com.vaticle.typedb.osi.loader.util.BloomFilter;
 import com.vaticle.typedb.osi.loader.util.TypeDBUtil;
 import com.vaticle.typedb.osi.loader.util.Util;
+import com.vaticle.typeql.lang.TypeQL;
 
-import java.io.BufferedReader;
+import javax.management.JMException;
+import javax.management.ObjectName;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.text.DecimalFormat;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-public class AsyncLoaderWorker {
+public class AsyncLoaderWorker implements AsyncLoaderWorkerMXBean {
 
     private static final DecimalFormat countFormat = new DecimalFormat("#,###");
     private static final DecimalFormat decimalFormat = new DecimalFormat("#,###.00");
+    private static final long RETRY_BASE_BACKOFF_MILLIS = 100;
+    private static final long CHECKPOINT_INTERVAL_MILLIS = 5_000;
+    private static final long FOLLOW_POLL_MILLIS = 100;
+    private static final long FOLLOW_STOP_TIMEOUT_MILLIS = 30_000;
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
     private final Configuration dc;
     private final LoadOptions loadOptions;
     private final ExecutorService executor;
     private final int threads;
     private final String databaseName;
     private final AtomicBoolean hasError;
-    private final int batchGroup;
     private Status status;
+    private Map<String, List<ErrorRecord>> replayRecords;
+    private Checkpoint checkpoint;
+    private final AtomicLong nextCheckpointMillis = new AtomicLong();
+    private final Map<String, FingerprintStore> fingerprintStores = new HashMap<>();
+    private Progress progress;
+    private String followedFile;
+    private volatile boolean followStarted;
+    private volatile boolean followStopped;
+    private final CountDownLatch closed = new CountDownLatch(1);
+    private final WriterGate gate;
+    private BatchWriter batchWriter;
+    private ObjectName objectName;
+    private PrometheusEndpoint prometheusEndpoint;
+    private volatile FileMetrics currentFile;
+    private volatile int currentBatchSize;
+    private volatile List<BatchRingBuffer> currentRings = List.of();
 
     private enum Status {OK, ERROR}
 
@@ -70,13 +118,45 @@ public class AsyncLoaderWorker {
         this.threads = dc.getGlobalConfig().getParallelisation();
         this.databaseName = loadOptions.databaseName;
         this.hasError = new AtomicBoolean(false);
-        this.batchGroup = 1;
         this.executor = Executors.newFixedThreadPool(threads, new NamedThreadFactory(this.databaseName));
+        this.gate = new WriterGate(threads);
         this.status = Status.OK;
     }
 
     public void run(TypeDBClient client) throws IOException, InterruptedException {
 
+        if (loadOptions.replayFile != null) {
+            replayRecords = ReplaySource.load(loadOptions.replayFile);
+            Util.info("replaying {} rows of {} files from {}", countFormat.format(replayRecords.values().stream().mapToLong(List::size).sum()),
+                    replayRecords.size(), loadOptions.replayFile);
+        } else if (loadOptions.resume) {
+            checkpoint = Checkpoint.load(loadOptions.getCheckpointFile());
+            Util.info("resuming from checkpoint {}", checkpoint.getPath());
+        } else {
+            checkpoint = Checkpoint.create(loadOptions.getCheckpointFile());
+        }
+        MetricsRegistry.getRegistry().startReporting(loadOptions.metricsSeconds);
+        registerMBean();
+        if (loadOptions.prometheusPort > 0) startPrometheusEndpoint(loadOptions.prometheusPort);
+
+        if (loadOptions.followGenerator != null) {
+            if (replayRecords != null) {
+                Util.warn("not following {} - only recorded rows are replayed", loadOptions.followGenerator);
+            } else {
+                Configuration.Generator followed = dc.getGeneratorByKey(loadOptions.followGenerator);
+                if (followed == null || followed.getData() == null || followed.getData().length == 0) {
+                    throw new IllegalArgumentException("cannot follow <" + loadOptions.followGenerator + ">: no such generator with data files");
+                }
+                followedFile = followed.getData()[followed.getData().length - 1];
+                if (followedFile.endsWith(".gz")) {
+                    throw new IllegalArgumentException("cannot follow <" + followedFile + ">: gzipped files cannot be followed");
+                }
+                if (StreamSource.isStream(followedFile)) {
+                    throw new IllegalArgumentException("cannot follow <" + followedFile + ">: streams are read until they are closed anyway");
+                }
+            }
+        }
+
         ArrayList<String> orderedBeforeGenerators = dc.getGlobalConfig().getOrderedBeforeGenerators();
         if (orderedBeforeGenerators == null) orderedBeforeGenerators = new ArrayList<>();
 
@@ -90,15 +170,24 @@ public class AsyncLoaderWorker {
         separateGenerators.addAll(orderedBeforeGenerators);
         separateGenerators.addAll(orderedAfterGenerators);
         separateGenerators.addAll(ignoreGenerators);
+        if (replayRecords == null) startProgress(ignoreGenerators);
+        if (followedFile != null) {
+            // the followed generator is loaded last, as it does not end
+            separateGenerators.add(loadOptions.followGenerator);
+            ignoreGenerators = new ArrayList<>(ignoreGenerators);
+            ignoreGenerators.add(loadOptions.followGenerator);
+        }
 
-        try (TypeDBSession session = TypeDBUtil.getDataSession(client, databaseName)) {
+        try (BatchWriter writer = new BatchWriter(() -> TypeDBUtil.getDataSession(client, databaseName),
+                loadOptions.maxRetries, loadOptions.multiInsert, RETRY_BASE_BACKOFF_MILLIS)) {
+            batchWriter = writer;
 
             //Load OrderBefore things...
             Util.info("loading ordered before things");
             for (String generatorKey : orderedBeforeGenerators) {
                 if (!ignoreGenerators.contains(generatorKey)) {
                     executeGenerator(
-                            session,
+                            writer.session(),
                             generatorKey,
                             dc.getGeneratorTypeByKey(generatorKey),
                             dc.getGeneratorByKey(generatorKey)
@@ -112,7 +201,7 @@ public class AsyncLoaderWorker {
             if (dc.getAttributes() != null) {
                 for (Map.Entry<String, Configuration.Generator.Attribute> attribute : dc.getAttributes().entrySet()) {
                     if (!separateGenerators.contains(attribute.getKey())) {
-                        loadAttribute(session, attribute.getKey(), attribute.getValue());
+                        loadAttribute(writer.session(), attribute.getKey(), attribute.getValue());
                         if (status == Status.ERROR) return;
                     }
                 }
@@ -123,7 +212,7 @@ public class AsyncLoaderWorker {
             if (dc.getEntities() != null) {
                 for (Map.Entry<String, Configuration.Generator.Entity> entity : dc.getEntities().entrySet()) {
                     if (!separateGenerators.contains(entity.getKey())) {
-                        loadEntity(session, entity.getKey(), entity.getValue());
+                        loadEntity(writer.session(), entity.getKey(), entity.getValue());
                         if (status == Status.ERROR) return;
                     }
                 }
@@ -134,7 +223,7 @@ public class AsyncLoaderWorker {
             if (dc.getRelations() != null) {
                 for (Map.Entry<String, Configuration.Generator.Relation> relation : dc.getRelations().entrySet()) {
                     if (!separateGenerators.contains(relation.getKey())) {
-                        loadRelation(session, relation.getKey(), relation.getValue());
+                        loadRelation(writer.session(), relation.getKey(), relation.getValue());
                         if (status == Status.ERROR) return;
                     }
                 }
@@ -145,7 +234,7 @@ public class AsyncLoaderWorker {
             if (dc.getAppendAttribute() != null) {
                 for (Map.Entry<String, Configuration.Generator.AppendAttribute> appendAttribute : dc.getAppendAttribute().entrySet()) {
                     if (!separateGenerators.contains(appendAttribute.getKey())) {
-                        loadAppendAttribute(session, appendAttribute.getKey(), appendAttribute.getValue());
+                        loadAppendAttribute(writer.session(), appendAttribute.getKey(), appendAttribute.getValue());
                         if (status == Status.ERROR) return;
                     }
                 }
@@ -156,7 +245,7 @@ public class AsyncLoaderWorker {
             if (dc.getAppendAttributeOrInsertThing() != null) {
                 for (Map.Entry<String, Configuration.Generator.AppendAttributeOrInsertThing> appendAttributeOrInsertThing : dc.getAppendAttributeOrInsertThing().entrySet()) {
                     if (!separateGenerators.contains(appendAttributeOrInsertThing.getKey())) {
-                        loadAppendOrInsert(session, appendAttributeOrInsertThing.getKey(), appendAttributeOrInsertThing.getValue());
+                        loadAppendOrInsert(writer.session(), appendAttributeOrInsertThing.getKey(), appendAttributeOrInsertThing.getValue());
                         if (status == Status.ERROR) return;
                     }
                 }
@@ -168,7 +257,7 @@ public class AsyncLoaderWorker {
                 for (String orderedGenerator : orderedAfterGenerators) {
                     if (!ignoreGenerators.contains(orderedGenerator)) {
                         executeGenerator(
-                                session,
+                                writer.session(),
                                 orderedGenerator,
                                 dc.getGeneratorTypeByKey(orderedGenerator),
                                 dc.getGeneratorByKey(orderedGenerator)
@@ -178,64 +267,254 @@ public class AsyncLoaderWorker {
                 }
             }
 
+            //Load and follow the followed generator, until stopped
+            if (followedFile != null) {
+                Util.info("loading and following {}", loadOptions.followGenerator);
+                executeGenerator(
+                        writer.session(),
+                        loadOptions.followGenerator,
+                        dc.getGeneratorTypeByKey(loadOptions.followGenerator),
+                        dc.getGeneratorByKey(loadOptions.followGenerator)
+                );
+                if (status == Status.ERROR) return;
+            }
+
             //Finished
             Util.info("TypeDB Loader finished");
         }
     }
 
+    // registers the size of every file to be loaded, for the progress reported while reading
+    private void startProgress(List<String> ignoreGenerators) {
+        progress = new Progress();
+        List<Map<String, ? extends Configuration.Generator>> generators = new ArrayList<>();
+        generators.add(dc.getAttributes());
+        generators.add(dc.getEntities());
+        generators.add(dc.getRelations());
+        generators.add(dc.getAppendAttribute());
+        generators.add(dc.getAppendAttributeOrInsertThing());
+        for (Map<String, ? extends Configuration.Generator> byKey : generators) {
+            if (byKey == null) continue;
+            for (Map.Entry<String, ? extends Configuration.Generator> generator : byKey.entrySet()) {
+                if (ignoreGenerators.contains(generator.getKey()) || generator.getValue().getData() == null) continue;
+                for (String file : generator.getValue().getData()) progress.add(generator.getKey(), file);
+            }
+        }
+        Progress.Estimate overall = progress.overall();
+        Util.info("progress: {} MB of data files to load", decimalFormat.format(overall.getTotal() / 1e6));
+    }
+
     public void close() {
         executor.shutdown();
+        for (FingerprintStore fingerprints : fingerprintStores.values()) {
+            try {
+                fingerprints.abort();
+            } catch (IOException ioException) {
+                Util.warn("could not discard the fingerprints of {}: {}", fingerprints.getGeneratorKey(), ioException.getMessage());
+            }
+        }
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException jmException) {
+                Util.warn("could not unregister {}: {}", objectName, jmException.getMessage());
+            }
+        }
+        if (prometheusEndpoint != null) prometheusEndpoint.close();
+        closed.countDown();
+    }
+
+    private void registerMBean() {
+        try {
+            objectName = new ObjectName("com.vaticle.typedb.osi.loader:type=AsyncLoaderWorker,database=" + ObjectName.quote(databaseName));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        } catch (JMException jmException) {
+            objectName = null;
+            Util.warn("could not register the loader with JMX: {}", jmException.getMessage());
+        }
+    }
+
+    private void startPrometheusEndpoint(int port) {
+        PrometheusEndpoint endpoint = new PrometheusEndpoint(MetricsRegistry.getRegistry());
+        endpoint.gauge("typedb_loader_queue_batches", "Batches read and waiting for a writer.", this::getQueueDepth);
+        endpoint.gauge("typedb_loader_queue_capacity", "Batches the queue of the current file can hold.", this::getQueueCapacity);
+        endpoint.gauge("typedb_loader_active_writers", "Writers in a transaction.", this::getActiveWriters);
+        endpoint.gauge("typedb_loader_concurrency", "Maximum number of writers in a transaction at the same time.", this::getConcurrency);
+        endpoint.gauge("typedb_loader_paused", "1 if the writers are paused.", () -> isPaused() ? 1 : 0);
+        try {
+            endpoint.start(port);
+            prometheusEndpoint = endpoint;
+            Util.info("serving metrics at http://127.0.0.1:{}/metrics", endpoint.getPort());
+        } catch (IOException ioException) {
+            Util.warn("could not serve metrics on port {}: {}", port, ioException.getMessage());
+        }
+    }
+
+    @Override
+    public String getCurrentGenerator() {
+        FileMetrics file = currentFile;
+        return file != null ? file.getGenerator().getGeneratorKey() : null;
+    }
+
+    @Override
+    public String getCurrentFile() {
+        FileMetrics file = currentFile;
+        return file != null ? file.getFile() : null;
+    }
+
+    @Override
+    public int getBatchSize() {
+        return currentBatchSize;
+    }
+
+    @Override
+    public long getRowsInserted() {
+        return MetricsRegistry.getRegistry().getGenerators().stream().mapToLong(GeneratorMetrics::getRowsInserted).sum();
+    }
+
+    @Override
+    public long getCurrentFileRowsInserted() {
+        FileMetrics file = currentFile;
+        return file != null ? file.getRowsInserted() : 0;
+    }
+
+    @Override
+    public double getRowsPerSecond() {
+        FileMetrics file = currentFile;
+        if (file == null || file.getElapsedMillis() == 0) return 0;
+        return file.getRowsInserted() * 1000.0 / file.getElapsedMillis();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return currentRings.stream().mapToInt(BatchRingBuffer::size).sum();
+    }
+
+    @Override
+    public int getQueueCapacity() {
+        return currentRings.stream().mapToInt(BatchRingBuffer::capacity).sum();
+    }
+
+    @Override
+    public int getActiveWriters() {
+        return gate.getActive();
+    }
+
+    @Override
+    public Map<String, Long> getRowsLogged() {
+        Map<String, Long> rowsLogged = new LinkedHashMap<>();
+        for (ErrorRecord.Reason reason : ErrorRecord.Reason.values()) {
+            rowsLogged.put(reason.name().toLowerCase(), MetricsRegistry.getRegistry().getGenerators().stream()
+                    .mapToLong(generator -> generator.getRowsLogged(reason)).sum());
+        }
+        return rowsLogged;
+    }
+
+    @Override
+    public int getConcurrency() {
+        return gate.getLimit();
+    }
+
+    @Override
+    public void setConcurrency(int concurrency) {
+        Util.info("concurrency set to {} writers", gate.setLimit(concurrency));
+    }
+
+    @Override
+    public boolean isPaused() {
+        return gate.isPaused();
+    }
+
+    @Override
+    public void pause() {
+        gate.pause();
+        Util.info("paused - writers finish their transactions and start no new ones");
+    }
+
+    @Override
+    public void resume() {
+        gate.resume();
+        Util.info("resumed");
+    }
+
+    /**
+     * Stops following the followed file (see --follow): the rows read so far are committed and checkpointed, and the
+     * load ends. If the file is being followed, waits (for a while) until the worker is closed.
+     */
+    public void stopFollowing() throws InterruptedException {
+        followStopped = true;
+        gate.resume();
+        if (followStarted && !closed.await(FOLLOW_STOP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            Util.warn("follow: rows read from {} were not all committed within {} ms", followedFile, FOLLOW_STOP_TIMEOUT_MILLIS);
+        }
     }
 
     private void loadAttribute(TypeDBSession session, String generatorKey, Configuration.Generator.Attribute attributeGenerator)
             throws IOException, InterruptedException {
+        if (isCompleted(generatorKey, attributeGenerator.getData())) return;
         initializeAttributeConceptValueType(session, attributeGenerator.getInsert());
-        for (String filePath : attributeGenerator.getData()) {
+        for (String filePath : dataFiles(attributeGenerator.getData())) {
             Generator gen = new AttributeGenerator(filePath, attributeGenerator, Util.getSeparator(dc, attributeGenerator.getConfig()));
-            asyncLoad(session, generatorKey, filePath, gen, Util.getRowsPerCommit(dc, attributeGenerator.getConfig()));
+            asyncLoad(generatorKey, filePath, gen, Util.getRowsPerCommit(dc, attributeGenerator.getConfig()));
             if (status == Status.ERROR) return;
         }
+        finishDelta(generatorKey);
     }
 
     private void loadEntity(TypeDBSession session, String generatorKey, Configuration.Generator.Entity entityGenerator)
             throws IOException, InterruptedException {
+        if (isCompleted(generatorKey, entityGenerator.getData())) return;
         Util.setConstrainingAttributeConceptType(entityGenerator.getInsert().getOwnerships(), session);
-        for (String filePath : entityGenerator.getData()) {
+        for (String filePath : dataFiles(entityGenerator.getData())) {
             Generator gen = new EntityGenerator(filePath, entityGenerator, Util.getSeparator(dc, entityGenerator.getConfig()));
-            asyncLoad(session, generatorKey, filePath, gen, Util.getRowsPerCommit(dc, entityGenerator.getConfig()));
+            asyncLoad(generatorKey, filePath, gen, Util.getRowsPerCommit(dc, entityGenerator.getConfig()));
             if (status == Status.ERROR) return;
         }
+        finishDelta(generatorKey);
     }
 
     private void loadRelation(TypeDBSession session, String generatorKey, Configuration.Generator.Relation relation)
             throws IOException, InterruptedException {
+        if (isCompleted(generatorKey, relation.getData())) return;
         initializeRelationAttributeConceptValueTypes(session, relation);
-        for (String filePath : relation.getData()) {
+        for (String filePath : dataFiles(relation.getData())) {
             Generator gen = new RelationGenerator(filePath, relation, Util.getSeparator(dc, relation.getConfig()));
-            asyncLoad(session, generatorKey, filePath, gen, Util.getRowsPerCommit(dc, relation.getConfig()));
+            asyncLoad(generatorKey, filePath, gen, Util.getRowsPerCommit(dc, relation.getConfig()));
             if (status == Status.ERROR) return;
         }
+        finishDelta(generatorKey);
     }
 
     private void loadAppendAttribute(TypeDBSession session, String generatorKey, Configuration.Generator.AppendAttribute appendAttribute)
             throws IOException, InterruptedException {
+        if (isCompleted(generatorKey, appendAttribute.getData())) return;
         initializeAppendAttributeConceptValueTypes(session, appendAttribute);
-        for (String filePath : appendAttribute.getData()) {
+        for (String filePath : dataFiles(appendAttribute.getData())) {
             Generator gen = new AppendAttributeGenerator(filePath, appendAttribute, Util.getSeparator(dc, appendAttribute.getConfig()));
-            asyncLoad(session, generatorKey, filePath, gen, Util.getRowsPerCommit(dc, appendAttribute.getConfig()));
+            asyncLoad(generatorKey, filePath, gen, Util.getRowsPerCommit(dc, appendAttribute.getConfig()));
             if (status == Status.ERROR) return;
         }
+        finishDelta(generatorKey);
     }
 
     private void loadAppendOrInsert(TypeDBSession session, String generatorKey,
                                       Configuration.Generator.AppendAttributeOrInsertThing appendAttributeOrInsertThing)
             throws IOException, InterruptedException {
+        if (isCompleted(generatorKey, appendAttributeOrInsertThing.getData())) return;
         initializeAppendAttributeConceptValueTypes(session, appendAttributeOrInsertThing);
-        for (String filePath : appendAttributeOrInsertThing.getData()) {
-            Generator gen = new AppendAttributeOrInsertThingGenerator(filePath, appendAttributeOrInsertThing, Util.getSeparator(dc, appendAttributeOrInsertThing.getConfig()));
-            asyncLoad(session, generatorKey, filePath, gen, Util.getRowsPerCommit(dc, appendAttributeOrInsertThing.getConfig()));
+        BloomFilter matchFilter = initializeMatchFilter(session, generatorKey, appendAttributeOrInsertThing);
+        for (String filePath : dataFiles(appendAttributeOrInsertThing.getData())) {
+            Generator gen = new AppendAttributeOrInsertThingGenerator(filePath, appendAttributeOrInsertThing, Util.getSeparator(dc, appendAttributeOrInsertThing.getConfig()), matchFilter);
+            asyncLoad(generatorKey, filePath, gen, Util.getRowsPerCommit(dc, appendAttributeOrInsertThing.getConfig()));
             if (status == Status.ERROR) return;
         }
+        finishDelta(generatorKey);
+    }
+
+    // the files of a generator to load - when replaying, only those with recorded rows, which may no longer exist
+    private List<String> dataFiles(String[] data) {
+        if (replayRecords == null) return Arrays.asList(data);
+        return Arrays.stream(data).filter(replayRecords::containsKey).collect(Collectors.toList());
     }
 
     private void executeGenerator(TypeDBSession session, String generatorKey, String generatorType,
@@ -261,6 +540,41 @@ public class AsyncLoaderWorker {
         }
     }
 
+    // delta mode: the fingerprints of the generator, shared by all its files
+    private FingerprintStore fingerprintStore(String generatorKey) throws IOException {
+        if (loadOptions.deltaDirectory == null || replayRecords != null) return null;
+        FingerprintStore fingerprints = fingerprintStores.get(generatorKey);
+        if (fingerprints == null) {
+            // a clean migration has emptied the database: nothing loaded by the last run is there any more
+            fingerprints = FingerprintStore.open(loadOptions.deltaDirectory, databaseName, generatorKey, loadOptions.cleanMigration);
+            if (loadOptions.cleanMigration) Util.info("delta {}: clean migration - the fingerprints of the last run are discarded", generatorKey);
+            fingerprintStores.put(generatorKey, fingerprints);
+        }
+        return fingerprints;
+    }
+
+    private void finishDelta(String generatorKey) throws IOException {
+        FingerprintStore fingerprints = fingerprintStores.remove(generatorKey);
+        if (fingerprints == null) return;
+        String sideFile = FileLogger.directory() + "/" + generatorKey + "_delta.jsonl";
+        if (fingerprints.finish(sideFile)) {
+            Util.info("delta {}: {} rows loaded, {} unchanged rows skipped, {} keys changed and {} removed since the last run - written to <{}>",
+                    generatorKey, countFormat.format(fingerprints.getLoaded()), countFormat.format(fingerprints.getUnchanged()),
+                    countFormat.format(fingerprints.getChanged()), countFormat.format(fingerprints.getRemoved()), sideFile);
+        } else {
+            Util.warn("delta {}: not every row was read (resumed load) - the fingerprints of the last run are kept", generatorKey);
+        }
+    }
+
+    private boolean isCompleted(String generatorKey, String[] data) {
+        if (checkpoint == null || !checkpoint.isCompleted(generatorKey, data)) return false;
+        Util.info("skipping {} - completed according to checkpoint", generatorKey);
+        if (progress != null) {
+            for (String file : data) progress.completed(generatorKey, file);
+        }
+        return true;
+    }
+
     private void initializeAppendAttributeConceptValueTypes(TypeDBSession session, Configuration.Generator.AppendAttribute appendAttribute) {
         Configuration.Definition.Attribute[] hasAttributes = appendAttribute.getInsert().getOwnerships();
         if (hasAttributes != null) {
@@ -273,6 +587,34 @@ public class AsyncLoaderWorker {
         }
     }
 
+    private BloomFilter initializeMatchFilter(TypeDBSession session, String generatorKey,
+                                              Configuration.Generator.AppendAttributeOrInsertThing appendAttributeOrInsertThing) {
+        Configuration.Generator.GeneratorConfig config = appendAttributeOrInsertThing.getConfig();
+        if (config == null || config.getBloomFilterFalsePositiveRate() == null) return null;
+
+        BloomFilter matchFilter = new BloomFilter(config.getBloomFilterExpectedInsertions(), config.getBloomFilterFalsePositiveRate());
+        // seed with the match ownerships of things already in the database, so that only this run's rows can be absent
+        String thingType = appendAttributeOrInsertThing.getMatch().getType();
+        long seeded = 0;
+        try (TypeDBTransaction tx = session.transaction(TypeDBTransaction.Type.READ)) {
+            for (Configuration.Definition.Attribute attribute : appendAttributeOrInsertThing.getMatch().getOwnerships()) {
+                String attributeType = attribute.getAttribute();
+                try (Stream<ConceptMap> answers = tx.query().match(TypeQL.match(
+                        TypeQL.var("thing").isa(thingType).has(attributeType, TypeQL.var("a"))).get("a"))) {
+                    Iterator<ConceptMap> iterator = answers.iterator();
+                    while (iterator.hasNext()) {
+                        Object value = iterator.next().get("a").asAttribute().getValue();
+                        matchFilter.put(AppendAttributeOrInsertThingGenerator.matchFilterKey(attributeType, value));
+                        seeded++;
+                    }
+                }
+            }
+        }
+        Util.info("bloom filter for {}: {} bits, {} hash functions, seeded with {} existing ownerships",
+                generatorKey, countFormat.format(matchFilter.getBitCount()), matchFilter.getHashFunctions(), countFormat.format(seeded));
+        return matchFilter;
+    }
+
     private void initializeAttributeConceptValueType(TypeDBSession session, Configuration.Definition.Attribute attribute) {
         Configuration.Definition.Attribute[] attributes = new Configuration.Definition.Attribute[1];
         attributes[0] = attribute;
@@ -305,93 +647,343 @@ public class AsyncLoaderWorker {
         }
     }
 
-    private void asyncLoad(TypeDBSession session, String generatorKey, String filename, Generator gen, int batch)
-            throws IOException, InterruptedException {
+    private void asyncLoad(String generatorKey, String filename, Generator gen, int batch)
+            throws IOException {
+        FingerprintStore fingerprints = fingerprintStore(generatorKey);
+        if (checkpoint != null && checkpoint.isCompleted(generatorKey, filename)) {
+            Util.info("async-load (skip): {} - {} completed according to checkpoint", generatorKey, filename);
+            if (progress != null) progress.completed(generatorKey, filename);
+            if (fingerprints != null) fingerprints.incomplete();
+            return;
+        }
         Util.info("async-load (start): {} reading from {}", generatorKey, filename);
-        LinkedBlockingQueue<Either<List<List<String[]>>, Done>> queue = new LinkedBlockingQueue<>(threads * 4);
+        FileMetrics metrics = MetricsRegistry.getRegistry().generator(generatorKey).file(filename);
+        metrics.started(batch, threads);
+        MigrationStatus resumed = checkpoint != null ? checkpoint.get(generatorKey, filename) : null;
+        long skipRows = resumed != null ? resumed.getMigratedRows() : 0;
+        // when replaying, the rows recorded for this file take the place of its lines
+        AtomicLong fileBytesRead = new AtomicLong();
+        LineReader reader = replayRecords == null ? openReader(filename, skipRows, resumed != null ? resumed.getByteOffset() : 0, fileBytesRead) : null;
+        // the bytes before the first row not committed yet were loaded by an earlier run
+        if (progress != null) progress.skipped(generatorKey, filename, fileBytesRead.get());
+        // rows committed by the resumed load after the first one it had not committed are skipped
+        long[][] committedRanges = resumed != null && reader != null ? resumed.getCommittedRanges() : new long[0][];
+        CommitWatermark watermark = new CommitWatermark(1 + skipRows, reader != null ? reader.offset() : 0, committedRanges);
+        if (committedRanges.length > 0) {
+            Util.info("async-load: skipping {} ranges of rows of {} committed out of order before", committedRanges.length, filename);
+        }
+        if (fingerprints != null) {
+            int[] keyColumns = gen.getPartitionColumns().length > 0 ? gen.getPartitionColumns() : gen.getColumns();
+            fingerprints.begin(gen.getHeader(), gen.getColumns(), keyColumns);
+            if (skipRows > 0) fingerprints.incomplete();
+        }
+        boolean follow = reader != null && !followStopped && filename.equals(followedFile) && generatorKey.equals(loadOptions.followGenerator);
+        if (follow) {
+            followStarted = true;
+            Util.info("follow: reading rows appended to {} until stopped", filename);
+        }
+        int[] partitionColumns = gen.getPartitionColumns();
+        boolean partitioned = loadOptions.partitionedDispatch && partitionColumns.length > 0;
+        // partitioned: every writer has its own ring, fed with the rows of its partition only
+        List<BatchRingBuffer> rings = new ArrayList<>();
+        if (partitioned) {
+            // a writer failing aborts every ring, also the one the reader may be waiting on
+            AtomicBoolean aborted = new AtomicBoolean();
+            for (int i = 0; i < threads; i++) rings.add(new BatchRingBuffer(4, batch, aborted));
+        } else {
+            rings.add(new BatchRingBuffer(threads * 4, batch));
+        }
+        currentFile = metrics;
+        currentBatchSize = batch;
+        currentRings = rings;
         List<CompletableFuture<Void>> asyncWrites = new ArrayList<>(threads);
         for (int i = 0; i < threads; i++) {
-            asyncWrites.add(asyncWrite(i + 1, filename, gen, session, queue));
+            asyncWrites.add(asyncWrite(i + 1, generatorKey, filename, gen, rings.get(partitioned ? i : 0), watermark, fingerprints, metrics));
+        }
+        boolean completed = false;
+        try {
+            bufferedRead(generatorKey, filename, reader, fileBytesRead, gen, batch, rings, skipRows, committedRanges, watermark, fingerprints, follow, metrics);
+            CompletableFuture.allOf(asyncWrites.toArray(new CompletableFuture[0])).join();
+            // a followed file may still grow: a resumed load continues following it
+            completed = !hasError.get() && !follow;
+        } finally {
+            metrics.finished();
+            saveCheckpoint(generatorKey, filename, watermark, completed);
         }
-        bufferedRead(filename, gen, batch, queue);
-        CompletableFuture.allOf(asyncWrites.toArray(new CompletableFuture[0])).join();
         Util.info("async-load (end): {}", filename);
         if (hasError.get()) status = Status.ERROR;
     }
 
-    private void bufferedRead(String filename,
+    // positioned at the first row not committed yet: seeked to its offset if it is known, else by skipping lines
+    private static LineReader openReader(String filename, long skipRows, long skipOffset, AtomicLong fileBytesRead) throws IOException {
+        if (StreamSource.isStream(filename)) {
+            // stdin or a named pipe: read after the header already read from it, and not seekable
+            LineReader reader = StreamSource.take(filename);
+            if (skipRows > 0) Util.info("buffered-read: skipping {} rows of the stream committed before", countFormat.format(skipRows));
+            for (long i = 0; i < skipRows; i++) {
+                if (!reader.skipLine()) break;
+            }
+            return reader;
+        }
+        if (skipRows > 0 && skipOffset > 0) {
+            try {
+                LineReader reader = new LineReader(FileToInputStream.getInputStream(filename, skipOffset, fileBytesRead), skipOffset);
+                Util.info("buffered-read: resuming at byte {} after {} rows committed before", countFormat.format(skipOffset), countFormat.format(skipRows));
+                return reader;
+            } catch (IOException ioException) {
+                Util.warn("buffered-read: cannot resume {} at byte {} - skipping {} rows instead: {}",
+                        filename, skipOffset, skipRows, ioException.getMessage());
+            }
+        }
+        LineReader reader = new LineReader(FileToInputStream.getInputStream(filename, 0, fileBytesRead), 0);
+        reader.skipLine();
+        if (skipRows > 0) Util.info("buffered-read: skipping {} rows committed before", countFormat.format(skipRows));
+        for (long i = 0; i < skipRows; i++) {
+            if (!reader.skipLine()) break;
+        }
+        return reader;
+    }
+
+    private void bufferedRead(String generatorKey,
+                              String filename,
+                              LineReader reader,
+                              AtomicLong fileBytesRead,
                               Generator gen,
                               int batch,
-                              LinkedBlockingQueue<Either<List<List<String[]>>, AsyncLoaderWorker.Done>> queue) throws InterruptedException, IOException {
-
-        BufferedReader br = Util.newBufferedReader(filename);
-
-        Iterator<String> iterator = br.lines().skip(1).iterator();
-        List<List<String[]>> rowGroups = new ArrayList<>(batchGroup);
-        List<String[]> rows = new ArrayList<>(batch);
-
-        int count = 0;
+                              List<BatchRingBuffer> rings,
+                              long skipRows,
+                              long[][] committedRanges,
+                              CommitWatermark watermark,
+                              FingerprintStore fingerprints,
+                              boolean follow,
+                              FileMetrics metrics) throws IOException {
+
+        Iterator<ErrorRecord> replayed = reader == null ? replayRecords.getOrDefault(filename, List.of()).iterator() : null;
+        // replay: the columns of the generator's header in every header the rows were recorded with
+        Map<List<String>, int[]> replayColumns = new HashMap<>();
+        int partitions = rings.size();
+        // batch currently being filled per partition - claimed from its ring on the first row
+        BatchRingBuffer.Batch[] pending = new BatchRingBuffer.Batch[partitions];
+        // follow mode: when each pending batch was claimed, so that none waits for more rows for long
+        long[] claimedAt = new long[partitions];
+        long flushNanos = TimeUnit.MILLISECONDS.toNanos(loadOptions.followFlushMillis);
+
+        long count = skipRows;
+        int committedRange = 0;
+        long startBatchCount = count;
         Instant startRead = Instant.now();
         Instant startBatch = Instant.now();
-        while (iterator.hasNext() && !hasError.get()) {
-            count++;
-            String[] rowTokens;
-            try {
-                rowTokens = Util.parseBySeparator(iterator.next(), gen.getFileSeparator());
-            } catch (IndexOutOfBoundsException indexOutOfBoundsException) {
-                continue;
-            }
-            Util.debug("buffered-read: (line {}): {}", count, Arrays.toString(rowTokens));
-            rows.add(rowTokens);
-            if (rows.size() == batch || !iterator.hasNext()) {
-                rowGroups.add(rows);
-                rows = new ArrayList<>(batch);
-                if (rowGroups.size() == batchGroup || !iterator.hasNext()) {
-                    queue.put(Either.first(rowGroups));
-                    rowGroups = new ArrayList<>(batchGroup);
+        long nextProgressNanos = System.nanoTime() + PROGRESS_INTERVAL_NANOS;
+        try {
+            while (!hasError.get()) {
+                String[] rowTokens;
+                long line;
+                long offset = -1;
+                long endOffset = -1;
+                if (replayed != null) {
+                    if (!replayed.hasNext()) break;
+                    count++;
+                    ErrorRecord record = replayed.next();
+                    rowTokens = replayedCells(record, gen, replayColumns);
+                    line = record.getLine();
+                    metrics.read();
+                    if (rowTokens == null) {
+                        metrics.skipped();
+                        continue;
+                    }
+                } else {
+                    offset = reader.offset();
+                    long readStart = System.nanoTime();
+                    String text = follow ? reader.readCompleteLine() : reader.readLine();
+                    if (text == null) {
+                        if (follow && awaitGrowth(filename, reader, rings, pending, claimedAt, flushNanos)) continue;
+                        break;
+                    }
+                    long parseStart = System.nanoTime();
+                    metrics.record(Stage.READ, parseStart - readStart);
+                    endOffset = reader.offset();
+                    count++;
+                    metrics.read();
+                    // the header is line 1
+                    line = count + 1;
+                    while (committedRange < committedRanges.length && committedRanges[committedRange][1] < line) committedRange++;
+                    if (committedRange < committedRanges.length && committedRanges[committedRange][0] <= line) {
+                        metrics.skipped();
+                        continue;
+                    }
+                    try {
+                        rowTokens = Util.parseBySeparator(text, gen.getFileSeparator());
+                    } catch (IndexOutOfBoundsException indexOutOfBoundsException) {
+                        continue;
+                    }
+                    metrics.record(Stage.PARSE, System.nanoTime() - parseStart);
+                    // delta mode: rows loaded by the last run are skipped
+                    if (fingerprints != null && !fingerprints.isNew(rowTokens)) {
+                        metrics.skipped();
+                        continue;
+                    }
+                }
+                Util.debug("buffered-read: (line {}): {}", line, Arrays.toString(rowTokens));
+                int partition = partitions == 1 ? 0 : partition(gen.getPartitionKey(rowTokens), partitions);
+                if (pending[partition] == null) {
+                    if ((pending[partition] = rings.get(partition).claim()) == null) break;
+                    watermark.dispatched(line, offset);
+                    if (follow) claimedAt[partition] = System.nanoTime();
+                }
+                pending[partition].add(rowTokens, line, offset, endOffset);
+                if (pending[partition].rows().size() == batch) {
+                    rings.get(partition).publish(pending[partition]);
+                    pending[partition] = null;
+                }
+                if (follow) publishExpired(rings, pending, claimedAt, flushNanos);
+
+                // every 50,000 rows, and every 10 seconds for slow files
+                if (count % 50_000 == 0 || (count > startBatchCount && System.nanoTime() - nextProgressNanos >= 0)) {
+                    Instant endBatch = Instant.now();
+                    double rate = Util.calculateRate(count - startBatchCount, startBatch, endBatch);
+                    double average = Util.calculateRate(count - skipRows, startRead, endBatch);
+                    Util.info("buffered-read: source: {}, progress: {}, rate: {}/s, average: {}/s",
+                            filename, countFormat.format(count), decimalFormat.format(rate), decimalFormat.format(average));
+                    logProgress(generatorKey, filename, fileBytesRead);
+                    startBatch = Instant.now();
+                    startBatchCount = count;
+                    nextProgressNanos = System.nanoTime() + PROGRESS_INTERVAL_NANOS;
                 }
             }
-
-            if (count % 50_000 == 0) {
-                Instant endBatch = Instant.now();
-                double rate = Util.calculateRate(50_000, startBatch, endBatch);
-                double average = Util.calculateRate(count, startRead, endBatch);
-                Util.info("buffered-read: source: {}, progress: {}, rate: {}/s, average: {}/s",
-                        filename, countFormat.format(count), decimalFormat.format(rate), decimalFormat.format(average));
-                startBatch = Instant.now();
+            for (int i = 0; i < partitions; i++) {
+                if (pending[i] != null && !hasError.get()) rings.get(i).publish(pending[i]);
             }
+        } finally {
+            rings.forEach(BatchRingBuffer::close);
+            if (reader != null) reader.close();
         }
-        queue.put(Either.second(AsyncLoaderWorker.Done.INSTANCE));
         Instant endRead = Instant.now();
-        double rate = Util.calculateRate(count, startRead, endRead);
+        double rate = Util.calculateRate(count - skipRows, startRead, endRead);
         Util.info("buffered-read: total: {}, rate: {}/s", countFormat.format(count), decimalFormat.format(rate));
+        logProgress(generatorKey, filename, fileBytesRead);
+    }
+
+    private void logProgress(String generatorKey, String filename, AtomicLong fileBytesRead) {
+        if (progress == null) return;
+        progress.read(generatorKey, filename, fileBytesRead.get());
+        Progress.Estimate file = progress.file(generatorKey, filename);
+        // streams have no size to tell progress by
+        if (file == null) return;
+        Util.info("progress: file {}: {}; generator {}: {}; overall: {}",
+                filename, file, generatorKey, progress.generator(generatorKey), progress.overall());
+    }
+
+    // follow mode, at the end of the file: false once following is stopped or the file was truncated, else true after a while
+    private boolean awaitGrowth(String filename,
+                                LineReader reader,
+                                List<BatchRingBuffer> rings,
+                                BatchRingBuffer.Batch[] pending,
+                                long[] claimedAt,
+                                long flushNanos) throws IOException {
+        publishExpired(rings, pending, claimedAt, flushNanos);
+        if (followStopped) {
+            Util.info("follow: stopped following {}", filename);
+            return false;
+        }
+        if (Files.size(Paths.get(filename)) < reader.offset()) {
+            Util.warn("follow: {} was truncated - stopped following it", filename);
+            return false;
+        }
+        try {
+            Thread.sleep(Math.max(1, Math.min(FOLLOW_POLL_MILLIS, loadOptions.followFlushMillis)));
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    // hands over the batches claimed longer than the flush interval ago, however few rows they hold
+    private static void publishExpired(List<BatchRingBuffer> rings, BatchRingBuffer.Batch[] pending, long[] claimedAt, long flushNanos) {
+        long now = System.nanoTime();
+        for (int i = 0; i < pending.length; i++) {
+            if (pending[i] != null && now - claimedAt[i] >= flushNanos) {
+                rings.get(i).publish(pending[i]);
+                pending[i] = null;
+            }
+        }
+    }
+
+    /**
+     * The cells of the replayed row in the order of the generator's header - recorded headers may differ from it, if
+     * the data file was exported again since. Null if the row was recorded without a column the generator reads, which
+     * is warned about once per header.
+     */
+    static String[] replayedCells(ErrorRecord record, Generator gen, Map<List<String>, int[]> replayColumns) {
+        String[] header = gen.getHeader();
+        if (record.getHeader() == null) {
+            Util.warn("replay: row at line {} of {} was recorded without its header - skipped", record.getLine(), record.getFile());
+            return null;
+        }
+        if (Arrays.equals(record.getHeader(), header)) return record.getCells();
+        List<String> recorded = Arrays.asList(record.getHeader());
+        if (!replayColumns.containsKey(recorded)) {
+            int[] indexes = new int[header.length];
+            for (int i = 0; i < header.length; i++) indexes[i] = recorded.indexOf(header[i]);
+            List<String> missing = new ArrayList<>();
+            for (int column : gen.getColumns()) {
+                if (column >= 0 && column < header.length && indexes[column] < 0) missing.add(header[column]);
+            }
+            if (missing.isEmpty()) {
+                Util.info("replay: rows of {} recorded with header {} are mapped to the columns of {} by name", record.getFile(), recorded, Arrays.asList(header));
+            } else {
+                Util.warn("replay: rows of {} recorded with header {} lack the columns {} - skipped", record.getFile(), recorded, missing);
+            }
+            replayColumns.put(recorded, missing.isEmpty() ? indexes : null);
+        }
+        int[] columns = replayColumns.get(recorded);
+        if (columns == null) return null;
+        String[] cells = new String[header.length];
+        for (int i = 0; i < header.length; i++) {
+            cells[i] = columns[i] >= 0 && columns[i] < record.getCells().length ? record.getCells()[columns[i]] : null;
+        }
+        return cells;
+    }
+
+    private static int partition(String key, int partitions) {
+        int hash = key.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), partitions);
     }
 
     private CompletableFuture<Void> asyncWrite(int id,
+                                               String generatorKey,
                                                String filename,
                                                Generator gen,
-                                               TypeDBSession session,
-                                               LinkedBlockingQueue<Either<List<List<String[]>>, AsyncLoaderWorker.Done>> queue) {
+                                               BatchRingBuffer ring,
+                                               CommitWatermark watermark,
+                                               FingerprintStore fingerprints,
+                                               FileMetrics metrics) {
         return CompletableFuture.runAsync(() -> {
             Util.debug("async-writer-{} (start): {}", id, filename);
-            Either<List<List<String[]>>, Done> queueItem;
+            BatchRingBuffer.Batch batch;
             try {
-                while ((queueItem = queue.take()).isFirst() && !hasError.get()) {
-                    List<List<String[]>> rowGroups = queueItem.first();
-                    for (List<String[]> rows : rowGroups) {
-                        try (TypeDBTransaction tx = session.transaction(TypeDBTransaction.Type.WRITE)) {
-                            rows.forEach(csv -> {
-                                Util.debug("async-writer-{}: {}", id, csv);
-                                gen.write(tx, csv, loadOptions.multiInsert);
-                            });
-                            tx.commit();
-                        }
+                while (!hasError.get() && (batch = ring.take()) != null) {
+                    metrics.record(Stage.QUEUE_WAIT, System.nanoTime() - batch.publishedNanos());
+                    gate.acquire();
+                    RowContext.bind(gen.getHeader(), batch.rows(), batch.lines(), fingerprints != null ? fingerprints::failed : null);
+                    MetricsRegistry.bind(metrics);
+                    try {
+                        batchWriter.write(id, filename, gen, batch.rows(), metrics);
+                        watermark.committed(batch.lines(), batch.rows().size(), batch.endOffset());
+                    } finally {
+                        RowContext.clear();
+                        MetricsRegistry.clear();
+                        gate.release();
+                        ring.release(batch);
+                    }
+                    long due = nextCheckpointMillis.get();
+                    if (System.currentTimeMillis() >= due && nextCheckpointMillis.compareAndSet(due, System.currentTimeMillis() + CHECKPOINT_INTERVAL_MILLIS)) {
+                        saveCheckpoint(generatorKey, filename, watermark, false);
                     }
                 }
-                assert queueItem.isSecond() || hasError.get();
-                if (queueItem.isSecond()) queue.put(queueItem);
             } catch (Throwable e) {
                 hasError.set(true);
+                ring.abort();
                 Util.error("async-writer-" + id + ": " + e.getMessage());
                 throw new RuntimeException(e);
             } finally {
@@ -400,7 +992,15 @@ public class AsyncLoaderWorker {
         }, executor);
     }
 
-    private static class Done {
-        private static final Done INSTANCE = new Done();
+    private void saveCheckpoint(String generatorKey, String filename, CommitWatermark watermark, boolean completed) {
+        if (checkpoint == null) return;
+        CommitWatermark.Snapshot snapshot = watermark.snapshot();
+        checkpoint.update(generatorKey, filename, snapshot.getCommittedLine() - 1, snapshot.getCommittedOffset(),
+                snapshot.getCommittedRanges(), completed);
+        try {
+            checkpoint.save();
+        } catch (IOException ioException) {
+            Util.warn("could not save checkpoint <{}>: {}", checkpoint.getPath(), ioException.getMessage());
+        }
     }
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vaticle.typedb.osi.loader.loader;
+
+import java.util.Map;
+
+/**
+ * Live state of a load, and control over its writers - for JMX clients such as JConsole or VisualVM.
+ */
+public interface AsyncLoaderWorkerMXBean {
+
+    String getCurrentGenerator();
+
+    String getCurrentFile();
+
+    /**
+     * Rows per commit of the current generator.
+     */
+    int getBatchSize();
+
+    /**
+     * Rows inserted by the whole run.
+     */
+    long getRowsInserted();
+
+    long getCurrentFileRowsInserted();
+
+    /**
+     * Average rate of the current file.
+     */
+    double getRowsPerSecond();
+
+    /**
+     * Batches read and waiting for a writer.
+     */
+    int getQueueDepth();
+
+    int getQueueCapacity();
+
+    /**
+     * Writers in a transaction.
+     */
+    int getActiveWriters();
+
+    /**
+     * Rows logged by the whole run, per category of the error logs.
+     */
+    Map<String, Long> getRowsLogged();
+
+    /**
+     * Maximum number of writers in a transaction at the same time.
+     */
+    int getConcurrency();
+
+    /**
+     * Between 1 and the parallelisation of the configuration.
+     */
+    void setConcurrency(int concurrency);
+
+    boolean isPaused();
+
+    /**
+     * Writers finish their transactions, and start no new ones until resumed.
+     */
+    void pause();
+
+    void resume();
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.vaticle.typedb.osi.loader.loader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free hand-off of row batches from a single reader to any number of writers, over a fixed ring of pre-allocated,
+ * reusable batches (after D. Vyukov's bounded MPMC queue). Every slot carries a sequence number telling whether it is
+ * free for the reader (sequence == position), published for the writers (sequence == position + 1), or still being
+ * written by a writer that took it in an earlier lap.
+ * <p>
+ * Reader: {@link #claim()}, fill the batch with {@link Batch#add(String[], long)}, {@link #publish(Batch)}; finally
+ * {@link #close()}.
+ * Writers: {@link #take()}, process, {@link #release(Batch)} - until take() returns null at the end of the stream.
+ * <p>
+ * Rings fed by the same reader (one per writer, for partitioned dispatch) share their abort flag: aborting one stops
+ * them all, so that the reader cannot stay blocked on a full ring whose writer has stopped.
+ */
+public class BatchRingBuffer {
+
+    private static final int SPINS_BEFORE_YIELD = 100;
+    private static final int SPINS_BEFORE_PARK = 1_000;
+    private static final long PARK_NANOS = 10_000;
+    private static final int PARKS_BEFORE_BACKOFF = 1_000;
+    private static final long MAX_PARK_NANOS = 1_000_000;
+
+    private final Batch[] batches;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    private volatile long tail;
+    private volatile boolean closed;
+    private final AtomicBoolean aborted;
+
+    public BatchRingBuffer(int capacity, int batchSize) {
+        this(capacity, batchSize, new AtomicBoolean());
+    }
+
+    /**
+     * @param aborted shared by the rings aborted together
+     */
+    public BatchRingBuffer(int capacity, int batchSize, AtomicBoolean aborted) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.batches = new Batch[size];
+        this.sequences = new AtomicLongArray(size);
+        this.mask = size - 1;
+        this.aborted = aborted;
+        for (int i = 0; i < size; i++) {
+            batches[i] = new Batch(batchSize);
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Reader only: waits for the next slot to be released and returns its (emptied) batch, or null if aborted.
+     */
+    public Batch claim() {
+        long position = tail;
+        int index = (int) (position & mask);
+        int spins = 0;
+        while (sequences.get(index) != position) {
+            if (aborted.get()) return null;
+            spins = idle(spins);
+        }
+        Batch batch = batches[index];
+        batch.position = position;
+        batch.rows.clear();
+        return batch;
+    }
+
+    /**
+     * Reader only: hands the claimed batch over to the writers.
+     */
+    public void publish(Batch batch) {
+        batch.publishedNanos = System.nanoTime();
+        sequences.set((int) (batch.position & mask), batch.position + 1);
+        tail = batch.position + 1;
+    }
+
+    /**
+     * Reader only: signals that no more batches will be published.
+     */
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * Signals that writers and reader should stop - pending batches are dropped, on every ring sharing the abort flag.
+     */
+    public void abort() {
+        aborted.set(true);
+    }
+
+    /**
+     * Waits for the next published batch; returns null once the buffer is closed and drained, or aborted.
+     */
+    public Batch take() {
+        int spins = 0;
+        while (!aborted.get()) {
+            long position = head.get();
+            int index = (int) (position & mask);
+            long sequence = sequences.get(index);
+            if (sequence == position + 1) {
+                if (head.compareAndSet(position, position + 1)) {
+                    Batch batch = batches[index];
+                    batch.position = position;
+                    return batch;
+                }
+            } else if (sequence <= position) {
+                // nothing published at this position (yet)
+                if (closed && position >= tail) return null;
+                spins = idle(spins);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Writers only: returns a taken batch to the reader.
+     */
+    public void release(Batch batch) {
+        sequences.set((int) (batch.position & mask), batch.position + batches.length);
+    }
+
+    /**
+     * Number of published batches not yet taken by a writer.
+     */
+    public int size() {
+        return (int) Math.max(0, tail - head.get());
+    }
+
+    public int capacity() {
+        return batches.length;
+    }
+
+    // busy-spin briefly, then yield, then park - longer once idle for a while (e.g. writers of a followed file waiting
+    // for rows to be appended): hand-offs are fast while either side keeps up, and cheap when not
+    private static int idle(int spins) {
+        if (spins < SPINS_BEFORE_YIELD) {
+            Thread.onSpinWait();
+            return spins + 1;
+        } else if (spins < SPINS_BEFORE_PARK) {
+            Thread.yield();
+            return spins + 1;
+        } else {
+            if (spins < SPINS_BEFORE_PARK + PARKS_BEFORE_BACKOFF) {
+                LockSupport.parkNanos(PARK_NANOS);
+                return spins + 1;
+            }
+            LockSupport.parkNanos(MAX_PARK_NANOS);
+            return spins;
+        }
+    }
+
+    public static class Batch {
+        private final ArrayList<String[]> rows;
+        private long[] lines;
+        private long firstOffset;
+        private long endOffset;
+        private long position;
+        private long publishedNanos;
+
+        private Batch(int batchSize) {
+            this.rows = new ArrayList<>(batchSize);
+            this.lines = new long[batchSize];
+        }
+
+        public void add(String[] row, long line) {
+            add(row, line, -1, -1);
+        }
+
+        /**
+         * @param offset byte offset of the row in its file
+         * @param endOffset byte offset of the line after it
+         */
+        public void add(String[] row, long line, long offset, long endOffset) {
+            if (rows.size() == lines.length) lines = Arrays.copyOf(lines, Math.max(1, lines.length * 2));
+            if (rows.isEmpty()) firstOffset = offset;
+            lines[rows.size()] = line;
+            rows.add(row);
+            this.endOffset = endOffset;
+        }
+
+        public List<String[]> rows() {
+            return rows;
+        }
+
+        /**
+         * Line of each row in its source file, at the same index as in {@link #rows()}.
+         */
+        public long[] lines() {
+            return lines;
+        }
+
+        public long firstOffset() {
+            return firstOffset;
+        }
+
+        public long endOffset() {
+            return endOffset;
+        }
+
+        /**
+         * When the batch was published (from {@link System#nanoTime()}).
+         */
+        public long publishedNanos() {
+            return publishedNanos;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.vaticle.typedb.osi.loader.loader;
+
+import com.vaticle.typedb.client.api.TypeDBSession;
+import com.vaticle.typedb.client.api.TypeDBTransaction;
+import com.vaticle.typedb.client.common.exception.TypeDBClientException;
+import com.vaticle.typedb.osi.loader.generator.Generator;
+import com.vaticle.typedb.osi.loader.io.FileLogger;
+import com.vaticle.typedb.osi.loader.metrics.FileMetrics;
+import com.vaticle.typedb.osi.loader.metrics.Stage;
+import com.vaticle.typedb.osi.loader.metrics.StageTimer;
+import com.vaticle.typedb.osi.loader.util.TypeDBUtil;
+import com.vaticle.typedb.osi.loader.util.Util;
+import org.apache.commons.io.FilenameUtils;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Writes batches of rows, one transaction each, through the data session shared by all writers. The session is opened
+ * by the supplier, and opened again once it is closed - as it is when the server restarts - so that a load outlives a
+ * server restart as long as the server is back within the retries.
+ */
+public class BatchWriter implements AutoCloseable {
+
+    private static final long MAX_BACKOFF_MILLIS = 10_000;
+
+    private final Supplier<TypeDBSession> sessions;
+    private final int maxRetries;
+    private final boolean multiInsert;
+    private final long baseBackoffMillis;
+    private TypeDBSession session;
+
+    public BatchWriter(Supplier<TypeDBSession> sessions, int maxRetries, boolean multiInsert, long baseBackoffMillis) {
+        this.sessions = sessions;
+        this.maxRetries = maxRetries;
+        this.multiInsert = multiInsert;
+        this.baseBackoffMillis = baseBackoffMillis;
+        this.session = sessions.get();
+    }
+
+    /**
+     * The data session, reopened if it was closed. Throws if it cannot be reopened, leaving it closed - the next call
+     * tries again.
+     */
+    public synchronized TypeDBSession session() {
+        if (!session.isOpen()) {
+            session = sessions.get();
+            Util.info("data session reopened");
+        }
+        return session;
+    }
+
+    /**
+     * Writes and commits the rows in one transaction. A batch failing with a transient TypeDBClientException (conflict,
+     * timeout, server unavailable or restarted) is retried with exponential backoff; if it still fails, or fails with
+     * any other error, it is split in half until the failing rows are isolated and written to the unavailable log - so
+     * that neither a brief server outage nor a single bad row costs the whole batch, and bad rows cost no backoff.
+     * Batches still failing because the session cannot be reopened are not split: the error is thrown. Rows the
+     * generator logs are only logged once the transaction commits.
+     */
+    public void write(int id, String filename, Generator gen, List<String[]> rows, FileMetrics metrics)
+            throws InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            FileLogger.deferLogs();
+            TypeDBSession current = null;
+            try {
+                current = session();
+                try (TypeDBTransaction tx = current.transaction(TypeDBTransaction.Type.WRITE)) {
+                    rows.forEach(csv -> Util.debug("async-writer-{}: {}", id, csv));
+                    StageTimer timer = StageTimer.reset();
+                    long start = System.nanoTime();
+                    gen.write(tx, rows, multiInsert);
+                    long written = System.nanoTime();
+                    tx.commit();
+                    long committed = System.nanoTime();
+                    FileLogger.emitDeferredLogs();
+                    recordStages(metrics, timer, written - start, committed - written);
+                    metrics.committed(rows.size(), timer.getFailedRows());
+                    return;
+                }
+            } catch (TypeDBClientException typeDBClientException) {
+                FileLogger.discardDeferredLogs();
+                // the session closes with the connection to the server: the batch is retried once it is reopened
+                boolean sessionClosed = current == null || !current.isOpen();
+                boolean transientError = sessionClosed || TypeDBUtil.isTransient(typeDBClientException);
+                if (transientError && attempt < maxRetries) {
+                    metrics.retried();
+                    long backoff = backoffMillis(attempt);
+                    Util.warn("async-writer-{}: batch of {} rows failed (attempt {}/{}), retrying in {} ms: {}",
+                            id, rows.size(), attempt + 1, maxRetries + 1, backoff, typeDBClientException.getMessage());
+                    Thread.sleep(backoff);
+                } else if (sessionClosed) {
+                    throw typeDBClientException;
+                } else if (rows.size() > 1) {
+                    Util.warn("async-writer-{}: batch of {} rows failed {} times, splitting it in half: {}",
+                            id, rows.size(), attempt + 1, typeDBClientException.getMessage());
+                    int half = rows.size() / 2;
+                    write(id, filename, gen, rows.subList(0, half), metrics);
+                    write(id, filename, gen, rows.subList(half, rows.size()), metrics);
+                    return;
+                } else {
+                    FileLogger.getLogger().logUnavailable(filename, rows.get(0), gen.getFileSeparator());
+                    Util.error("async-writer-{}: row in <{}> not inserted after {} attempts - written to <{}_unavailable.log>: {}",
+                            id, filename, attempt + 1, FilenameUtils.removeExtension(FilenameUtils.getName(filename)), typeDBClientException.getMessage());
+                    return;
+                }
+            } finally {
+                FileLogger.discardDeferredLogs();
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        session.close();
+    }
+
+    // what the generator's write did not spend matching or inserting, it spent building queries
+    private static void recordStages(FileMetrics metrics, StageTimer timer, long writeNanos, long commitNanos) {
+        long matchNanos = timer.getNanos(Stage.MATCH);
+        long insertNanos = timer.getNanos(Stage.INSERT);
+        metrics.record(Stage.BUILD, Math.max(0, writeNanos - matchNanos - insertNanos));
+        if (matchNanos > 0) metrics.record(Stage.MATCH, matchNanos);
+        if (insertNanos > 0) metrics.record(Stage.INSERT, insertNanos);
+        metrics.record(Stage.COMMIT, commitNanos);
+    }
+
+    // exponential backoff with "equal jitter": between half and all of min(cap, base * 2^attempt)
+    private long backoffMillis(int attempt) {
+        long backoff = Math.min(MAX_BACKOFF_MILLIS, baseBackoffMillis << Math.min(attempt, 20));
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+}
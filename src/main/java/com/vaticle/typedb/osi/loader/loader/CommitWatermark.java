@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.vaticle.typedb.osi.loader.loader;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The last line of a file up to which every row is committed, while writers commit batches out of order - and the byte
+ * offset at which the line after it starts. A batch is identified by its first line: as the reader starts a batch only
+ * when it reads its first row, every line before the first line of the oldest batch still in flight belongs to a
+ * committed batch.
+ * <p>
+ * The lines of batches committed after that line are kept as ranges, so that a resumed load skips them rather than
+ * inserting them again.
+ */
+public class CommitWatermark {
+
+    // first line -> its offset, of every batch in flight
+    private final TreeMap<Long, Long> inFlight = new TreeMap<>();
+    // first line -> last line, of the ranges of committed lines, merged where adjacent
+    private final TreeMap<Long, Long> committedRanges = new TreeMap<>();
+    private long lastCommittedLine;
+    private long lastCommittedEndOffset;
+
+    /**
+     * @param committedLine the line up to which the file is already committed (1 for just the header)
+     * @param committedOffset the offset of the line after it
+     */
+    public CommitWatermark(long committedLine, long committedOffset) {
+        this(committedLine, committedOffset, new long[0][]);
+    }
+
+    /**
+     * @param committedRanges first and last line of the ranges committed after committedLine, by the load resumed
+     */
+    public CommitWatermark(long committedLine, long committedOffset, long[][] committedRanges) {
+        this.lastCommittedLine = committedLine;
+        this.lastCommittedEndOffset = committedOffset;
+        for (long[] range : committedRanges) add(range[0], range[1]);
+    }
+
+    /**
+     * Reader: a batch has been started with the row at firstLine, starting at firstOffset.
+     */
+    public synchronized void dispatched(long firstLine, long firstOffset) {
+        inFlight.put(firstLine, firstOffset);
+    }
+
+    /**
+     * Writer: the batch of the rows at the consecutive lines from firstLine to lastLine, ending right before endOffset,
+     * is committed.
+     */
+    public void committed(long firstLine, long lastLine, long endOffset) {
+        committed(new long[]{firstLine, lastLine}, 2, endOffset, true);
+    }
+
+    /**
+     * Writer: the batch of the rows at the given lines (in increasing order), ending right before endOffset, is
+     * committed.
+     */
+    public void committed(long[] lines, int rows, long endOffset) {
+        committed(lines, rows, endOffset, false);
+    }
+
+    private synchronized void committed(long[] lines, int rows, long endOffset, boolean range) {
+        inFlight.remove(lines[0]);
+        long lastLine = lines[rows - 1];
+        if (lastLine > lastCommittedLine) {
+            lastCommittedLine = lastLine;
+            lastCommittedEndOffset = endOffset;
+        }
+        long watermark = committedLine();
+        if (lastLine <= watermark) {
+            prune(watermark);
+            return;
+        }
+        if (range) {
+            add(lines[0], lastLine);
+        } else {
+            // a batch of partitioned dispatch holds every n-th line or so: runs of consecutive lines become ranges
+            long first = lines[0];
+            for (int i = 1; i <= rows; i++) {
+                if (i == rows || lines[i] != lines[i - 1] + 1) {
+                    if (lines[i - 1] > watermark) add(Math.max(first, watermark + 1), lines[i - 1]);
+                    if (i < rows) first = lines[i];
+                }
+            }
+        }
+        prune(watermark);
+    }
+
+    /**
+     * The committed line and the offset of the line after it, read together - as a writer may commit in between - with
+     * the ranges of lines committed after it.
+     */
+    public synchronized Snapshot snapshot() {
+        long line = committedLine();
+        long offset = inFlight.isEmpty() ? lastCommittedEndOffset : inFlight.firstEntry().getValue();
+        prune(line);
+        long[][] ranges = new long[committedRanges.size()][];
+        int i = 0;
+        for (Map.Entry<Long, Long> range : committedRanges.entrySet()) {
+            ranges[i++] = new long[]{Math.max(range.getKey(), line + 1), range.getValue()};
+        }
+        return new Snapshot(line, offset, ranges);
+    }
+
+    private long committedLine() {
+        return inFlight.isEmpty() ? lastCommittedLine : inFlight.firstKey() - 1;
+    }
+
+    private void add(long first, long last) {
+        Map.Entry<Long, Long> before = committedRanges.floorEntry(first);
+        if (before != null && before.getValue() >= first - 1) {
+            first = before.getKey();
+            last = Math.max(last, before.getValue());
+        }
+        Map.Entry<Long, Long> after;
+        while ((after = committedRanges.ceilingEntry(first)) != null && after.getKey() <= last + 1) {
+            last = Math.max(last, after.getValue());
+            committedRanges.remove(after.getKey());
+        }
+        committedRanges.put(first, last);
+    }
+
+    // the ranges up to the watermark are covered by it
+    private void prune(long watermark) {
+        Map.Entry<Long, Long> first;
+        while ((first = committedRanges.firstEntry()) != null && first.getValue() <= watermark) {
+            committedRanges.remove(first.getKey());
+        }
+    }
+
+    public static class Snapshot {
+        private final long committedLine;
+        private final long committedOffset;
+        private final long[][] committedRanges;
+
+        private Snapshot(long committedLine, long committedOffset, long[][] committedRanges) {
+            this.committedLine = committedLine;
+            this.committedOffset = committedOffset;
+            this.committedRanges = committedRanges;
+        }
+
+        public long getCommittedLine() {
+            return committedLine;
+        }
+
+        /**
+         * Offset of the line after {@link #getCommittedLine()}.
+         */
+        public long getCommittedOffset() {
+            return committedOffset;
+        }
+
+        /**
+         * First and last line of every range of lines committed after {@link #getCommittedLine()}.
+         */
+        public long[][] getCommittedRanges() {
+            return committedRanges;
+        }
+    }
+}
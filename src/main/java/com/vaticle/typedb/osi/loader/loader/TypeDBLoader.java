@@ -23,9 +23,15 @@ import com.vaticle.typedb.common.concurrent.NamedThreadFactory;
 import com.vaticle.typedb.osi.loader.cli.LoadOptions;
 import com.vaticle.typedb.osi.loader.config.Configuration;
 import com.vaticle.typedb.osi.loader.config.ConfigurationValidation;
+import com.vaticle.typedb.osi.loader.io.FileLogger;
+import com.vaticle.typedb.osi.loader.io.ReplaySource;
+import com.vaticle.typedb.osi.loader.metrics.MetricsRegistry;
+import com.vaticle.typedb.osi.loader.metrics.RunReport;
 import com.vaticle.typedb.osi.loader.util.TypeDBUtil;
 import com.vaticle.typedb.osi.loader.util.Util;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -41,6 +47,19 @@ public class TypeDBLoader {
     }
 
     public void load() {
+        if (options.resume && options.cleanMigration) {
+            Util.error("a clean migration cannot be resumed - remove either --resume or --cleanMigration");
+            System.exit(1);
+        }
+        if (options.replayFile != null) {
+            // read before validating: replayed files are validated against the headers their rows were recorded with
+            try {
+                ReplaySource.load(options.replayFile);
+            } catch (IOException ioException) {
+                Util.error("cannot read the rows to replay from <{}>: {}", options.replayFile, ioException.getMessage());
+                System.exit(1);
+            }
+        }
         Util.info("validating your config...");
         TypeDBClient schemaClient = TypeDBUtil.getClient(options.typedbURI);
         ConfigurationValidation cv = new ConfigurationValidation(dc);
@@ -84,10 +103,20 @@ public class TypeDBLoader {
         try {
             AsyncLoaderWorker asyncLoaderWorker = null;
             try (TypeDBClient client = TypeDB.coreClient(options.typedbURI, Runtime.getRuntime().availableProcessors())) {
+                asyncLoaderWorker = new AsyncLoaderWorker(dc, options);
+                AsyncLoaderWorker worker = asyncLoaderWorker;
                 Runtime.getRuntime().addShutdownHook(
-                        NamedThreadFactory.create(AsyncLoaderWorker.class, "shutdown").newThread(client::close)
+                        NamedThreadFactory.create(AsyncLoaderWorker.class, "shutdown").newThread(() -> {
+                            // a followed file is read until the loader is stopped: let the rows read be committed first
+                            try {
+                                worker.stopFollowing();
+                            } catch (InterruptedException interruptedException) {
+                                Thread.currentThread().interrupt();
+                            }
+                            FileLogger.flushLogs();
+                            client.close();
+                        })
                 );
-                asyncLoaderWorker = new AsyncLoaderWorker(dc, options);
                 asyncLoaderWorker.run(client);
             } finally {
                 if (asyncLoaderWorker != null) asyncLoaderWorker.close();
@@ -96,7 +125,16 @@ public class TypeDBLoader {
             Util.error(e.getMessage(), e);
             Util.error("TERMINATED WITH ERROR");
         } finally {
+            FileLogger.flushLogs();
+            MetricsRegistry.getRegistry().stopReporting();
+            MetricsRegistry.getRegistry().logReport();
             Instant end = Instant.now();
+            try {
+                Path report = RunReport.write(MetricsRegistry.getRegistry(), FileLogger.directory(), options.databaseName, start, end);
+                Util.info("metrics report written to <{}>", report);
+            } catch (IOException ioException) {
+                Util.warn("could not write the metrics report: {}", ioException.getMessage());
+            }
             Util.info("TypeDB Loader finished in: {}", Util.printDuration(start, end));
         }
     }
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vaticle.typedb.osi.loader.loader;
+
+/**
+ * Admits writers to their transactions: at most as many at a time as the current limit, and none while paused.
+ * Transactions already admitted are not interrupted by a pause or a lower limit.
+ */
+public class WriterGate {
+
+    private final int maxLimit;
+    private int limit;
+    private int active;
+    private boolean paused;
+
+    public WriterGate(int maxLimit) {
+        this.maxLimit = maxLimit;
+        this.limit = maxLimit;
+    }
+
+    public synchronized void acquire() throws InterruptedException {
+        while (paused || active >= limit) wait();
+        active++;
+    }
+
+    public synchronized void release() {
+        active--;
+        notifyAll();
+    }
+
+    public synchronized void pause() {
+        paused = true;
+    }
+
+    public synchronized void resume() {
+        paused = false;
+        notifyAll();
+    }
+
+    public synchronized boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Sets the limit, between 1 and the maximum (the number of writers); returns the limit set.
+     */
+    public synchronized int setLimit(int limit) {
+        this.limit = Math.max(1, Math.min(maxLimit, limit));
+        notifyAll();
+        return this.limit;
+    }
+
+    public synchronized int getLimit() {
+        return limit;
+    }
+
+    public synchronized int getActive() {
+        return active;
+    }
+}
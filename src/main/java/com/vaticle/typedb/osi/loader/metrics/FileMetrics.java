@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vaticle.typedb.osi.loader.metrics;
+
+import com.vaticle.typedb.osi.loader.io.ErrorRecord;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and stage latencies (in nanoseconds) of the rows of one data file loaded by a generator.
+ */
+public class FileMetrics {
+
+    private final GeneratorMetrics generator;
+    private final String file;
+    private final LongAdder rowsRead = new LongAdder();
+    private final LongAdder rowsSkipped = new LongAdder();
+    private final LongAdder rowsInserted = new LongAdder();
+    private final LongAdder rowsCommitted = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final Map<ErrorRecord.Reason, LongAdder> rowsLogged = new EnumMap<>(ErrorRecord.Reason.class);
+    private final Map<Stage, Histogram> stages = new EnumMap<>(Stage.class);
+    private volatile int batchSize;
+    private volatile int writers;
+    private volatile long startMillis;
+    private volatile long endMillis;
+
+    FileMetrics(GeneratorMetrics generator, String file) {
+        this.generator = generator;
+        this.file = file;
+        for (ErrorRecord.Reason reason : ErrorRecord.Reason.values()) rowsLogged.put(reason, new LongAdder());
+        for (Stage stage : Stage.values()) stages.put(stage, new Histogram());
+    }
+
+    public GeneratorMetrics getGenerator() {
+        return generator;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    /**
+     * @param batchSize rows per transaction configured for the file
+     * @param writers writer threads loading it
+     */
+    public void started(int batchSize, int writers) {
+        this.batchSize = batchSize;
+        this.writers = writers;
+        startMillis = System.currentTimeMillis();
+        endMillis = 0;
+    }
+
+    public void finished() {
+        endMillis = System.currentTimeMillis();
+    }
+
+    public void read() {
+        rowsRead.increment();
+    }
+
+    /**
+     * A row read but not loaded, as it was loaded before (delta mode, or by the load resumed).
+     */
+    public void skipped() {
+        rowsSkipped.increment();
+    }
+
+    /**
+     * @param rows rows of the committed transaction
+     * @param failedRows rows of it logged as not loaded
+     */
+    public void committed(int rows, int failedRows) {
+        batches.increment();
+        rowsCommitted.add(rows);
+        rowsInserted.add(rows - failedRows);
+    }
+
+    /**
+     * Records a latency of the stage for the file and for its generator.
+     */
+    public void record(Stage stage, long nanos) {
+        stages.get(stage).record(nanos);
+        generator.stage(stage).record(nanos);
+    }
+
+    public Histogram stage(Stage stage) {
+        return stages.get(stage);
+    }
+
+    public void retried() {
+        retries.increment();
+    }
+
+    void logged(ErrorRecord.Reason reason, int rows) {
+        rowsLogged.get(reason).add(rows);
+    }
+
+    public long getRowsRead() {
+        return rowsRead.sum();
+    }
+
+    public long getRowsSkipped() {
+        return rowsSkipped.sum();
+    }
+
+    public long getRowsInserted() {
+        return rowsInserted.sum();
+    }
+
+    /**
+     * Rows of the committed transactions, loaded or not.
+     */
+    public long getRowsCommitted() {
+        return rowsCommitted.sum();
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    public long getRetries() {
+        return retries.sum();
+    }
+
+    /**
+     * Rows logged for the reason - not loaded, or loaded with a warning (see {@link ErrorRecord.Reason#isReplayable()}).
+     */
+    public long getRowsLogged(ErrorRecord.Reason reason) {
+        return rowsLogged.get(reason).sum();
+    }
+
+    /**
+     * Rows not loaded because of an error.
+     */
+    public long getRowsFailed() {
+        long failed = 0;
+        for (Map.Entry<ErrorRecord.Reason, LongAdder> logged : rowsLogged.entrySet()) {
+            if (logged.getKey().isReplayable()) failed += logged.getValue().sum();
+        }
+        return failed;
+    }
+
+    /**
+     * Milliseconds spent loading the file so far (0 if it has not been started).
+     */
+    public long getElapsedMillis() {
+        long start = startMillis;
+        if (start == 0) return 0;
+        long end = endMillis;
+        return (end != 0 ? end : System.currentTimeMillis()) - start;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getWriters() {
+        return writers;
+    }
+
+    public boolean isFinished() {
+        return endMillis != 0;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vaticle.typedb.osi.loader.metrics;
+
+import com.vaticle.typedb.osi.loader.io.ErrorRecord;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Metrics of a generator: latency histograms per stage (in nanoseconds), and counters per data file.
+ */
+public class GeneratorMetrics {
+
+    private final String generatorKey;
+    private final Map<Stage, Histogram> stages = new EnumMap<>(Stage.class);
+    private final Map<String, FileMetrics> files = new LinkedHashMap<>();
+
+    GeneratorMetrics(String generatorKey) {
+        this.generatorKey = generatorKey;
+        for (Stage stage : Stage.values()) stages.put(stage, new Histogram());
+    }
+
+    public String getGeneratorKey() {
+        return generatorKey;
+    }
+
+    public Histogram stage(Stage stage) {
+        return stages.get(stage);
+    }
+
+    public synchronized FileMetrics file(String file) {
+        return files.computeIfAbsent(file, f -> new FileMetrics(this, f));
+    }
+
+    public synchronized List<FileMetrics> getFiles() {
+        return new ArrayList<>(files.values());
+    }
+
+    public long getRowsRead() {
+        return sum(FileMetrics::getRowsRead);
+    }
+
+    public long getRowsSkipped() {
+        return sum(FileMetrics::getRowsSkipped);
+    }
+
+    public long getRowsInserted() {
+        return sum(FileMetrics::getRowsInserted);
+    }
+
+    public long getRowsFailed() {
+        return sum(FileMetrics::getRowsFailed);
+    }
+
+    public long getRowsLogged(ErrorRecord.Reason reason) {
+        return sum(file -> file.getRowsLogged(reason));
+    }
+
+    public long getRowsCommitted() {
+        return sum(FileMetrics::getRowsCommitted);
+    }
+
+    public long getBatches() {
+        return sum(FileMetrics::getBatches);
+    }
+
+    public long getRetries() {
+        return sum(FileMetrics::getRetries);
+    }
+
+    public long getElapsedMillis() {
+        return sum(FileMetrics::getElapsedMillis);
+    }
+
+    private long sum(ToLongFunction<FileMetrics> counter) {
+        long sum = 0;
+        for (FileMetrics file : getFiles()) sum += counter.applyAsLong(file);
+        return sum;
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vaticle.typedb.osi.loader.metrics;
+
+import com.vaticle.typedb.osi.loader.io.ErrorRecord;
+import com.vaticle.typedb.osi.loader.util.Util;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The metrics of the run, per generator - logged as a summary periodically and as a report at the end.
+ * <p>
+ * Writer threads bind the file they are loading, so that rows logged by the {@link com.vaticle.typedb.osi.loader.io.FileLogger}
+ * are counted for it.
+ */
+public class MetricsRegistry {
+
+    private static final MetricsRegistry registry = new MetricsRegistry();
+    private static final ThreadLocal<FileMetrics> bound = new ThreadLocal<>();
+    private static final DecimalFormat countFormat = new DecimalFormat("#,###");
+    private static final DecimalFormat decimalFormat = new DecimalFormat("#,##0.00");
+
+    private final Map<String, GeneratorMetrics> generators = new LinkedHashMap<>();
+    // rows read and inserted by each generator at the last summary
+    private final Map<GeneratorMetrics, long[]> lastCounts = new HashMap<>();
+    private ScheduledExecutorService reporter;
+    private long lastSummaryMillis;
+
+    private MetricsRegistry() {
+    }
+
+    public static MetricsRegistry getRegistry() {
+        return registry;
+    }
+
+    public synchronized GeneratorMetrics generator(String generatorKey) {
+        return generators.computeIfAbsent(generatorKey, GeneratorMetrics::new);
+    }
+
+    public synchronized List<GeneratorMetrics> getGenerators() {
+        return new ArrayList<>(generators.values());
+    }
+
+    public static void bind(FileMetrics file) {
+        bound.set(file);
+    }
+
+    public static void clear() {
+        bound.remove();
+    }
+
+    /**
+     * Counts rows logged by the current thread for the file it has bound.
+     */
+    public static void logged(ErrorRecord.Reason reason, int rows) {
+        FileMetrics file = bound.get();
+        if (file != null) file.logged(reason, rows);
+        if (reason.isReplayable()) StageTimer.failed(rows);
+    }
+
+    /**
+     * Logs a summary of the generators that have made progress every interval, until {@link #stopReporting()}.
+     */
+    public synchronized void startReporting(long intervalSeconds) {
+        if (reporter != null || intervalSeconds <= 0) return;
+        lastSummaryMillis = System.currentTimeMillis();
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(this::logSummary, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stopReporting() {
+        if (reporter != null) reporter.shutdownNow();
+        reporter = null;
+    }
+
+    synchronized void logSummary() {
+        long now = System.currentTimeMillis();
+        double seconds = Math.max(1, now - lastSummaryMillis) / 1000.0;
+        lastSummaryMillis = now;
+        for (GeneratorMetrics generator : generators.values()) {
+            long read = generator.getRowsRead();
+            long inserted = generator.getRowsInserted();
+            long[] last = lastCounts.put(generator, new long[]{read, inserted});
+            if (last == null ? read == 0 : last[0] == read && last[1] == inserted) continue;
+            long before = last != null ? last[1] : 0;
+            Histogram commit = generator.stage(Stage.COMMIT);
+            Histogram queueWait = generator.stage(Stage.QUEUE_WAIT);
+            Util.info("metrics: {}: {} rows inserted ({}/s), {} failed, {} skipped - commit p50/p99: {}/{} ms, queue wait p50/p99: {}/{} ms",
+                    generator.getGeneratorKey(), countFormat.format(inserted), decimalFormat.format((inserted - before) / seconds),
+                    countFormat.format(generator.getRowsFailed()), countFormat.format(generator.getRowsSkipped()),
+                    millis(commit.percentile(50)), millis(commit.percentile(99)),
+                    millis(queueWait.percentile(50)), millis(queueWait.percentile(99)));
+        }
+    }
+
+    /**
+     * Logs the counters and the latencies of every stage of every generator.
+     */
+    public synchronized void logReport() {
+        for (GeneratorMetrics generator : generators.values()) {
+            long elapsedMillis = generator.getElapsedMillis();
+            Util.info("metrics report: {}: {} rows read, {} inserted, {} skipped, {} failed, rows logged: {}, {} batches, {} retries, {}/s",
+                    generator.getGeneratorKey(), countFormat.format(generator.getRowsRead()),
+                    countFormat.format(generator.getRowsInserted()), countFormat.format(generator.getRowsSkipped()),
+                    countFormat.format(generator.getRowsFailed()), failures(generator),
+                    countFormat.format(generator.getBatches()), countFormat.format(generator.getRetries()),
+                    decimalFormat.format(elapsedMillis > 0 ? generator.getRowsInserted() * 1000.0 / elapsedMillis : 0));
+            for (Stage stage : Stage.values()) {
+                Histogram histogram = generator.stage(stage);
+                if (histogram.getCount() == 0) continue;
+                Util.info("metrics report: {} - {}: {} timed, mean {} ms, p50 {} ms, p90 {} ms, p99 {} ms, max {} ms, total {} s",
+                        generator.getGeneratorKey(), stage.getLabel(), countFormat.format(histogram.getCount()),
+                        millis((long) histogram.getMean()), millis(histogram.percentile(50)), millis(histogram.percentile(90)),
+                        millis(histogram.percentile(99)), millis(histogram.getMax()), decimalFormat.format(histogram.getSum() / 1e9));
+            }
+        }
+    }
+
+    private static String failures(GeneratorMetrics generator) {
+        StringBuilder failures = new StringBuilder();
+        for (ErrorRecord.Reason reason : ErrorRecord.Reason.values()) {
+            long rows = generator.getRowsLogged(reason);
+            if (rows == 0) continue;
+            if (failures.length() > 0) failures.append(", ");
+            failures.append(reason.name().toLowerCase()).append(": ").append(countFormat.format(rows));
+        }
+        return failures.length() > 0 ? failures.toString() : "none logged";
+    }
+
+    private static String millis(long nanos) {
+        return decimalFormat.format(nanos / 1e6);
+    }
+}
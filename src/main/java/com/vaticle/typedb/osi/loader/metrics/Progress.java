@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vaticle.typedb.osi.loader.metrics;
+
+import com.vaticle.typedb.osi.loader.util.Util;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.DecimalFormat;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Progress of the run in bytes of the data files (as stored: compressed, for ".gz" files), per file, per generator and
+ * overall - with a throughput smoothed over about half a minute, and the time left at that rate. Files whose size is
+ * unknown (streams) are not counted.
+ */
+public class Progress {
+
+    private static final double SMOOTHING_SECONDS = 30;
+    private static final DecimalFormat percentFormat = new DecimalFormat("0.0");
+    private static final DecimalFormat sizeFormat = new DecimalFormat("#,##0.0");
+
+    private final Scope overall = new Scope();
+    private final Map<String, Scope> generators = new HashMap<>();
+    private final Map<String, FileScope> files = new HashMap<>();
+
+    /**
+     * Adds a data file of a generator to the run.
+     */
+    public synchronized void add(String generatorKey, String file) {
+        if (files.containsKey(key(generatorKey, file))) return;
+        long size;
+        try {
+            Path path = Paths.get(file);
+            if (!Files.isRegularFile(path)) return;
+            size = Files.size(path);
+        } catch (IOException | RuntimeException exception) {
+            return;
+        }
+        Scope generator = generators.computeIfAbsent(generatorKey, k -> new Scope());
+        FileScope scope = new FileScope(generator);
+        files.put(key(generatorKey, file), scope);
+        scope.total = size;
+        generator.total += size;
+        overall.total += size;
+    }
+
+    /**
+     * Sets the bytes of the file read so far.
+     */
+    public synchronized void read(String generatorKey, String file, long bytes) {
+        advance(generatorKey, file, bytes, true);
+    }
+
+    /**
+     * Sets the bytes of the file done without reading them now (loaded by an earlier run): not counted in the rate.
+     */
+    public synchronized void skipped(String generatorKey, String file, long bytes) {
+        advance(generatorKey, file, bytes, false);
+    }
+
+    /**
+     * Marks the file done without reading it (completed by an earlier run): not counted in the rate.
+     */
+    public synchronized void completed(String generatorKey, String file) {
+        FileScope scope = files.get(key(generatorKey, file));
+        if (scope != null) advance(generatorKey, file, scope.total, false);
+    }
+
+    private void advance(String generatorKey, String file, long bytes, boolean read) {
+        FileScope scope = files.get(key(generatorKey, file));
+        if (scope == null) return;
+        // a followed file grows
+        if (bytes > scope.total) {
+            long growth = bytes - scope.total;
+            scope.total += growth;
+            scope.generator.total += growth;
+            overall.total += growth;
+        }
+        long delta = bytes - scope.done;
+        for (Scope s : new Scope[]{scope, scope.generator, overall}) {
+            s.done += delta;
+            if (!read) s.lastDone += delta;
+        }
+    }
+
+    public synchronized Estimate file(String generatorKey, String file) {
+        FileScope scope = files.get(key(generatorKey, file));
+        return scope != null ? scope.estimate(System.nanoTime()) : null;
+    }
+
+    public synchronized Estimate generator(String generatorKey) {
+        Scope scope = generators.get(generatorKey);
+        return scope != null ? scope.estimate(System.nanoTime()) : null;
+    }
+
+    public synchronized Estimate overall() {
+        return overall.estimate(System.nanoTime());
+    }
+
+    private static String key(String generatorKey, String file) {
+        return generatorKey + "\u0000" + file;
+    }
+
+    public static class Estimate {
+        private final long done;
+        private final long total;
+        private final double bytesPerSecond;
+
+        private Estimate(long done, long total, double bytesPerSecond) {
+            this.done = done;
+            this.total = total;
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        public long getDone() {
+            return done;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public double getPercent() {
+            return total > 0 ? 100.0 * done / total : 100;
+        }
+
+        /**
+         * Smoothed throughput, or -1 if not known yet.
+         */
+        public double getBytesPerSecond() {
+            return bytesPerSecond;
+        }
+
+        /**
+         * Seconds left at the smoothed throughput, or -1 if not known.
+         */
+        public long getSecondsLeft() {
+            if (done >= total) return 0;
+            return bytesPerSecond > 0 ? (long) Math.ceil((total - done) / bytesPerSecond) : -1;
+        }
+
+        @Override
+        public String toString() {
+            long secondsLeft = getSecondsLeft();
+            return percentFormat.format(getPercent()) + "% of " + megabytes(total) + " MB"
+                    + (bytesPerSecond >= 0 ? ", " + megabytes((long) bytesPerSecond) + " MB/s" : "")
+                    + ", ETA " + (secondsLeft >= 0 ? Util.printDuration(Instant.EPOCH, Instant.EPOCH.plusSeconds(secondsLeft)) : "unknown");
+        }
+
+        private static String megabytes(long bytes) {
+            return sizeFormat.format(bytes / 1e6);
+        }
+    }
+
+    private static class Scope {
+        long total;
+        long done;
+        // for the smoothed rate: done (without skipped bytes) and time at the last estimate
+        long lastDone;
+        long lastNanos;
+        double bytesPerSecond = -1;
+
+        Estimate estimate(long now) {
+            if (lastNanos != 0 && now > lastNanos) {
+                double seconds = (now - lastNanos) / 1e9;
+                double rate = (done - lastDone) / seconds;
+                // weighted by the time since the last estimate, so that irregular estimates smooth alike
+                double alpha = 1 - Math.exp(-seconds / SMOOTHING_SECONDS);
+                bytesPerSecond = bytesPerSecond < 0 ? rate : bytesPerSecond + alpha * (rate - bytesPerSecond);
+            }
+            if (now != lastNanos) {
+                lastDone = done;
+                lastNanos = now;
+            }
+            return new Estimate(done, total, bytesPerSecond);
+        }
+    }
+
+    private static class FileScope extends Scope {
+        final Scope generator;
+
+        FileScope(Scope generator) {
+            this.generator = generator;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vaticle.typedb.osi.loader.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.vaticle.typedb.osi.loader.io.ErrorRecord;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.function.DoubleSupplier;
+import java.util.function.ToLongFunction;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Serves the metrics of the registry, some gauges of the loader and the JVM's memory in the Prometheus text format at
+ * http://127.0.0.1:&lt;port&gt;/metrics. It is bound to the loopback interface only.
+ */
+public class PrometheusEndpoint implements Closeable {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    // upper bounds in seconds of the exported latency buckets
+    private static final double[] BUCKETS_SECONDS = {0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30};
+    private static final long[] BUCKETS_NANOS = Arrays.stream(BUCKETS_SECONDS).mapToLong(bound -> (long) (bound * 1e9)).toArray();
+
+    private final MetricsRegistry registry;
+    private final Map<String, Gauge> gauges = new LinkedHashMap<>();
+    private HttpServer server;
+
+    public PrometheusEndpoint(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Adds a gauge, read whenever the metrics are scraped.
+     */
+    public synchronized void gauge(String name, String help, DoubleSupplier value) {
+        gauges.put(name, new Gauge(help, value));
+    }
+
+    public void start(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", this::handle);
+        server.setExecutor(Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "prometheus-endpoint");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        if (server != null) server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod()) || !"/metrics".equals(exchange.getRequestURI().getPath())) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            byte[] body = scrape().getBytes(UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    synchronized String scrape() {
+        StringBuilder out = new StringBuilder();
+        Iterable<GeneratorMetrics> generators = registry.getGenerators();
+
+        counter(out, "typedb_loader_rows_read_total", "Rows read from the data files.", generators, GeneratorMetrics::getRowsRead);
+        counter(out, "typedb_loader_rows_inserted_total", "Rows inserted and committed.", generators, GeneratorMetrics::getRowsInserted);
+        counter(out, "typedb_loader_rows_skipped_total", "Rows skipped as loaded by the last run (delta mode).", generators, GeneratorMetrics::getRowsSkipped);
+        counter(out, "typedb_loader_batches_total", "Transactions committed.", generators, GeneratorMetrics::getBatches);
+        counter(out, "typedb_loader_retries_total", "Transactions retried.", generators, GeneratorMetrics::getRetries);
+
+        header(out, "typedb_loader_rows_logged_total", "Rows written to the error logs, by reason (malformed and column_type rows were loaded nevertheless).", "counter");
+        for (GeneratorMetrics generator : generators) {
+            for (ErrorRecord.Reason reason : ErrorRecord.Reason.values()) {
+                sample(out, "typedb_loader_rows_logged_total", labels("generator", generator.getGeneratorKey(), "reason", reason.name().toLowerCase()),
+                        generator.getRowsLogged(reason));
+            }
+        }
+
+        header(out, "typedb_loader_stage_seconds", "Latency of the stages of loading: read and parse per row, the others per transaction.", "histogram");
+        for (GeneratorMetrics generator : generators) {
+            for (Stage stage : Stage.values()) {
+                Histogram histogram = generator.stage(stage);
+                String key = generator.getGeneratorKey();
+                String stageName = stage.name().toLowerCase();
+                // buckets, +Inf and count from one snapshot, so that they stay monotonic while latencies are recorded
+                long[] cumulative = histogram.cumulativeCounts(BUCKETS_NANOS);
+                long count = cumulative[BUCKETS_NANOS.length];
+                for (int i = 0; i < BUCKETS_SECONDS.length; i++) {
+                    sample(out, "typedb_loader_stage_seconds_bucket", labels("generator", key, "stage", stageName, "le", Double.toString(BUCKETS_SECONDS[i])),
+                            cumulative[i]);
+                }
+                sample(out, "typedb_loader_stage_seconds_bucket", labels("generator", key, "stage", stageName, "le", "+Inf"), count);
+                sample(out, "typedb_loader_stage_seconds_sum", labels("generator", key, "stage", stageName), histogram.getSum() / 1e9);
+                sample(out, "typedb_loader_stage_seconds_count", labels("generator", key, "stage", stageName), count);
+            }
+        }
+
+        for (Map.Entry<String, Gauge> gauge : gauges.entrySet()) {
+            header(out, gauge.getKey(), gauge.getValue().help, "gauge");
+            sample(out, gauge.getKey(), "", gauge.getValue().value.getAsDouble());
+        }
+
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        MemoryUsage nonHeap = ManagementFactory.getMemoryMXBean().getNonHeapMemoryUsage();
+        header(out, "jvm_memory_bytes_used", "Used bytes of a given JVM memory area.", "gauge");
+        sample(out, "jvm_memory_bytes_used", labels("area", "heap"), heap.getUsed());
+        sample(out, "jvm_memory_bytes_used", labels("area", "nonheap"), nonHeap.getUsed());
+        header(out, "jvm_memory_bytes_max", "Max bytes of a given JVM memory area (-1 if undefined).", "gauge");
+        sample(out, "jvm_memory_bytes_max", labels("area", "heap"), heap.getMax());
+        sample(out, "jvm_memory_bytes_max", labels("area", "nonheap"), nonHeap.getMax());
+        return out.toString();
+    }
+
+    private static void counter(StringBuilder out, String name, String help, Iterable<GeneratorMetrics> generators,
+                                ToLongFunction<GeneratorMetrics> counter) {
+        header(out, name, help, "counter");
+        for (GeneratorMetrics generator : generators) {
+            sample(out, name, labels("generator", generator.getGeneratorKey()), counter.applyAsLong(generator));
+        }
+    }
+
+    private static void header(StringBuilder out, String name, String help, String type) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder out, String name, String labels, double value) {
+        out.append(name).append(labels).append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value)) out.append((long) value);
+        else out.append(value);
+        out.append('\n');
+    }
+
+    // {name="value",...}, from names and values in turn
+    private static String labels(String... namesAndValues) {
+        StringBuilder labels = new StringBuilder("{");
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            if (i > 0) labels.append(',');
+            String value = namesAndValues[i + 1].replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+            labels.append(namesAndValues[i]).append("=\"").append(value).append('"');
+        }
+        return labels.append('}').toString();
+    }
+
+    private static class Gauge {
+        private final String help;
+        private final DoubleSupplier value;
+
+        private Gauge(String help, DoubleSupplier value) {
+            this.help = help;
+            this.value = value;
+        }
+    }
+}
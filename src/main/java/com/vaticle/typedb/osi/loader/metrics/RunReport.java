@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vaticle.typedb.osi.loader.metrics;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.vaticle.typedb.osi.loader.io.ErrorRecord;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * The metrics of a run as a JSON document - per generator and per data file: rows read, inserted, skipped and logged
+ * by reason, throughput, latency percentiles and time per stage, and the effective batch size and concurrency - to
+ * compare runs of different releases or configurations.
+ */
+public class RunReport {
+
+    public static final String FILE_NAME = "report.json";
+
+    // the stages writer threads spend their time in, for the effective concurrency
+    private static final Stage[] WRITER_STAGES = new Stage[]{Stage.BUILD, Stage.MATCH, Stage.INSERT, Stage.COMMIT};
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+    private RunReport() {
+    }
+
+    /**
+     * Writes the report of the run to the directory.
+     *
+     * @return the path of the report
+     */
+    public static Path write(MetricsRegistry registry, String directory, String databaseName, Instant start, Instant end) throws IOException {
+        Files.createDirectories(Paths.get(directory));
+        Path path = Paths.get(directory, FILE_NAME);
+        try (Writer writer = Files.newBufferedWriter(path, UTF_8)) {
+            gson.toJson(build(registry, databaseName, start, end), writer);
+        }
+        return path;
+    }
+
+    static Map<String, Object> build(MetricsRegistry registry, String databaseName, Instant start, Instant end) {
+        List<GeneratorMetrics> generators = registry.getGenerators();
+        long durationMillis = Duration.between(start, end).toMillis();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("database", databaseName);
+        report.put("start", start.toString());
+        report.put("end", end.toString());
+        report.put("durationSeconds", round(durationMillis / 1000.0));
+        long rowsInserted = sum(generators, GeneratorMetrics::getRowsInserted);
+        report.put("rowsRead", sum(generators, GeneratorMetrics::getRowsRead));
+        report.put("rowsInserted", rowsInserted);
+        report.put("rowsSkipped", sum(generators, GeneratorMetrics::getRowsSkipped));
+        report.put("rowsFailed", sum(generators, GeneratorMetrics::getRowsFailed));
+        report.put("rowsPerSecond", rate(rowsInserted, durationMillis));
+        List<Map<String, Object>> generatorReports = new ArrayList<>();
+        for (GeneratorMetrics generator : generators) generatorReports.add(generator(generator));
+        report.put("generators", generatorReports);
+        return report;
+    }
+
+    private static Map<String, Object> generator(GeneratorMetrics generator) {
+        List<FileMetrics> files = generator.getFiles();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("generator", generator.getGeneratorKey());
+        rows(report, generator.getRowsRead(), generator.getRowsInserted(), generator.getRowsSkipped(), generator.getRowsFailed(),
+                generator::getRowsLogged, generator.getBatches(), generator.getRetries(), generator.getElapsedMillis());
+        int batchSize = 0;
+        int writers = 0;
+        for (FileMetrics file : files) {
+            batchSize = Math.max(batchSize, file.getBatchSize());
+            writers = Math.max(writers, file.getWriters());
+        }
+        configuration(report, batchSize, generator.getRowsCommitted(), generator.getBatches(), writers,
+                generator::stage, generator.getElapsedMillis());
+        report.put("stages", stages(generator::stage));
+        List<Map<String, Object>> fileReports = new ArrayList<>();
+        for (FileMetrics file : files) fileReports.add(file(file));
+        report.put("files", fileReports);
+        return report;
+    }
+
+    private static Map<String, Object> file(FileMetrics file) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("file", file.getFile());
+        report.put("finished", file.isFinished());
+        rows(report, file.getRowsRead(), file.getRowsInserted(), file.getRowsSkipped(), file.getRowsFailed(),
+                file::getRowsLogged, file.getBatches(), file.getRetries(), file.getElapsedMillis());
+        configuration(report, file.getBatchSize(), file.getRowsCommitted(), file.getBatches(), file.getWriters(),
+                file::stage, file.getElapsedMillis());
+        report.put("stages", stages(file::stage));
+        return report;
+    }
+
+    private static void rows(Map<String, Object> report, long read, long inserted, long skipped, long failed,
+                             ToLongFunction<ErrorRecord.Reason> logged, long batches, long retries, long elapsedMillis) {
+        report.put("rowsRead", read);
+        report.put("rowsInserted", inserted);
+        report.put("rowsSkipped", skipped);
+        report.put("rowsFailed", failed);
+        Map<String, Long> rowsLogged = new LinkedHashMap<>();
+        for (ErrorRecord.Reason reason : ErrorRecord.Reason.values()) {
+            rowsLogged.put(reason.name().toLowerCase(), logged.applyAsLong(reason));
+        }
+        report.put("rowsLogged", rowsLogged);
+        report.put("batches", batches);
+        report.put("retries", retries);
+        report.put("elapsedSeconds", round(elapsedMillis / 1000.0));
+        report.put("rowsPerSecond", rate(inserted, elapsedMillis));
+    }
+
+    // effective batch size: rows per committed transaction (less than configured for the last batch, and for batches
+    // split after failing); effective concurrency: writers busy writing or committing on average
+    private static void configuration(Map<String, Object> report, int batchSize, long rowsCommitted, long batches,
+                                      int writers, StageHistograms stages, long elapsedMillis) {
+        Map<String, Object> batch = new LinkedHashMap<>();
+        batch.put("configured", batchSize);
+        batch.put("effective", batches > 0 ? round((double) rowsCommitted / batches) : 0);
+        report.put("batchSize", batch);
+        long busyNanos = 0;
+        for (Stage stage : WRITER_STAGES) busyNanos += stages.stage(stage).getSum();
+        Map<String, Object> concurrency = new LinkedHashMap<>();
+        concurrency.put("configured", writers);
+        concurrency.put("effective", elapsedMillis > 0 ? round(busyNanos / (elapsedMillis * 1e6)) : 0);
+        report.put("concurrency", concurrency);
+    }
+
+    // latencies in milliseconds, and the share of the time spent in every stage
+    private static Map<String, Object> stages(StageHistograms stages) {
+        long totalNanos = 0;
+        for (Stage stage : Stage.values()) totalNanos += stages.stage(stage).getSum();
+        Map<String, Object> report = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            Histogram histogram = stages.stage(stage);
+            if (histogram.getCount() == 0) continue;
+            Map<String, Object> latencies = new LinkedHashMap<>();
+            latencies.put("count", histogram.getCount());
+            latencies.put("totalSeconds", round(histogram.getSum() / 1e9));
+            latencies.put("share", round((double) histogram.getSum() / totalNanos));
+            latencies.put("meanMillis", round(histogram.getMean() / 1e6));
+            latencies.put("p50Millis", round(histogram.percentile(50) / 1e6));
+            latencies.put("p90Millis", round(histogram.percentile(90) / 1e6));
+            latencies.put("p99Millis", round(histogram.percentile(99) / 1e6));
+            latencies.put("p999Millis", round(histogram.percentile(99.9) / 1e6));
+            latencies.put("maxMillis", round(histogram.getMax() / 1e6));
+            report.put(stage.name().toLowerCase(), latencies);
+        }
+        return report;
+    }
+
+    private static double rate(long rows, long millis) {
+        return millis > 0 ? round(rows * 1000.0 / millis) : 0;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+
+    private static long sum(List<GeneratorMetrics> generators, ToLongFunction<GeneratorMetrics> counter) {
+        long sum = 0;
+        for (GeneratorMetrics generator : generators) sum += counter.applyAsLong(generator);
+        return sum;
+    }
+
+    private interface StageHistograms {
+        Histogram stage(Stage stage);
+    }
+}
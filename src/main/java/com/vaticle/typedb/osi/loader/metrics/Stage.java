@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vaticle.typedb.osi.loader.metrics;
+
+/**
+ * Stages a row goes through. Reading and parsing are timed per row, the others per batch (i.e. per transaction).
+ */
+public enum Stage {
+    READ("read"),
+    PARSE("parse"),
+    QUEUE_WAIT("queue wait"),
+    BUILD("query build"),
+    MATCH("match"),
+    INSERT("insert"),
+    COMMIT("commit");
+
+    private final String label;
+
+    Stage(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vaticle.typedb.osi.loader.metrics;
+
+import java.util.Arrays;
+
+/**
+ * What the current thread has spent in the stages timed inside a generator's write (matching, inserting), and the rows
+ * it logged as not loaded, since it was last reset - so that a writer can account for them per transaction.
+ */
+public class StageTimer {
+
+    private static final ThreadLocal<StageTimer> current = ThreadLocal.withInitial(StageTimer::new);
+
+    private final long[] nanos = new long[Stage.values().length];
+    private int failedRows;
+
+    private StageTimer() {
+    }
+
+    /**
+     * Adds the time since the start (from {@link System#nanoTime()}) to the stage.
+     */
+    public static void stop(Stage stage, long startNanos) {
+        current.get().nanos[stage.ordinal()] += System.nanoTime() - startNanos;
+    }
+
+    static void failed(int rows) {
+        current.get().failedRows += rows;
+    }
+
+    public static StageTimer reset() {
+        StageTimer timer = current.get();
+        Arrays.fill(timer.nanos, 0);
+        timer.failedRows = 0;
+        return timer;
+    }
+
+    public long getNanos(Stage stage) {
+        return nanos[stage.ordinal()];
+    }
+
+    public int getFailedRows() {
+        return failedRows;
+    }
+}
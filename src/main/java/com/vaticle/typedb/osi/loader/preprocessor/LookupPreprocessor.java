@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.vaticle.typedb.osi.loader.preprocessor;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Replaces a value by its entry in the lookup map; values without an entry are kept as they are.
+ */
+public class LookupPreprocessor implements Preprocessor {
+    private final Map<String, String> lookup;
+
+    public LookupPreprocessor(Map<String, String> lookup) {
+        this.lookup = new HashMap<>(lookup);
+    }
+
+    @Override
+    public String applyProcessor(String value) {
+        return lookup.getOrDefault(value, value);
+    }
+
+}
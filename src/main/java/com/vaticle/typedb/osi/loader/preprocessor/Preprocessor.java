@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.vaticle.typedb.osi.loader.preprocessor;
+
+import com.vaticle.typedb.osi.loader.config.Configuration;
+
+/**
+ * A column preprocessor, compiled once from its data config entry and applied to every cleaned value before it is
+ * parsed. Implementations must be safe to use from several writer threads.
+ */
+public interface Preprocessor {
+
+    String applyProcessor(String value);
+
+    /**
+     * @throws IllegalArgumentException if the type does not exist or its parameters are missing or invalid
+     */
+    static Preprocessor compile(Configuration.PreprocessorConfig config) {
+        String type = config.getType();
+        if (type == null) {
+            throw new IllegalArgumentException("Preprocessor is missing its type");
+        }
+        Configuration.PreprocessorConfig.PreprocessorParameters params = config.getParameters();
+        switch (type) {
+            case "regex":
+                if (params == null || params.getRegexMatch() == null || params.getRegexReplace() == null) {
+                    throw new IllegalArgumentException("Preprocessor of type: <regex> requires parameters regexMatch and regexReplace");
+                }
+                return new RegexPreprocessor(params.getRegexMatch(), params.getRegexReplace());
+            case "trim":
+                return new TrimPreprocessor();
+            case "lowercase":
+                return new CasePreprocessor(false);
+            case "uppercase":
+                return new CasePreprocessor(true);
+            case "strip":
+                if (params == null || (params.getPrefix() == null && params.getSuffix() == null)) {
+                    throw new IllegalArgumentException("Preprocessor of type: <strip> requires parameter prefix or suffix");
+                }
+                return new StripPreprocessor(params.getPrefix(), params.getSuffix());
+            case "substring":
+                if (params == null || params.getBeginIndex() == null || params.getBeginIndex() < 0
+                        || (params.getEndIndex() != null && params.getEndIndex() < params.getBeginIndex())) {
+                    throw new IllegalArgumentException("Preprocessor of type: <substring> requires parameter beginIndex >= 0 and, if set, endIndex >= beginIndex");
+                }
+                return new SubstringPreprocessor(params.getBeginIndex(), params.getEndIndex());
+            case "lookup":
+                if (params == null || params.getLookup() == null) {
+                    throw new IllegalArgumentException("Preprocessor of type: <lookup> requires parameter lookup");
+                }
+                return new LookupPreprocessor(params.getLookup());
+            default:
+                throw new IllegalArgumentException("Preprocessor of type: <" + type + "> as specified in data config does not exist");
+        }
+    }
+}
@@ -16,17 +16,23 @@
 
 package com.vaticle.typedb.osi.loader.preprocessor;
 
-public class RegexPreprocessor {
-    String match;
-    String replace;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public class RegexPreprocessor implements Preprocessor {
+    private final Pattern match;
+    private final String replace;
+    private final ThreadLocal<Matcher> matcher;
 
     public RegexPreprocessor(String match, String replace) {
-        this.match = match;
+        this.match = Pattern.compile(match);
         this.replace = replace;
+        this.matcher = ThreadLocal.withInitial(() -> this.match.matcher(""));
     }
 
+    @Override
     public String applyProcessor(String value) {
-        return value.replaceAll(match, replace);
+        return matcher.get().reset(value).replaceAll(replace);
     }
 
 }
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.vaticle.typedb.osi.loader.preprocessor;
+
+/**
+ * Removes the prefix and/or the suffix (either may be null) where the value starts or ends with it.
+ */
+public class StripPreprocessor implements Preprocessor {
+    private final String prefix;
+    private final String suffix;
+
+    public StripPreprocessor(String prefix, String suffix) {
+        this.prefix = prefix;
+        this.suffix = suffix;
+    }
+
+    @Override
+    public String applyProcessor(String value) {
+        int begin = prefix != null && value.startsWith(prefix) ? prefix.length() : 0;
+        int end = suffix != null && value.length() - begin >= suffix.length() && value.endsWith(suffix)
+                ? value.length() - suffix.length() : value.length();
+        return value.substring(begin, end);
+    }
+
+}
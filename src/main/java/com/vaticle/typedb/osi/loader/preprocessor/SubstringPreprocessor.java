@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.vaticle.typedb.osi.loader.preprocessor;
+
+/**
+ * Keeps the characters from beginIndex up to endIndex (exclusive, or the end of the value if null); indexes beyond
+ * the value are clamped to its length.
+ */
+public class SubstringPreprocessor implements Preprocessor {
+    private final int beginIndex;
+    private final Integer endIndex;
+
+    public SubstringPreprocessor(int beginIndex, Integer endIndex) {
+        this.beginIndex = beginIndex;
+        this.endIndex = endIndex;
+    }
+
+    @Override
+    public String applyProcessor(String value) {
+        int end = endIndex != null ? Math.min(endIndex, value.length()) : value.length();
+        int begin = Math.min(beginIndex, end);
+        return value.substring(begin, end);
+    }
+
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.vaticle.typedb.osi.loader.status;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * The {@link MigrationStatus} of every generator and file, persisted to a local file so that an interrupted load can
+ * be resumed. The file is replaced atomically on every save: it always holds either the previous or the new state.
+ */
+public class Checkpoint {
+
+    private static final Type STATUS_TYPE = new TypeToken<LinkedHashMap<String, LinkedHashMap<String, MigrationStatus>>>() {
+    }.getType();
+
+    private final Path path;
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private final Map<String, LinkedHashMap<String, MigrationStatus>> statuses;
+
+    private Checkpoint(Path path, Map<String, LinkedHashMap<String, MigrationStatus>> statuses) {
+        this.path = path;
+        this.statuses = statuses;
+    }
+
+    /**
+     * An empty checkpoint, replacing any previous one at the path on its first save.
+     */
+    public static Checkpoint create(String path) {
+        return new Checkpoint(Paths.get(path), new LinkedHashMap<>());
+    }
+
+    /**
+     * The checkpoint saved at the path, or an empty one if there is none.
+     */
+    public static Checkpoint load(String path) throws IOException {
+        Path checkpointPath = Paths.get(path);
+        if (!Files.exists(checkpointPath)) return create(path);
+        try (BufferedReader br = Files.newBufferedReader(checkpointPath, UTF_8)) {
+            Map<String, LinkedHashMap<String, MigrationStatus>> statuses = new Gson().fromJson(br, STATUS_TYPE);
+            return new Checkpoint(checkpointPath, statuses != null ? statuses : new LinkedHashMap<>());
+        } catch (JsonParseException jsonParseException) {
+            throw new IOException("checkpoint <" + path + "> is corrupt: " + jsonParseException.getMessage());
+        }
+    }
+
+    public String getPath() {
+        return path.toString();
+    }
+
+    /**
+     * The status of the generator on the file, or null if it has not started on it.
+     */
+    public synchronized MigrationStatus get(String generatorKey, String filePath) {
+        Map<String, MigrationStatus> files = statuses.get(generatorKey);
+        return files != null ? files.get(filePath) : null;
+    }
+
+    /**
+     * Rows of the file known to be committed - to be skipped when resuming.
+     */
+    public long migratedRows(String generatorKey, String filePath) {
+        MigrationStatus status = get(generatorKey, filePath);
+        return status != null ? status.getMigratedRows() : 0;
+    }
+
+    public boolean isCompleted(String generatorKey, String filePath) {
+        MigrationStatus status = get(generatorKey, filePath);
+        return status != null && status.isCompleted();
+    }
+
+    public boolean isCompleted(String generatorKey, String[] filePaths) {
+        for (String filePath : filePaths) {
+            if (!isCompleted(generatorKey, filePath)) return false;
+        }
+        return true;
+    }
+
+    public void update(String generatorKey, String filePath, long migratedRows, long byteOffset, boolean completed) {
+        update(generatorKey, filePath, migratedRows, byteOffset, new long[0][], completed);
+    }
+
+    /**
+     * @param committedRanges first and last line of the ranges committed after the first row not committed
+     */
+    public synchronized void update(String generatorKey, String filePath, long migratedRows, long byteOffset,
+                                    long[][] committedRanges, boolean completed) {
+        MigrationStatus status = statuses.computeIfAbsent(generatorKey, k -> new LinkedHashMap<>())
+                .computeIfAbsent(filePath, k -> new MigrationStatus(generatorKey, false, 0));
+        status.setMigratedRows(migratedRows);
+        status.setByteOffset(byteOffset);
+        status.setCommittedRanges(committedRanges.length > 0 && !completed ? committedRanges : null);
+        status.setCompleted(completed);
+    }
+
+    /**
+     * Writes the checkpoint to a temporary file next to it, which is then moved over it.
+     */
+    public synchronized void save() throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, UTF_8)) {
+                gson.toJson(statuses, STATUS_TYPE, writer);
+            }
+            try {
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException atomicMoveNotSupportedException) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
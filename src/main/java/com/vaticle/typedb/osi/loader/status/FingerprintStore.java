@@ -0,0 +1,359 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vaticle.typedb.osi.loader.status;
+
+import com.google.gson.Gson;
+import com.vaticle.typedb.osi.loader.util.LongHashSet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Fingerprints (64-bit hashes of the columns a generator reads) of the rows loaded by the last successful run of a
+ * generator, for delta loading: a row whose fingerprint is in the store was loaded before and is skipped. Every row of
+ * the current run is written to the next store, together with its key cells (the columns identifying the thing it
+ * writes to), which replaces the store once the generator has finished. Fingerprints of the last run that no row has
+ * any more are reported: as "changed" if a row with the same key is still there, as "removed" otherwise. Rows that
+ * fail to load are left out of the next store, so that the next run tries them again.
+ * <p>
+ * Held in memory are the fingerprints of the last run, and a hash of the key of every row of this run (to tell changed
+ * from removed rows) - 16 bytes per row or so; the key cells themselves are streamed from and to the store files.
+ * <p>
+ * Stores are kept per database: the rows loaded into one database say nothing about another.
+ */
+public class FingerprintStore {
+
+    private static final int MAGIC = 0x54444c46;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    public enum Change {CHANGED, REMOVED}
+
+    private final String generatorKey;
+    private final Path path;
+    private final Path next;
+    private final LongHashSet previous;
+    private final BitSet seen;
+    private final LongHashSet keys = new LongHashSet(1 << 16);
+    private final LongHashSet failed = new LongHashSet(1024);
+    private DataOutputStream out;
+    private String[] keyNames = new String[0];
+    private int[] columns = new int[0];
+    private int[] keyColumns = new int[0];
+    private boolean complete = true;
+    private long unchanged;
+    private long loaded;
+    private long changed;
+    private long removed;
+
+    private FingerprintStore(String generatorKey, Path path, LongHashSet previous) {
+        this.generatorKey = generatorKey;
+        this.path = path;
+        this.next = Paths.get(path + ".next");
+        this.previous = previous;
+        this.seen = new BitSet(previous.slotCount());
+    }
+
+    /**
+     * The store of the generator for the database in the directory - empty, if the generator has not been loaded into
+     * the database in delta mode before.
+     *
+     * @param reset whether to ignore the rows of the last run (e.g. the database has been cleaned since): every row is
+     *              loaded, and the store replaced with the rows of this run
+     */
+    public static FingerprintStore open(String directory, String databaseName, String generatorKey, boolean reset) throws IOException {
+        Files.createDirectories(Paths.get(directory, databaseName));
+        Path path = Paths.get(directory, databaseName, generatorKey + ".fingerprints");
+        LongHashSet previous = new LongHashSet(1 << 16);
+        if (reset) {
+            Files.deleteIfExists(path);
+        } else if (Files.exists(path)) {
+            try (DataInputStream in = openStore(path)) {
+                readCells(in);
+                while (true) {
+                    long fingerprint;
+                    try {
+                        fingerprint = in.readLong();
+                    } catch (EOFException eofException) {
+                        break;
+                    }
+                    previous.add(fingerprint);
+                    readCells(in);
+                }
+            }
+        }
+        return new FingerprintStore(generatorKey, path, previous);
+    }
+
+    public String getGeneratorKey() {
+        return generatorKey;
+    }
+
+    /**
+     * Sets the columns of the file about to be read: those of the fingerprint, and those of the key.
+     */
+    public void begin(String[] header, int[] columns, int[] keyColumns) {
+        this.columns = columns;
+        this.keyColumns = keyColumns;
+        this.keyNames = new String[keyColumns.length];
+        for (int i = 0; i < keyColumns.length; i++) {
+            keyNames[i] = keyColumns[i] >= 0 && keyColumns[i] < header.length ? header[keyColumns[i]] : "";
+        }
+    }
+
+    /**
+     * Records the row for the next store; true if it is to be loaded, i.e. was not loaded by the last run.
+     */
+    public boolean isNew(String[] row) throws IOException {
+        long fingerprint = hash(row, columns);
+        String[] key = cells(row, keyColumns);
+        keys.add(hash(key));
+        write(fingerprint, key);
+        int slot = previous.slot(fingerprint);
+        if (slot >= 0) {
+            seen.set(slot);
+            unchanged++;
+            return false;
+        }
+        loaded++;
+        return true;
+    }
+
+    /**
+     * Writers: the row, of the file being read, was not loaded.
+     */
+    public void failed(String[] row) {
+        long fingerprint = hash(row, columns);
+        synchronized (failed) {
+            failed.add(fingerprint);
+        }
+    }
+
+    /**
+     * Marks the run as not having seen every row (e.g. resumed after committed rows) - the store is then kept as is.
+     */
+    public void incomplete() {
+        complete = false;
+    }
+
+    public long getUnchanged() {
+        return unchanged;
+    }
+
+    public long getLoaded() {
+        return loaded;
+    }
+
+    public long getChanged() {
+        return changed;
+    }
+
+    public long getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Writes the keys of changed and removed rows to the side file and replaces the store with the rows of this run.
+     *
+     * @return false if the run was incomplete, and the store kept as is
+     */
+    public boolean finish(String sideFile) throws IOException {
+        if (!complete) {
+            abort();
+            return false;
+        }
+        if (out == null) open();
+        out.close();
+        if (Files.exists(path)) {
+            Gson gson = new Gson();
+            LongHashSet reported = new LongHashSet(1024);
+            try (DataInputStream in = openStore(path);
+                 Writer writer = new BufferedWriter(Files.newBufferedWriter(Paths.get(sideFile), UTF_8,
+                         StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+                String[] previousKeyNames = readCells(in);
+                while (true) {
+                    long fingerprint;
+                    try {
+                        fingerprint = in.readLong();
+                    } catch (EOFException eofException) {
+                        break;
+                    }
+                    String[] key = readCells(in);
+                    if (seen.get(previous.slot(fingerprint))) continue;
+                    long keyHash = hash(key);
+                    if (!reported.add(keyHash)) continue;
+                    Change change = keys.contains(keyHash) ? Change.CHANGED : Change.REMOVED;
+                    if (change == Change.CHANGED) changed++;
+                    else removed++;
+                    Map<String, Object> record = new LinkedHashMap<>();
+                    record.put("generator", generatorKey);
+                    record.put("change", change);
+                    Map<String, String> keyCells = new LinkedHashMap<>();
+                    for (int i = 0; i < key.length; i++) {
+                        keyCells.put(i < previousKeyNames.length ? previousKeyNames[i] : Integer.toString(i), key[i]);
+                    }
+                    record.put("key", keyCells);
+                    writer.write(gson.toJson(record));
+                    writer.write("\n");
+                }
+            }
+        }
+        if (failed.size() > 0) removeFailed();
+        try {
+            Files.move(next, path, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException atomicMoveNotSupportedException) {
+            Files.move(next, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return true;
+    }
+
+    // rewrites the next store without the rows that failed
+    private void removeFailed() throws IOException {
+        Path filtered = Paths.get(next + ".filtered");
+        try (DataInputStream in = openStore(next);
+             DataOutputStream filteredOut = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(filtered), 1 << 16))) {
+            filteredOut.writeInt(MAGIC);
+            writeCells(filteredOut, readCells(in));
+            while (true) {
+                long fingerprint;
+                try {
+                    fingerprint = in.readLong();
+                } catch (EOFException eofException) {
+                    break;
+                }
+                String[] key = readCells(in);
+                if (failed.contains(fingerprint)) continue;
+                filteredOut.writeLong(fingerprint);
+                writeCells(filteredOut, key);
+            }
+        }
+        Files.move(filtered, next, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Drops the rows of this run, keeping the store of the last successful one.
+     */
+    public void abort() throws IOException {
+        if (out != null) out.close();
+        Files.deleteIfExists(next);
+    }
+
+    private void write(long fingerprint, String[] key) throws IOException {
+        if (out == null) open();
+        out.writeLong(fingerprint);
+        writeCells(out, key);
+    }
+
+    private void open() throws IOException {
+        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(next), 1 << 16));
+        out.writeInt(MAGIC);
+        writeCells(out, keyNames);
+    }
+
+    private static DataInputStream openStore(Path path) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16));
+        if (in.readInt() != MAGIC) {
+            in.close();
+            throw new IOException("<" + path + "> is not a fingerprint store");
+        }
+        return in;
+    }
+
+    private static void writeCells(DataOutputStream out, String[] cells) throws IOException {
+        out.writeInt(cells.length);
+        for (String cell : cells) {
+            if (cell == null) {
+                out.writeInt(-1);
+            } else {
+                byte[] bytes = cell.getBytes(UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static String[] readCells(DataInputStream in) throws IOException {
+        String[] cells = new String[in.readInt()];
+        for (int i = 0; i < cells.length; i++) {
+            int length = in.readInt();
+            if (length >= 0) {
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                cells[i] = new String(bytes, UTF_8);
+            }
+        }
+        return cells;
+    }
+
+    private static String[] cells(String[] row, int[] columns) {
+        String[] cells = new String[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            cells[i] = columns[i] >= 0 && columns[i] < row.length ? row[columns[i]] : null;
+        }
+        return cells;
+    }
+
+    private static long hash(String[] cells) {
+        long hash = FNV_OFFSET;
+        for (String cell : cells) hash = hashCell(hash, cell);
+        return mix(hash);
+    }
+
+    /**
+     * 64-bit FNV-1a of the cells in the columns (telling null from empty cells), finished with the MurmurHash3 mixer.
+     */
+    public static long hash(String[] row, int[] columns) {
+        long hash = FNV_OFFSET;
+        for (int column : columns) hash = hashCell(hash, column >= 0 && column < row.length ? row[column] : null);
+        return mix(hash);
+    }
+
+    // values beyond any char mark null cells and the end of a cell
+    private static long hashCell(long hash, String cell) {
+        if (cell == null) {
+            hash = (hash ^ 0x10000) * FNV_PRIME;
+        } else {
+            for (int i = 0; i < cell.length(); i++) hash = (hash ^ cell.charAt(i)) * FNV_PRIME;
+        }
+        return (hash ^ 0x10001) * FNV_PRIME;
+    }
+
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
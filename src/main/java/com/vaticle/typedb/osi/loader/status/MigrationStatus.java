@@ -16,26 +16,56 @@
 
 package com.vaticle.typedb.osi.loader.status;
 
-
+/**
+ * Progress of a generator on one of its files: the number of rows (after the header) up to which every row is
+ * committed, the byte offset at which the next row starts (in the uncompressed content, for ".gz" files - 0 if not
+ * known), and whether the whole file is committed - as well as the ranges of lines after it that are committed too
+ * (by batches committed out of order), so that a resumed load does not insert them again.
+ */
 public class MigrationStatus {
     private final String conceptName;
     private boolean isCompleted;
-    private int migratedRows;
+    private long migratedRows;
+    private long byteOffset;
+    private long[][] committedRanges;
 
-    public MigrationStatus(String conceptName, boolean isCompleted, int migratedRows) {
+    public MigrationStatus(String conceptName, boolean isCompleted, long migratedRows) {
         this.conceptName = conceptName;
         this.isCompleted = isCompleted;
         this.migratedRows = migratedRows;
     }
 
-    public int getMigratedRows() {
+    public String getConceptName() {
+        return conceptName;
+    }
+
+    public long getMigratedRows() {
         return migratedRows;
     }
 
-    public void setMigratedRows(int migratedRows) {
+    public void setMigratedRows(long migratedRows) {
         this.migratedRows = migratedRows;
     }
 
+    public long getByteOffset() {
+        return byteOffset;
+    }
+
+    public void setByteOffset(long byteOffset) {
+        this.byteOffset = byteOffset;
+    }
+
+    /**
+     * First and last line of every range of lines committed after the first row not committed; empty if none.
+     */
+    public long[][] getCommittedRanges() {
+        return committedRanges != null ? committedRanges : new long[0][];
+    }
+
+    public void setCommittedRanges(long[][] committedRanges) {
+        this.committedRanges = committedRanges;
+    }
+
     public boolean isCompleted() {
         return isCompleted;
     }
@@ -50,6 +80,8 @@ public class MigrationStatus {
                 "conceptName='" + conceptName + '\'' +
                 ", isCompleted=" + isCompleted +
                 ", migratedRows=" + migratedRows +
+                ", byteOffset=" + byteOffset +
+                ", committedRanges=" + getCommittedRanges().length +
                 '}';
     }
 }
@@ -16,9 +16,8 @@
 
 package com.vaticle.typedb.osi.loader.util;
 
-import com.vaticle.typedb.osi.loader.config.Configuration;
 import com.vaticle.typedb.osi.loader.io.FileLogger;
-import com.vaticle.typedb.osi.loader.preprocessor.RegexPreprocessor;
+import com.vaticle.typedb.osi.loader.preprocessor.Preprocessor;
 import com.vaticle.typedb.osi.loader.type.AttributeValueType;
 import com.vaticle.typeql.lang.TypeQL;
 import com.vaticle.typeql.lang.common.TypeQLToken;
@@ -28,43 +27,48 @@ import org.apache.commons.io.FilenameUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.time.DateTimeException;
-import java.time.LocalDate;
-import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 public class GeneratorUtil {
 
     private static final Logger dataLogger = LogManager.getLogger("com.vaticle.typedb.osi.loader.error");
 
     //TODO: remove this function and all the complications it provides... this would need to be either solved by a regex preprocessor, or is already solved by CSV.withIgnoreSurroundingSpaces()
-    private static String cleanToken(String token) {
+    public static String cleanToken(String token) {
         String cleaned = token.replace("\"", "");
         cleaned = cleaned.replace("\\", "");
         cleaned = cleaned.trim();
         return cleaned;
     }
 
-    public static void constrainThingWithHasAttributes(String[] row,
-                                                       String[] header,
-                                                       String filePath,
-                                                       char fileSeparator,
-                                                       ThingVariable<?> insertStatement,
-                                                       Configuration.Definition.Attribute[] attributes) {
-        for (Configuration.Definition.Attribute attribute : attributes) {
-            ArrayList<ThingConstraint.Value<?>> constraintValues = GeneratorUtil.generateValueConstraintsConstrainingAttribute(
-                    row, header, filePath, fileSeparator, attribute);
-            for (ThingConstraint.Value<?> constraintValue : constraintValues) {
-                insertStatement.constrain(GeneratorUtil.valueToHasConstraint(attribute.getAttribute(), constraintValue));
-            }
+    /**
+     * Maps each column name of the header to its index - the first one, if a name is repeated.
+     */
+    public static Map<String, Integer> getColumnIndexes(String[] header) {
+        Map<String, Integer> columns = new HashMap<>(header.length * 2);
+        for (int i = 0; i < header.length; i++) {
+            columns.putIfAbsent(header[i], i);
         }
+        return columns;
     }
 
-    public static int getColumnIndexByName(String[] header, String column) {
-        return Arrays.asList(header).indexOf(column);
+    public static int getColumnIndexByName(Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * The row as it was read, for the error logs - only to be built when a row fails.
+     */
+    public static String originalRow(String[] row, char fileSeparator) {
+        return String.join(Character.toString(fileSeparator), row);
+    }
+
+    public static String originalRows(List<String[]> rows, char fileSeparator) {
+        return rows.stream().map(row -> originalRow(row, fileSeparator)).collect(Collectors.joining("\n"));
     }
 
     public static ThingVariable.Thing generateBoundThingVar(String schemaType) {
@@ -79,63 +83,15 @@ public class GeneratorUtil {
         return null;
     }
 
-    public static ArrayList<ThingConstraint.Value<?>> generateValueConstraintsConstrainingAttribute(String[] row,
-                                                                                                    String[] header,
-                                                                                                    String filepath,
-                                                                                                    char fileSeparator,
-                                                                                                    Configuration.Definition.Attribute attribute) {
-
-        String attributeType = attribute.getAttribute();
-        AttributeValueType attributeValueType = attribute.getConceptValueType();
-        String listSeparator = attribute.getListSeparator();
-        Configuration.PreprocessorConfig preprocessor = attribute.getPreprocessorConfig();
-        String token;
-
-        int colIdx = GeneratorUtil.getColumnIndexByName(header, attribute.getColumn());
-        if (colIdx < row.length) {
-            token = row[colIdx];
-        } else {
-            return new ArrayList<>();
-        }
-
-
-        ArrayList<ThingConstraint.Value<?>> valueConstraints = new ArrayList<>();
-        if (token != null && !token.isEmpty()) {
-            String cleanedToken = cleanToken(token);
-            if (listSeparator == null) {
-                ThingConstraint.Value<?> valueConstraint = generateValueConstraint(attributeType, attributeValueType, cleanedToken, preprocessor, row, filepath, fileSeparator);
-                if (valueConstraint != null) {
-                    valueConstraints.add(valueConstraint);
-                }
-            } else {
-                for (String exploded : cleanedToken.split(listSeparator)) {
-                    String cleanedExplodedToken = cleanToken(exploded);
-                    if (!cleanedExplodedToken.isEmpty()) {
-                        ThingConstraint.Value<?> valueConstraint = generateValueConstraint(attributeType, attributeValueType, cleanedExplodedToken, preprocessor, row, filepath, fileSeparator);
-                        if (valueConstraint != null) {
-                            valueConstraints.add(valueConstraint);
-                        }
-                    }
-                }
-            }
-        }
-        return valueConstraints;
-    }
-
-
     public static ThingConstraint.Value<?> generateValueConstraint(String attributeSchemaType,
                                                                    AttributeValueType attributeValueType,
                                                                    String cleanedValue,
-                                                                   Configuration.PreprocessorConfig preprocessorConfig,
+                                                                   Preprocessor preprocessor,
                                                                    String[] row,
                                                                    String filepath,
                                                                    char fileSeparator) {
-        String fileName = FilenameUtils.getName(filepath);
-        String fileNoExtension = FilenameUtils.removeExtension(fileName);
-        String originalRow = String.join(Character.toString(fileSeparator), row);
-
-        if (preprocessorConfig != null) {
-            cleanedValue = applyPreprocessor(cleanedValue, preprocessorConfig);
+        if (preprocessor != null) {
+            cleanedValue = preprocessor.applyProcessor(cleanedValue);
         }
 
         ThingConstraint.Value<?> constraint = null;
@@ -144,47 +100,27 @@ public class GeneratorUtil {
                 constraint = new ThingConstraint.Value.String(TypeQLToken.Predicate.Equality.EQ, cleanedValue);
                 break;
             case LONG:
-                try {
-                    constraint = new ThingConstraint.Value.Long(TypeQLToken.Predicate.Equality.EQ, Long.parseLong(cleanedValue));
-                } catch (NumberFormatException numberFormatException) {
-                    FileLogger.getLogger().logColumnWarnings(fileName, originalRow);
-                    dataLogger.warn(String.format("column of type long for variable <%s> with non-<long> value <%s> - skipping column - faulty row written to <%s_column_type.log>", attributeSchemaType, cleanedValue, fileNoExtension));
+                constraint = ValueDecoder.longValue(cleanedValue);
+                if (constraint == null) {
+                    logColumnTypeWarning(row, filepath, fileSeparator, String.format("column of type long for variable <%s> with non-<long> value <%s>", attributeSchemaType, cleanedValue));
                 }
                 break;
             case DOUBLE:
-                try {
-                    constraint = new ThingConstraint.Value.Double(TypeQLToken.Predicate.Equality.EQ, Double.parseDouble(cleanedValue));
-                } catch (NumberFormatException numberFormatException) {
-                    FileLogger.getLogger().logColumnWarnings(fileName, originalRow);
-                    dataLogger.warn(String.format("column of type double for variable <%s> with non-<double> value <%s> - skipping column - faulty row written to <%s_column_type.log>", attributeSchemaType, cleanedValue, fileNoExtension));
+                constraint = ValueDecoder.doubleValue(cleanedValue);
+                if (constraint == null) {
+                    logColumnTypeWarning(row, filepath, fileSeparator, String.format("column of type double for variable <%s> with non-<double> value <%s>", attributeSchemaType, cleanedValue));
                 }
                 break;
             case BOOLEAN:
-                if (cleanedValue.equalsIgnoreCase("true")) {
-                    constraint = new ThingConstraint.Value.Boolean(TypeQLToken.Predicate.Equality.EQ, true);
-                } else if (cleanedValue.equalsIgnoreCase("false")) {
-                    constraint = new ThingConstraint.Value.Boolean(TypeQLToken.Predicate.Equality.EQ, false);
-                } else {
-                    FileLogger.getLogger().logColumnWarnings(fileName, originalRow);
-                    dataLogger.warn(String.format("column of type boolean for variable <%s> with non-<boolean> value <%s> - skipping column - faulty row written to <%s_column_type.log>", attributeSchemaType, cleanedValue, fileNoExtension));
+                constraint = ValueDecoder.booleanValue(cleanedValue);
+                if (constraint == null) {
+                    logColumnTypeWarning(row, filepath, fileSeparator, String.format("column of type boolean for variable <%s> with non-<boolean> value <%s>", attributeSchemaType, cleanedValue));
                 }
                 break;
             case DATETIME:
-                try {
-                    DateTimeFormatter isoDateFormatter = DateTimeFormatter.ISO_DATE;
-                    String[] dt = cleanedValue.split("T");
-                    LocalDate date = LocalDate.parse(dt[0], isoDateFormatter);
-                    LocalDateTime dateTime;
-                    if (dt.length > 1) {
-                        LocalTime time = LocalTime.parse(dt[1], DateTimeFormatter.ISO_TIME);
-                        dateTime = date.atTime(time);
-                    } else {
-                        dateTime = date.atStartOfDay();
-                    }
-                    constraint = new ThingConstraint.Value.DateTime(TypeQLToken.Predicate.Equality.EQ, dateTime);
-                } catch (DateTimeException dateTimeException) {
-                    FileLogger.getLogger().logColumnWarnings(fileName, originalRow);
-                    dataLogger.warn(String.format("column of type datetime for variable <%s> with non-<ISO 8601 format> datetime value <%s> - skipping column - faulty row written to <%s_column_type.log>", attributeSchemaType, cleanedValue, fileNoExtension));
+                constraint = ValueDecoder.dateTimeValue(cleanedValue);
+                if (constraint == null) {
+                    logColumnTypeWarning(row, filepath, fileSeparator, String.format("column of type datetime for variable <%s> with non-<ISO 8601 format> datetime value <%s>", attributeSchemaType, cleanedValue));
                 }
                 break;
             default:
@@ -193,23 +129,9 @@ public class GeneratorUtil {
         return constraint;
     }
 
-    private static String applyPreprocessor(String cleanedValue,
-                                            Configuration.PreprocessorConfig preprocessorConfig) {
-        Configuration.PreprocessorConfig.PreprocessorParameters params = preprocessorConfig.getParameters();
-        String processorType = preprocessorConfig.getType();
-        switch (processorType) {
-            case "regex":
-                return applyRegexPreprocessor(cleanedValue, params.getRegexMatch(), params.getRegexReplace());
-            default:
-                throw new IllegalArgumentException("Preprocessor of type: <" + processorType + "> as specified in data config does not exist");
-        }
-    }
-
-    private static String applyRegexPreprocessor(String stringToProcess,
-                                                 String matchString,
-                                                 String replaceString) {
-        RegexPreprocessor rpp = new RegexPreprocessor(matchString, replaceString);
-        return rpp.applyProcessor(stringToProcess);
+    private static void logColumnTypeWarning(String[] row, String filepath, char fileSeparator, String warning) {
+        FileLogger.getLogger().logColumnWarnings(filepath, row, fileSeparator);
+        dataLogger.warn(warning + " - skipping column - faulty row written to <" + FilenameUtils.removeExtension(FilenameUtils.getName(filepath)) + "_column_type.log>");
     }
 
 }
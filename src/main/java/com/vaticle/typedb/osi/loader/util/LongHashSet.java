@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vaticle.typedb.osi.loader.util;
+
+/**
+ * A set of longs, by open addressing with linear probing - without boxing, at 8 bytes per slot. Every element has a
+ * slot number that stays the same as long as no element is added, so that flags can be kept for it alongside.
+ */
+public class LongHashSet {
+
+    private static final double LOAD_FACTOR = 0.5;
+
+    private long[] slots;
+    private int mask;
+    private int size;
+    // 0 marks an empty slot, so it is kept aside - in the slot after the last one
+    private boolean hasZero;
+
+    public LongHashSet(int expectedSize) {
+        int capacity = Integer.highestOneBit((int) Math.max(4, Math.min(1 << 30, expectedSize / LOAD_FACTOR)) - 1) << 1;
+        this.slots = new long[capacity];
+        this.mask = capacity - 1;
+    }
+
+    public boolean add(long value) {
+        if (value == 0) {
+            if (hasZero) return false;
+            hasZero = true;
+            size++;
+            return true;
+        }
+        int index = index(value);
+        while (slots[index] != 0) {
+            if (slots[index] == value) return false;
+            index = (index + 1) & mask;
+        }
+        slots[index] = value;
+        if (++size > slots.length * LOAD_FACTOR) grow();
+        return true;
+    }
+
+    public boolean contains(long value) {
+        return slot(value) >= 0;
+    }
+
+    /**
+     * The slot of the value, below {@link #slotCount()}, or -1 if it is not in the set.
+     */
+    public int slot(long value) {
+        if (value == 0) return hasZero ? slots.length : -1;
+        int index = index(value);
+        while (slots[index] != 0) {
+            if (slots[index] == value) return index;
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    public int slotCount() {
+        return slots.length + 1;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private int index(long value) {
+        long hash = value * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void grow() {
+        long[] old = slots;
+        slots = new long[old.length * 2];
+        mask = slots.length - 1;
+        for (long value : old) {
+            if (value == 0) continue;
+            int index = index(value);
+            while (slots[index] != 0) index = (index + 1) & mask;
+            slots[index] = value;
+        }
+    }
+}
@@ -21,23 +21,36 @@ import com.vaticle.typedb.client.api.TypeDBClient;
 import com.vaticle.typedb.client.api.TypeDBSession;
 import com.vaticle.typedb.client.api.TypeDBTransaction;
 import com.vaticle.typedb.client.api.answer.ConceptMap;
+import com.vaticle.typedb.client.common.exception.ErrorMessage;
+import com.vaticle.typedb.client.common.exception.TypeDBClientException;
 import com.vaticle.typedb.osi.loader.io.FileLogger;
+import com.vaticle.typedb.osi.loader.metrics.Stage;
+import com.vaticle.typedb.osi.loader.metrics.StageTimer;
 import com.vaticle.typeql.lang.TypeQL;
 import com.vaticle.typeql.lang.pattern.variable.BoundVariable;
 import com.vaticle.typeql.lang.pattern.variable.ThingVariable;
 import com.vaticle.typeql.lang.query.TypeQLDefine;
 import com.vaticle.typeql.lang.query.TypeQLInsert;
-import org.apache.commons.io.FilenameUtils;
 import org.apache.logging.log4j.Logger;
 
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static com.vaticle.typedb.osi.loader.util.Util.loadSchemaFromFile;
 
 public class TypeDBUtil {
 
+    // errors are told apart by their codes only - their messages hold type labels and row values
+    private static final Set<ErrorMessage> TRANSIENT_CLIENT_ERRORS = Set.of(ErrorMessage.Client.UNABLE_TO_CONNECT);
+    private static final Set<String> TRANSIENT_SERVER_ERRORS = Set.of("TYR03");
+    private static final Set<String> TRANSIENT_GRPC_STATUSES = Set.of("UNAVAILABLE", "DEADLINE_EXCEEDED", "RESOURCE_EXHAUSTED", "ABORTED");
+    private static final Pattern SERVER_ERROR_CODE = Pattern.compile("^\\[([A-Z]{3}[0-9]{2})]");
+
     public static TypeDBClient getClient(String graknURI) {
         return TypeDB.coreClient(graknURI);
     }
@@ -91,23 +104,68 @@ public class TypeDBUtil {
 
     public static Iterator<ConceptMap> executeMatch(TypeDBTransaction tx, TypeQLInsert query) {
         if (!query.match().isPresent()) throw new RuntimeException("Expected TypeQL 'match' to be present");
-        return tx.query().match(query.match().get()).iterator();
+        long start = System.nanoTime();
+        Iterator<ConceptMap> answers = tx.query().match(query.match().get()).iterator();
+        // awaits the first answer, so that the round trip is timed as matching
+        answers.hasNext();
+        StageTimer.stop(Stage.MATCH, start);
+        return answers;
+    }
+
+    /**
+     * Sends the insert query - without waiting for its answers, so the time taken by the server shows in the commit.
+     */
+    public static void insert(TypeDBTransaction tx, TypeQLInsert query) {
+        long start = System.nanoTime();
+        tx.query().insert(query);
+        StageTimer.stop(Stage.INSERT, start);
+    }
+
+    public static void insert(TypeDBTransaction tx, String query) {
+        long start = System.nanoTime();
+        tx.query().insert(query);
+        StageTimer.stop(Stage.INSERT, start);
     }
 
-    public static void safeInsert(TypeDBTransaction tx, TypeQLInsert query, Iterator<ConceptMap> matches, boolean allowMultiInsert, String filePath, String row, Logger dataLogger) {
+    /**
+     * @param rows the original row(s) for the error logs - only collected if the insert is skipped
+     */
+    public static void safeInsert(TypeDBTransaction tx, TypeQLInsert query, Iterator<ConceptMap> matches, boolean allowMultiInsert, String filePath, Supplier<List<String[]>> rows, char fileSeparator, Logger dataLogger) {
         assert query.match().isPresent();
-        String fileName = FilenameUtils.getName(filePath);
         ConceptMap answer = matches.next();
         if (!allowMultiInsert && matches.hasNext()) {
-            FileLogger.getLogger().logTooManyMatches(fileName, row);
-            dataLogger.error("Match-insert skipped - File <" + filePath + "> row <" + row + "> generates query <" + query + "> which matched more than 1 answer.");
+            List<String[]> originalRows = rows.get();
+            FileLogger.getLogger().logTooManyMatches(filePath, originalRows, fileSeparator);
+            dataLogger.error("Match-insert skipped - File <" + filePath + "> row <" + GeneratorUtil.originalRows(originalRows, fileSeparator) + "> generates query <" + query + "> which matched more than 1 answer.");
         } else {
-            tx.query().insert(TypeDBUtil.replaceMatchWithAnswer(query, answer));
+            insert(tx, TypeDBUtil.replaceMatchWithAnswer(query, answer));
             while (matches.hasNext()) {
                 answer = matches.next();
-                tx.query().insert(TypeDBUtil.replaceMatchWithAnswer(query, answer));
+                insert(tx, TypeDBUtil.replaceMatchWithAnswer(query, answer));
+            }
+        }
+    }
+
+    /**
+     * Whether a failed transaction may succeed if tried again: a commit conflict, a timeout or the server being
+     * unreachable - as opposed to a row violating the schema or the data, which fails however often it is tried.
+     * Told by the error of the client, else by the code the server's message starts with, else by the status of the
+     * gRPC call that failed.
+     */
+    public static boolean isTransient(TypeDBClientException exception) {
+        if (exception.getErrorMessage() != null) return TRANSIENT_CLIENT_ERRORS.contains(exception.getErrorMessage());
+        if (exception.getMessage() != null) {
+            Matcher code = SERVER_ERROR_CODE.matcher(exception.getMessage());
+            if (code.find()) return TRANSIENT_SERVER_ERRORS.contains(code.group(1));
+        }
+        for (Throwable cause = exception.getCause(); cause != null; cause = cause.getCause()) {
+            // a StatusRuntimeException's message starts with its status code, e.g. "UNAVAILABLE: io exception"
+            if (cause.getClass().getName().equals("io.grpc.StatusRuntimeException") && cause.getMessage() != null) {
+                int colon = cause.getMessage().indexOf(':');
+                return TRANSIENT_GRPC_STATUSES.contains(colon < 0 ? cause.getMessage() : cause.getMessage().substring(0, colon));
             }
         }
+        return false;
     }
 
     public static TypeQLInsert replaceMatchWithAnswer(TypeQLInsert query, ConceptMap ans) {
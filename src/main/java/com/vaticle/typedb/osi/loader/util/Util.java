@@ -20,6 +20,8 @@ import com.google.common.reflect.TypeToken;
 import com.google.gson.Gson;
 import com.vaticle.typedb.client.api.TypeDBSession;
 import com.vaticle.typedb.osi.loader.config.Configuration;
+import com.vaticle.typedb.osi.loader.io.ReplaySource;
+import com.vaticle.typedb.osi.loader.io.StreamSource;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
@@ -48,15 +50,25 @@ public class Util {
     private static final CSVFormat CSV_FORMAT = CSVFormat.DEFAULT.withEscape('\\').withIgnoreSurroundingSpaces().withNullString("");
     private static final CSVFormat TSV_FORMAT = CSVFormat.DEFAULT.withDelimiter('\t').withEscape('\\').withIgnoreSurroundingSpaces().withNullString("");
 
+    /**
+     * The header of the file - read from the stream itself for stdin and named pipes, which cannot be opened twice, and
+     * the one its rows were recorded with for a replayed file that no longer exists.
+     */
     public static String[] getFileHeader(String filePath, char separator) throws IOException, IllegalArgumentException {
-        BufferedReader br = newBufferedReader(filePath);
-        if (separator == ',') {
-            return parseCSV(br.readLine());
-        } else if (separator == '\t') {
-            return parseTSV(br.readLine());
-        } else {
+        if (separator != ',' && separator != '\t') {
             throw new IllegalArgumentException("currently supported separators are: <,>, <\t>");
         }
+        String header;
+        if (StreamSource.isStream(filePath)) {
+            header = StreamSource.header(filePath);
+        } else if (!new File(filePath).exists() && ReplaySource.header(filePath) != null) {
+            return ReplaySource.header(filePath);
+        } else {
+            try (BufferedReader br = newBufferedReader(filePath)) {
+                header = br.readLine();
+            }
+        }
+        return separator == ',' ? parseCSV(header) : parseTSV(header);
     }
 
     public static String getAbsPath(String p) {
@@ -0,0 +1,263 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.vaticle.typedb.osi.loader.util;
+
+import com.vaticle.typeql.lang.common.TypeQLToken;
+import com.vaticle.typeql.lang.pattern.constraint.ThingConstraint;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Decodes cleaned cell values into typed value constraints, returning null for values that are not of the type.
+ * The common shapes (plain integers, plain decimals, ISO dates and datetimes) are parsed straight from the characters
+ * without throwing; anything else falls back to the java parsers - but only if it could possibly parse, so that dirty
+ * values are rejected without an exception. The values accepted are exactly those accepted by the java parsers.
+ */
+public class ValueDecoder {
+
+    private static final TypeQLToken.Predicate.Equality EQ = TypeQLToken.Predicate.Equality.EQ;
+
+    // doubles up to 2^53 and powers of ten up to 10^22 are exact, so one multiplication or division rounds correctly
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    // direct-mapped, per writer thread: datetime columns often repeat the same value in consecutive rows
+    private static final int MEMO_SIZE = 1024;
+    private static final ThreadLocal<Object[]> dateTimeMemo = ThreadLocal.withInitial(() -> new Object[MEMO_SIZE * 2]);
+    private static final Object NOT_A_DATETIME = new Object();
+
+    public static ThingConstraint.Value.Long longValue(String value) {
+        int end = value.length();
+        int i = 0;
+        boolean negative = false;
+        if (end > 0 && (value.charAt(0) == '-' || value.charAt(0) == '+')) {
+            negative = value.charAt(0) == '-';
+            i = 1;
+        }
+        if (i == end) return null;
+        if (end - i <= 18) {
+            long result = 0;
+            for (; i < end; i++) {
+                int digit = value.charAt(i) - '0';
+                if (digit < 0 || digit > 9) {
+                    return value.charAt(i) < 128 ? null : javaLong(value);
+                }
+                result = result * 10 + digit;
+            }
+            return new ThingConstraint.Value.Long(EQ, negative ? -result : result);
+        }
+        for (; i < end; i++) {
+            char c = value.charAt(i);
+            if (c < 128 && (c < '0' || c > '9')) return null;
+        }
+        return javaLong(value);
+    }
+
+    public static ThingConstraint.Value.Double doubleValue(String value) {
+        int end = value.length();
+        int i = 0;
+        boolean negative = false;
+        if (end > 0 && (value.charAt(0) == '-' || value.charAt(0) == '+')) {
+            negative = value.charAt(0) == '-';
+            i = 1;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        int intDigits = 0;
+        int fractionDigits = 0;
+        for (; i < end && isDigit(value.charAt(i)); i++, intDigits++) {
+            if (mantissa != 0 || value.charAt(i) != '0') {
+                if (++digits > 18) return javaDouble(value);
+                mantissa = mantissa * 10 + (value.charAt(i) - '0');
+            }
+        }
+        if (i < end && value.charAt(i) == '.') {
+            for (i++; i < end && isDigit(value.charAt(i)); i++, fractionDigits++) {
+                if (mantissa != 0 || value.charAt(i) != '0') {
+                    if (++digits > 18) return javaDouble(value);
+                    mantissa = mantissa * 10 + (value.charAt(i) - '0');
+                }
+                scale--;
+            }
+        }
+        if (intDigits + fractionDigits == 0) return javaDouble(value);
+        if (i < end && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+            i++;
+            boolean negativeExponent = false;
+            if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+                negativeExponent = value.charAt(i) == '-';
+                i++;
+            }
+            int exponentStart = i;
+            int exponent = 0;
+            for (; i < end && isDigit(value.charAt(i)) && exponent < 10000; i++) {
+                exponent = exponent * 10 + (value.charAt(i) - '0');
+            }
+            if (i == exponentStart || exponent >= 10000) return javaDouble(value);
+            scale += negativeExponent ? -exponent : exponent;
+        }
+        if (i < end) return javaDouble(value);
+
+        double result;
+        if (mantissa == 0) {
+            result = 0;
+        } else if (mantissa <= MAX_EXACT_MANTISSA && scale >= -22 && scale <= 22) {
+            result = scale < 0 ? mantissa / POWERS_OF_TEN[-scale] : mantissa * POWERS_OF_TEN[scale];
+        } else {
+            return javaDouble(value);
+        }
+        return new ThingConstraint.Value.Double(EQ, negative ? -result : result);
+    }
+
+    public static ThingConstraint.Value.Boolean booleanValue(String value) {
+        if (value.equalsIgnoreCase("true")) {
+            return new ThingConstraint.Value.Boolean(EQ, true);
+        } else if (value.equalsIgnoreCase("false")) {
+            return new ThingConstraint.Value.Boolean(EQ, false);
+        }
+        return null;
+    }
+
+    public static ThingConstraint.Value.DateTime dateTimeValue(String value) {
+        LocalDateTime dateTime = parseDateTime(value);
+        return dateTime != null ? new ThingConstraint.Value.DateTime(EQ, dateTime) : null;
+    }
+
+    /**
+     * An ISO 8601 date (at the start of the day) or date and time, separated by "T"; null if the value is neither.
+     */
+    public static LocalDateTime parseDateTime(String value) {
+        Object[] memo = dateTimeMemo.get();
+        int slot = (value.hashCode() & (MEMO_SIZE - 1)) << 1;
+        if (value.equals(memo[slot])) {
+            return memo[slot + 1] != NOT_A_DATETIME ? (LocalDateTime) memo[slot + 1] : null;
+        }
+
+        LocalDateTime dateTime = isoDateTime(value);
+        if (dateTime == null && !value.isEmpty()
+                && (isDigit(value.charAt(0)) || value.charAt(0) == '+' || value.charAt(0) == '-')) {
+            dateTime = javaDateTime(value);
+        }
+        memo[slot] = value;
+        memo[slot + 1] = dateTime != null ? dateTime : NOT_A_DATETIME;
+        return dateTime;
+    }
+
+    // yyyy-MM-dd[THH:mm[:ss[.S{1,9}]]] with fields in range; null for any other value, valid or not
+    private static LocalDateTime isoDateTime(String value) {
+        int length = value.length();
+        if (length != 10 && length != 16 && length != 19 && (length < 21 || length > 29)) return null;
+        int year = digits(value, 0, 4);
+        int month = digits(value, 5, 7);
+        int day = digits(value, 8, 10);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || value.charAt(4) != '-' || value.charAt(7) != '-'
+                || day > daysInMonth(year, month)) {
+            return null;
+        }
+        if (length == 10) return LocalDateTime.of(year, month, day, 0, 0);
+
+        int hour = digits(value, 11, 13);
+        int minute = digits(value, 14, 16);
+        if (value.charAt(10) != 'T' || value.charAt(13) != ':' || hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            return null;
+        }
+        if (length == 16) return LocalDateTime.of(year, month, day, hour, minute);
+
+        int second = digits(value, 17, 19);
+        if (value.charAt(16) != ':' || second < 0 || second > 59) return null;
+        if (length == 19) return LocalDateTime.of(year, month, day, hour, minute, second);
+
+        int fraction = digits(value, 20, length);
+        if (value.charAt(19) != '.' || fraction < 0) return null;
+        for (int i = length - 20; i < 9; i++) {
+            fraction *= 10;
+        }
+        return LocalDateTime.of(year, month, day, hour, minute, second, fraction);
+    }
+
+    // the non-negative value of the ASCII digits from begin to end, or -1
+    private static int digits(String value, int begin, int end) {
+        int result = 0;
+        for (int i = begin; i < end; i++) {
+            char c = value.charAt(i);
+            if (!isDigit(c)) return -1;
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static ThingConstraint.Value.Long javaLong(String value) {
+        try {
+            return new ThingConstraint.Value.Long(EQ, Long.parseLong(value));
+        } catch (NumberFormatException numberFormatException) {
+            return null;
+        }
+    }
+
+    // only characters that can occur in a java double literal (hex, NaN, Infinity, type suffixes, whitespace)
+    private static ThingConstraint.Value.Double javaDouble(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!(isDigit(c) || c <= ' ' || "+-.eEpPxXaAbBcCdDfFNIinty".indexOf(c) >= 0)) return null;
+        }
+        try {
+            return new ThingConstraint.Value.Double(EQ, Double.parseDouble(value));
+        } catch (NumberFormatException numberFormatException) {
+            return null;
+        }
+    }
+
+    private static LocalDateTime javaDateTime(String value) {
+        try {
+            String[] dt = value.split("T");
+            LocalDate date = LocalDate.parse(dt[0], DateTimeFormatter.ISO_DATE);
+            if (dt.length > 1) {
+                return date.atTime(LocalTime.parse(dt[1], DateTimeFormatter.ISO_TIME));
+            } else {
+                return date.atStartOfDay();
+            }
+        } catch (DateTimeException | ArrayIndexOutOfBoundsException exception) {
+            return null;
+        }
+    }
+}
@@ -61,6 +61,7 @@ public class AppendAttributeGeneratorTest {
         client.close();
 
         testTwitter(dc, appendKeys);
+        testGroupedTwitter(dc, appendKeys);
         testFakebook(dc, appendKeys);
         testCallAppend(dc, appendKeys);
     }
@@ -72,66 +73,120 @@ public class AppendAttributeGeneratorTest {
                 Objects.requireNonNullElseGet(dc.getAppendAttribute().get(appendKeys.get(0)).getConfig().getSeparator(), () -> dc.getGlobalConfig().getSeparator()));
         Iterator<String> iterator = Util.newBufferedReader(dp).lines().skip(1).iterator();
 
-        TypeQLInsert statement = gen.generateMatchInsertStatement(Util.parseCSV(iterator.next()));
+        String[] row = Util.parseCSV(iterator.next());
+        TypeQLInsert statement = gen.generateMatchInsertStatement(row);
         TypeQLInsert tmp = TypeQL.parseQuery("match $thing isa person, has phone-number \"+7 171 898 0853\";\n" +
                 "insert $thing has twitter-username \"@jojo\", has nick-name \"another\";").asInsert();
         Assert.assertEquals(tmp, statement);
-        Assert.assertTrue(gen.appendAttributeInsertStatementValid(statement));
+        Assert.assertTrue(gen.appendAttributeInsertStatementValid(row));
 
-        statement = gen.generateMatchInsertStatement(Util.parseCSV(iterator.next()));
+        row = Util.parseCSV(iterator.next());
+        statement = gen.generateMatchInsertStatement(row);
         tmp = TypeQL.parseQuery("match $thing isa person, has phone-number \"+263 498 495 0617\";\n" +
                 "insert $thing has twitter-username \"@hui\", has twitter-username \"@bui\", has nick-name \"yetanoter\";").asInsert();
         Assert.assertEquals(tmp, statement);
-        Assert.assertTrue(gen.appendAttributeInsertStatementValid(statement));
+        Assert.assertTrue(gen.appendAttributeInsertStatementValid(row));
 
-        statement = gen.generateMatchInsertStatement(Util.parseCSV(iterator.next()));
+        row = Util.parseCSV(iterator.next());
+        statement = gen.generateMatchInsertStatement(row);
         tmp = TypeQL.parseQuery("match $thing isa person, has phone-number \"+370 351 224 5176\";\n" +
                 "insert $thing has twitter-username \"@lalulix\", has nick-name \"one more\";").asInsert();
         Assert.assertEquals(tmp, statement);
-        Assert.assertTrue(gen.appendAttributeInsertStatementValid(statement));
+        Assert.assertTrue(gen.appendAttributeInsertStatementValid(row));
 
-        statement = gen.generateMatchInsertStatement(Util.parseCSV(iterator.next()));
+        row = Util.parseCSV(iterator.next());
+        statement = gen.generateMatchInsertStatement(row);
         tmp = TypeQL.parseQuery("match $thing isa person, has phone-number \"+81 308 988 7153\";\n" +
                 "insert $thing has twitter-username \"@go34\";").asInsert();
         Assert.assertEquals(tmp, statement);
-        Assert.assertTrue(gen.appendAttributeInsertStatementValid(statement));
+        Assert.assertTrue(gen.appendAttributeInsertStatementValid(row));
 
-        statement = gen.generateMatchInsertStatement(Util.parseCSV(iterator.next()));
+        row = Util.parseCSV(iterator.next());
+        statement = gen.generateMatchInsertStatement(row);
         tmp = TypeQL.parseQuery("match $thing isa person, has phone-number \"+54 398 559 0423\";\n" +
                 "insert $thing has twitter-username \"@hadaaa\";").asInsert();
         Assert.assertEquals(tmp, statement);
-        Assert.assertTrue(gen.appendAttributeInsertStatementValid(statement));
+        Assert.assertTrue(gen.appendAttributeInsertStatementValid(row));
 
-        statement = gen.generateMatchInsertStatement(Util.parseCSV(iterator.next()));
+        row = Util.parseCSV(iterator.next());
+        statement = gen.generateMatchInsertStatement(row);
         tmp = TypeQL.parseQuery("match $thing isa person, has phone-number \"+7 690 597 4443\";\n" +
                 "insert $thing has nick-name \"not inserted\";").asInsert();
         Assert.assertEquals(tmp, statement);
-        Assert.assertFalse(gen.appendAttributeInsertStatementValid(statement));
+        Assert.assertFalse(gen.appendAttributeInsertStatementValid(row));
 
-        statement = gen.generateMatchInsertStatement(Util.parseCSV(iterator.next()));
+        row = Util.parseCSV(iterator.next());
+        statement = gen.generateMatchInsertStatement(row);
         tmp = TypeQL.parseQuery("match $thing isa person, has phone-number \"+63 815 962 6097\";\n" +
                 "insert $thing has twitter-username \"@kuka\";").asInsert();
         Assert.assertEquals(tmp, statement);
-        Assert.assertTrue(gen.appendAttributeInsertStatementValid(statement));
+        Assert.assertTrue(gen.appendAttributeInsertStatementValid(row));
 
-        statement = gen.generateMatchInsertStatement(Util.parseCSV(iterator.next()));
+        row = Util.parseCSV(iterator.next());
+        statement = gen.generateMatchInsertStatement(row);
         tmp = TypeQL.parseQuery("insert $null isa null, has null \"null\";").asInsert();
         Assert.assertEquals(tmp, statement);
-        Assert.assertFalse(gen.appendAttributeInsertStatementValid(statement));
+        Assert.assertFalse(gen.appendAttributeInsertStatementValid(row));
 
-        statement = gen.generateMatchInsertStatement(Util.parseCSV(iterator.next()));
+        row = Util.parseCSV(iterator.next());
+        statement = gen.generateMatchInsertStatement(row);
         tmp = TypeQL.parseQuery("match $thing isa person;\n" +
                 "insert $thing has twitter-username \"@notinserted\";").asInsert();
         Assert.assertEquals(tmp, statement);
-        Assert.assertFalse(gen.appendAttributeInsertStatementValid(statement));
+        Assert.assertFalse(gen.appendAttributeInsertStatementValid(row));
 
-        statement = gen.generateMatchInsertStatement(Util.parseCSV(iterator.next()));
+        row = Util.parseCSV(iterator.next());
+        statement = gen.generateMatchInsertStatement(row);
         tmp = TypeQL.parseQuery("insert $null isa null, has null \"null\";").asInsert();
         Assert.assertEquals(tmp, statement);
-        Assert.assertFalse(gen.appendAttributeInsertStatementValid(statement));
+        Assert.assertFalse(gen.appendAttributeInsertStatementValid(row));
 
     }
 
+    private void testGroupedTwitter(Configuration dc, ArrayList<String> appendKeys) throws IOException {
+        String dp = new File("src/test/resources/phoneCalls/append-twitter-nickname.csv").getAbsolutePath();
+        AppendAttributeGenerator gen = new AppendAttributeGenerator(dp,
+                dc.getAppendAttribute().get(appendKeys.get(0)),
+                Objects.requireNonNullElseGet(dc.getAppendAttribute().get(appendKeys.get(0)).getConfig().getSeparator(), () -> dc.getGlobalConfig().getSeparator()));
+
+        // rows with the same match values: one match, with the ownerships of all rows inserted
+        List<List<AppendAttributeGenerator.AppendRow>> groups = new ArrayList<>(gen.groupByMatch(List.of(
+                new String[]{"+7 171 898 0853", "@jojo", "another"},
+                new String[]{"+7 171 898 0853", "@jojo2", ""})).values());
+        Assert.assertEquals(1, groups.size());
+        TypeQLInsert statement = gen.generateMatchInsertStatement(groups.get(0).get(0), groups.get(0));
+        TypeQLInsert tmp = TypeQL.parseQuery("match $thing isa person, has phone-number \"+7 171 898 0853\";\n" +
+                "insert $thing has twitter-username \"@jojo\", has nick-name \"another\", has twitter-username \"@jojo2\";").asInsert();
+        Assert.assertEquals(tmp, statement);
+
+        // a value appended by several rows is inserted once
+        groups = new ArrayList<>(gen.groupByMatch(List.of(
+                new String[]{"+263 498 495 0617", "@hui###@bui", "yetanoter"},
+                new String[]{"+263 498 495 0617", "@bui", "yetanoter"})).values());
+        Assert.assertEquals(1, groups.size());
+        statement = gen.generateMatchInsertStatement(groups.get(0).get(0), groups.get(0));
+        tmp = TypeQL.parseQuery("match $thing isa person, has phone-number \"+263 498 495 0617\";\n" +
+                "insert $thing has twitter-username \"@hui\", has twitter-username \"@bui\", has nick-name \"yetanoter\";").asInsert();
+        Assert.assertEquals(tmp, statement);
+
+        // rows with different match values stay in separate queries, in order of first appearance
+        groups = new ArrayList<>(gen.groupByMatch(List.of(
+                new String[]{"+370 351 224 5176", "@lalulix", ""},
+                new String[]{"+81 308 988 7153", "@go34", ""},
+                new String[]{"+370 351 224 5176", "@lalulix", "one more"})).values());
+        Assert.assertEquals(2, groups.size());
+        Assert.assertEquals(2, groups.get(0).size());
+        Assert.assertEquals(1, groups.get(1).size());
+        statement = gen.generateMatchInsertStatement(groups.get(0).get(0), groups.get(0));
+        tmp = TypeQL.parseQuery("match $thing isa person, has phone-number \"+370 351 224 5176\";\n" +
+                "insert $thing has twitter-username \"@lalulix\", has nick-name \"one more\";").asInsert();
+        Assert.assertEquals(tmp, statement);
+        statement = gen.generateMatchInsertStatement(groups.get(1).get(0), groups.get(1));
+        tmp = TypeQL.parseQuery("match $thing isa person, has phone-number \"+81 308 988 7153\";\n" +
+                "insert $thing has twitter-username \"@go34\";").asInsert();
+        Assert.assertEquals(tmp, statement);
+    }
+
     private void testFakebook(Configuration dc, ArrayList<String> appendKeys) throws IOException {
         String dp = new File("src/test/resources/phoneCalls/append-fb-preprocessed.csv").getAbsolutePath();
         AppendAttributeGenerator gen = new AppendAttributeGenerator(dp,
@@ -139,31 +194,35 @@ public class AppendAttributeGeneratorTest {
                 Objects.requireNonNullElseGet(dc.getAppendAttribute().get(appendKeys.get(1)).getConfig().getSeparator(), () -> dc.getGlobalConfig().getSeparator()));
         Iterator<String> iterator = Util.newBufferedReader(dp).lines().skip(1).iterator();
 
-        TypeQLInsert statement = gen.generateMatchInsertStatement(Util.parseCSV(iterator.next()));
+        String[] row = Util.parseCSV(iterator.next());
+        TypeQLInsert statement = gen.generateMatchInsertStatement(row);
         TypeQLInsert tmp = TypeQL.parseQuery("match $thing isa person, has phone-number \"+36 318 105 5629\";\n" +
                 "insert $thing has fakebook-link \"fakebook.com/personOne\";").asInsert();
         Assert.assertEquals(tmp, statement);
-        Assert.assertTrue(gen.appendAttributeInsertStatementValid(statement));
+        Assert.assertTrue(gen.appendAttributeInsertStatementValid(row));
 
         iterator.next();
         iterator.next();
 
-        statement = gen.generateMatchInsertStatement(Util.parseCSV(iterator.next()));
+        row = Util.parseCSV(iterator.next());
+        statement = gen.generateMatchInsertStatement(row);
         tmp = TypeQL.parseQuery("match $thing isa person, has phone-number \"+62 533 266 3426\";\n" +
                 "insert $thing has fakebook-link \"insertedWithoutAppliedRegex\";").asInsert();
         Assert.assertEquals(tmp, statement);
-        Assert.assertTrue(gen.appendAttributeInsertStatementValid(statement));
+        Assert.assertTrue(gen.appendAttributeInsertStatementValid(row));
 
-        statement = gen.generateMatchInsertStatement(Util.parseCSV(iterator.next()));
+        row = Util.parseCSV(iterator.next());
+        statement = gen.generateMatchInsertStatement(row);
         tmp = TypeQL.parseQuery("match $thing isa person;\n" +
                 "insert $thing has fakebook-link \"@notinserted\";").asInsert();
         Assert.assertEquals(tmp, statement);
-        Assert.assertFalse(gen.appendAttributeInsertStatementValid(statement));
+        Assert.assertFalse(gen.appendAttributeInsertStatementValid(row));
 
-        statement = gen.generateMatchInsertStatement(Util.parseCSV(iterator.next()));
+        row = Util.parseCSV(iterator.next());
+        statement = gen.generateMatchInsertStatement(row);
         tmp = TypeQL.parseQuery("insert $null isa null, has null \"null\";").asInsert();
         Assert.assertEquals(tmp, statement);
-        Assert.assertFalse(gen.appendAttributeInsertStatementValid(statement));
+        Assert.assertFalse(gen.appendAttributeInsertStatementValid(row));
     }
 
     private void testCallAppend(Configuration dc, ArrayList<String> appendKeys) throws IOException {
@@ -173,26 +232,29 @@ public class AppendAttributeGeneratorTest {
                 Objects.requireNonNullElseGet(dc.getAppendAttribute().get(appendKeys.get(2)).getConfig().getSeparator(), () -> dc.getGlobalConfig().getSeparator()));
         Iterator<String> iterator = Util.newBufferedReader(dp).lines().skip(1).iterator();
 
-        TypeQLInsert statement = gen.generateMatchInsertStatement(Util.parseCSV(iterator.next()));
+        String[] row = Util.parseCSV(iterator.next());
+        TypeQLInsert statement = gen.generateMatchInsertStatement(row);
         TypeQLInsert tmp = TypeQL.parseQuery("match $thing isa call, has started-at 2018-09-19T01:00:38;\n" +
                 "insert $thing has call-rating 5;").asInsert();
         Assert.assertEquals(tmp, statement);
-        Assert.assertTrue(gen.appendAttributeInsertStatementValid(statement));
+        Assert.assertTrue(gen.appendAttributeInsertStatementValid(row));
 
         iterator.next();
         iterator.next();
         iterator.next();
         iterator.next();
 
-        statement = gen.generateMatchInsertStatement(Util.parseCSV(iterator.next()));
+        row = Util.parseCSV(iterator.next());
+        statement = gen.generateMatchInsertStatement(row);
         tmp = TypeQL.parseQuery("insert $null isa null, has null \"null\";").asInsert();
         Assert.assertEquals(tmp, statement);
-        Assert.assertFalse(gen.appendAttributeInsertStatementValid(statement));
+        Assert.assertFalse(gen.appendAttributeInsertStatementValid(row));
 
-        statement = gen.generateMatchInsertStatement(Util.parseCSV(iterator.next()));
+        row = Util.parseCSV(iterator.next());
+        statement = gen.generateMatchInsertStatement(row);
         tmp = TypeQL.parseQuery("match $thing isa call;\n" +
                 "insert $thing has call-rating 4;").asInsert();
         Assert.assertEquals(tmp, statement);
-        Assert.assertFalse(gen.appendAttributeInsertStatementValid(statement));
+        Assert.assertFalse(gen.appendAttributeInsertStatementValid(row));
     }
 }
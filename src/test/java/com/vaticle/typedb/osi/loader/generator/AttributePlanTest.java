@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.vaticle.typedb.osi.loader.generator;
+
+import com.google.gson.Gson;
+import com.vaticle.typedb.osi.loader.config.Configuration;
+import com.vaticle.typedb.osi.loader.util.GeneratorUtil;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class AttributePlanTest {
+
+    @Test
+    public void requiredCellsTest() {
+        String[] header = new String[]{"name", "age", "nickname"};
+        AttributePlan[] plans = AttributePlan.compile("persons.csv", GeneratorUtil.getColumnIndexes(header), new Configuration.Definition.Attribute[]{
+                attribute("name", true), attribute("age", false), attribute("nickname", true), attribute("email", false)});
+        AttributePlan[] required = AttributePlan.required(plans);
+        Assert.assertEquals(2, required.length);
+        Assert.assertEquals(-1, plans[3].getColumn());
+
+        Assert.assertTrue(AttributePlan.allCellsPresent(required, new String[]{"Melli", "", "Mel"}));
+        Assert.assertFalse(AttributePlan.allCellsPresent(required, new String[]{"Melli", "55", ""}));
+        Assert.assertFalse(AttributePlan.allCellsPresent(required, new String[]{"Melli", "55"}));
+        Assert.assertFalse(AttributePlan.allCellsPresent(required, new String[]{"Melli", "55", null}));
+        Assert.assertFalse(AttributePlan.allCellsPresent(plans, new String[]{"Melli", "55", "Mel"}));
+        Assert.assertTrue(AttributePlan.allCellsPresent(new AttributePlan[0], new String[0]));
+
+        Assert.assertTrue(AttributePlan.anyCellPresent(plans, new String[]{"", "", "Mel"}));
+        Assert.assertFalse(AttributePlan.anyCellPresent(plans, new String[]{"", ""}));
+    }
+
+    @Test
+    public void keyTest() {
+        String[] header = new String[]{"name", "age", "tags"};
+        Configuration.Definition.Attribute name = new Gson().fromJson("{\"attribute\": \"name\", \"column\": \"name\", "
+                + "\"conceptValueType\": \"STRING\", \"preprocessorConfig\": {\"type\": \"regex\", "
+                + "\"parameters\": {\"regexMatch\": \"^Dr\\\\. \", \"regexReplace\": \"\"}}}", Configuration.Definition.Attribute.class);
+        Configuration.Definition.Attribute age = new Gson().fromJson("{\"attribute\": \"age\", \"column\": \"age\", "
+                + "\"conceptValueType\": \"LONG\"}", Configuration.Definition.Attribute.class);
+        Configuration.Definition.Attribute tags = new Gson().fromJson("{\"attribute\": \"tag\", \"column\": \"tags\", "
+                + "\"conceptValueType\": \"STRING\", \"listSeparator\": \";\"}", Configuration.Definition.Attribute.class);
+        AttributePlan[] plans = AttributePlan.compile("persons.csv", GeneratorUtil.getColumnIndexes(header),
+                new Configuration.Definition.Attribute[]{name, age, tags});
+
+        // rows matching the same thing have the same key, whatever their raw cells
+        Assert.assertEquals(key(plans, new String[]{"Melli", "55", "a;b"}), key(plans, new String[]{" Dr. Melli ", "055", "b; a ;"}));
+        Assert.assertNotEquals(key(plans, new String[]{"Melli", "55", "a;b"}), key(plans, new String[]{"Melli", "56", "a;b"}));
+        // values are delimited per attribute
+        Assert.assertNotEquals(key(plans, new String[]{"Melli", "", "55"}), key(plans, new String[]{"Melli", "55", ""}));
+    }
+
+    private static String key(AttributePlan[] plans, String[] row) {
+        StringBuilder key = new StringBuilder();
+        for (AttributePlan plan : plans) plan.appendKey(key, row);
+        return key.toString();
+    }
+
+    private static Configuration.Definition.Attribute attribute(String name, boolean required) {
+        return new Gson().fromJson("{\"attribute\": \"" + name + "\", \"column\": \"" + name + "\", \"required\": " + required + "}",
+                Configuration.Definition.Attribute.class);
+    }
+}
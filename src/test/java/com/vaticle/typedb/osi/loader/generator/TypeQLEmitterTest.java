@@ -0,0 +1,90 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.vaticle.typedb.osi.loader.generator;
+
+import com.google.gson.Gson;
+import com.vaticle.typedb.osi.loader.config.Configuration;
+import com.vaticle.typedb.osi.loader.util.GeneratorUtil;
+import com.vaticle.typeql.lang.TypeQL;
+import com.vaticle.typeql.lang.common.TypeQLToken;
+import com.vaticle.typeql.lang.pattern.constraint.ThingConstraint;
+import com.vaticle.typeql.lang.pattern.variable.ThingVariable;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TypeQLEmitterTest {
+
+    private static final TypeQLToken.Predicate.Equality EQ = TypeQLToken.Predicate.Equality.EQ;
+
+    @Test
+    public void thingInsertTest() {
+        String[] header = new String[]{"name", "age", "score", "active", "born"};
+        AttributePlan[] plans = AttributePlan.compile("persons.csv", GeneratorUtil.getColumnIndexes(header), new Configuration.Definition.Attribute[]{
+                attribute("name"), attribute("age"), attribute("score"), attribute("active"), attribute("born")});
+        ArrayList<ArrayList<ThingConstraint.Value<?>>> values = new ArrayList<>();
+        values.add(new ArrayList<>(List.of(
+                new ThingConstraint.Value.String(EQ, "Melli"),
+                new ThingConstraint.Value.String(EQ, "say \"hi\""))));
+        values.add(new ArrayList<>(List.of(new ThingConstraint.Value.Long(EQ, -55L))));
+        values.add(new ArrayList<>(List.of(
+                new ThingConstraint.Value.Double(EQ, 4.0),
+                new ThingConstraint.Value.Double(EQ, 1.0E10),
+                new ThingConstraint.Value.Double(EQ, 1.25E-7))));
+        values.add(new ArrayList<>(List.of(new ThingConstraint.Value.Boolean(EQ, true))));
+        values.add(new ArrayList<>(List.of(
+                new ThingConstraint.Value.DateTime(EQ, LocalDateTime.of(2018, 9, 19, 23, 16, 49)),
+                new ThingConstraint.Value.DateTime(EQ, LocalDateTime.of(2018, 9, 19, 0, 0)),
+                new ThingConstraint.Value.DateTime(EQ, LocalDateTime.of(2018, 9, 19, 23, 16, 0, 120_000_000)))));
+
+        ThingVariable.Thing builder = TypeQL.var("e").isa("person");
+        AttributePlan.constrain(builder, plans, values);
+
+        String emitted = TypeQLEmitter.thingInsert("e", "person", plans, values);
+        Assert.assertEquals(TypeQL.insert(builder), TypeQL.parseQuery(emitted).asInsert());
+    }
+
+    @Test
+    public void attributeInsertTest() {
+        ThingConstraint.Value<?> value = new ThingConstraint.Value.String(EQ, "+7 171 898 0853");
+        String emitted = TypeQLEmitter.attributeInsert("a", "phone-number", value);
+        Assert.assertEquals("insert $a \"+7 171 898 0853\" isa phone-number;", emitted);
+        Assert.assertEquals(TypeQL.insert(TypeQL.var("a").constrain(value).isa("phone-number")),
+                TypeQL.parseQuery(emitted).asInsert());
+    }
+
+    @Test
+    public void valueWithoutLiteralTest() {
+        ThingConstraint.Value<?> value = new ThingConstraint.Value.Double(EQ, Double.NaN);
+        Assert.assertNull(TypeQLEmitter.attributeInsert("a", "score", value));
+    }
+
+    @Test
+    public void escapingTest() {
+        StringBuilder query = new StringBuilder();
+        Assert.assertTrue(TypeQLEmitter.appendValue(query, GeneratorUtil.cleanToken(" a ") + "\\\"b\""));
+        Assert.assertEquals("\"a\\\\\\\"b\\\"\"", query.toString());
+    }
+
+    private static Configuration.Definition.Attribute attribute(String name) {
+        return new Gson().fromJson("{\"attribute\": \"" + name + "\", \"column\": \"" + name + "\"}",
+                Configuration.Definition.Attribute.class);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vaticle.typedb.osi.loader.io;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class BgzfIndexTest {
+
+    private static final int BLOCK = 1000;
+
+    @Test
+    public void seekTest() throws IOException {
+        Path directory = Files.createTempDirectory("bgzf");
+        byte[] content = content();
+        Path plain = directory.resolve("rows.csv");
+        Files.write(plain, content);
+        Path gzip = directory.resolve("rows.csv.gz");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzip))) {
+            out.write(content);
+        }
+        Path bgzf = directory.resolve("blocks.csv.gz");
+        List<long[]> blocks = writeBgzf(bgzf, content);
+
+        Assert.assertNull(BgzfIndex.findBlock(gzip.toString(), 2500));
+        Assert.assertArrayEquals(blocks.get(2), BgzfIndex.findBlock(bgzf.toString(), 2500));
+        Assert.assertArrayEquals(blocks.get(0), BgzfIndex.findBlock(bgzf.toString(), 999));
+        Assert.assertArrayEquals(blocks.get(1), BgzfIndex.findBlock(bgzf.toString(), 1000));
+
+        for (Path path : List.of(plain, gzip, bgzf)) {
+            for (long offset : new long[]{0, 1, 999, 1000, 2500, content.length - 1}) {
+                assertContentFrom(path, offset, content);
+            }
+        }
+
+        // with a .gzi index, the blocks are looked up in it instead
+        writeIndex(directory.resolve("blocks.csv.gz.gzi"), blocks);
+        Assert.assertArrayEquals(blocks.get(3), BgzfIndex.findBlock(bgzf.toString(), 3999));
+        assertContentFrom(bgzf, 3999, content);
+    }
+
+    private static void assertContentFrom(Path path, long offset, byte[] content) throws IOException {
+        try (InputStream in = FileToInputStream.getInputStream(path.toString(), offset)) {
+            byte[] expected = Arrays.copyOfRange(content, (int) offset, content.length);
+            Assert.assertArrayEquals(path + " from " + offset, expected, in.readAllBytes());
+        }
+    }
+
+    private static byte[] content() {
+        StringBuilder rows = new StringBuilder("id,name\n");
+        for (int i = 0; i < 500; i++) rows.append(i).append(",name-").append(i).append('\n');
+        return rows.toString().getBytes(UTF_8);
+    }
+
+    // BGZF: one gzip member with a "BC" extra subfield holding its size per block of uncompressed content
+    private static List<long[]> writeBgzf(Path path, byte[] content) throws IOException {
+        List<long[]> blocks = new ArrayList<>();
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        for (int start = 0; start < content.length; start += BLOCK) {
+            int length = Math.min(BLOCK, content.length - start);
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            deflater.setInput(content, start, length);
+            deflater.finish();
+            byte[] deflated = new byte[length + 1024];
+            int deflatedLength = deflater.deflate(deflated);
+            deflater.end();
+            CRC32 crc = new CRC32();
+            crc.update(content, start, length);
+
+            ByteBuffer block = ByteBuffer.allocate(18 + deflatedLength + 8).order(ByteOrder.LITTLE_ENDIAN);
+            block.put(new byte[]{31, (byte) 139, 8, 4, 0, 0, 0, 0, 0, (byte) 255});
+            block.putShort((short) 6).put((byte) 'B').put((byte) 'C').putShort((short) 2).putShort((short) (block.capacity() - 1));
+            block.put(deflated, 0, deflatedLength);
+            block.putInt((int) crc.getValue()).putInt(length);
+            blocks.add(new long[]{file.size(), start});
+            file.write(block.array());
+        }
+        Files.write(path, file.toByteArray());
+        return blocks;
+    }
+
+    private static void writeIndex(Path path, List<long[]> blocks) throws IOException {
+        ByteBuffer index = ByteBuffer.allocate(8 + 16 * (blocks.size() - 1)).order(ByteOrder.LITTLE_ENDIAN);
+        index.putLong(blocks.size() - 1);
+        for (long[] block : blocks.subList(1, blocks.size())) index.putLong(block[0]).putLong(block[1]);
+        Files.write(path, index.array());
+    }
+}
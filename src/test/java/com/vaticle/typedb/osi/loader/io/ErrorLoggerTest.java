@@ -16,8 +16,17 @@
 
 package com.vaticle.typedb.osi.loader.io;
 
+import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
 public class ErrorLoggerTest {
 
     @Test
@@ -28,4 +37,107 @@ public class ErrorLoggerTest {
         logger.logInvalid("entities.tsv", "shucks! There was a invalid row error");
     }
 
+    @Test
+    public void concurrentFileLogger() throws InterruptedException, IOException {
+        FileLogger logger = FileLogger.getLogger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    logger.logColumnWarnings("concurrent.csv", "thread-" + thread + ",row-" + i + ",null");
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        logger.flush();
+
+        File directory = new File(logger.getDirectory());
+        List<String> lines = Files.readAllLines(new File(directory, "concurrent_column_type.log").toPath());
+        Assert.assertEquals(4000, lines.size());
+        Assert.assertTrue(lines.contains("thread-3,row-999,"));
+    }
+
+    @Test
+    public void structuredErrorRecords() throws IOException {
+        FileLogger logger = FileLogger.getLogger();
+        String[] header = new String[]{"id", "name", "age"};
+        String[] first = new String[]{"1", null, "null"};
+        String[] second = new String[]{"2", "b,c", "x"};
+        String[] third = new String[]{"3", "c", "y"};
+        RowContext.bind(header, Arrays.asList(first, second, third), new long[]{2, 5, 9});
+        try {
+            logger.logInvalid("src/test/resources/structured.csv", first, ',');
+            logger.logColumnWarnings("src/test/resources/structured.csv", third, ',');
+            logger.logNoMatches("src/test/resources/structured.csv", Arrays.asList(second, first), ',');
+        } finally {
+            RowContext.clear();
+        }
+        logger.flush();
+
+        Map<String, List<ErrorRecord>> records = ErrorRecord.readReplayable(logger.getDirectory() + "/" + ErrorRecord.FILE_NAME);
+        List<ErrorRecord> replayable = records.get("src/test/resources/structured.csv");
+        // the column type warning is not replayed, the row logged twice is replayed once - in line order
+        Assert.assertEquals(2, replayable.size());
+        Assert.assertEquals(2, replayable.get(0).getLine());
+        Assert.assertEquals(ErrorRecord.Reason.INVALID, replayable.get(0).getReason());
+        Assert.assertArrayEquals(first, replayable.get(0).getCells());
+        Assert.assertArrayEquals(header, replayable.get(0).getHeader());
+        Assert.assertEquals(5, replayable.get(1).getLine());
+        Assert.assertEquals(ErrorRecord.Reason.NO_MATCHES, replayable.get(1).getReason());
+        Assert.assertArrayEquals(second, replayable.get(1).getCells());
+
+        List<String> lines = Files.readAllLines(new File(logger.getDirectory(), "structured_no_matches.log").toPath());
+        Assert.assertEquals(List.of("2,b,c,x", "1,,"), lines);
+    }
+
+    @Test
+    public void deferredLogs() throws IOException {
+        FileLogger logger = FileLogger.getLogger();
+        String[] rolledBack = new String[]{"rolled", "back"};
+        String[] committed = new String[]{"committed", "row"};
+        List<String[]> failed = new ArrayList<>();
+        RowContext.bind(new String[]{"a", "b"}, Arrays.asList(rolledBack, committed), new long[]{2, 3}, failed::add);
+        try {
+            // a first attempt, rolled back
+            FileLogger.deferLogs();
+            logger.logInvalid("src/test/resources/deferred.csv", rolledBack, ',');
+            FileLogger.discardDeferredLogs();
+            Assert.assertTrue(failed.isEmpty());
+            // a second attempt, committed
+            FileLogger.deferLogs();
+            logger.logInvalid("src/test/resources/deferred.csv", committed, ',');
+            Assert.assertTrue(failed.isEmpty());
+            FileLogger.emitDeferredLogs();
+        } finally {
+            RowContext.clear();
+        }
+        logger.flush();
+
+        Assert.assertEquals(1, failed.size());
+        Assert.assertSame(committed, failed.get(0));
+        List<String> lines = Files.readAllLines(new File(logger.getDirectory(), "deferred_invalid.log").toPath());
+        Assert.assertEquals(List.of("committed,row"), lines);
+        List<ErrorRecord> records = ErrorRecord.readReplayable(logger.getDirectory() + "/" + ErrorRecord.FILE_NAME).get("src/test/resources/deferred.csv");
+        Assert.assertEquals(1, records.size());
+        Assert.assertEquals(3, records.get(0).getLine());
+    }
+
+    @Test
+    public void drainerSurvivesFailingEntries() throws IOException {
+        FileLogger logger = FileLogger.getLogger();
+        logger.logInvalid("survivor.csv", (String) null);
+        // more lines than the queue holds: the caller waits for the drainer rather than queueing them all
+        for (int i = 0; i < 100_000; i++) {
+            logger.logInvalid("survivor.csv", "row-" + i);
+        }
+        logger.flush();
+
+        List<String> lines = Files.readAllLines(new File(logger.getDirectory(), "survivor_invalid.log").toPath());
+        Assert.assertEquals(100_001, lines.size());
+        Assert.assertEquals("row-99999", lines.get(100_000));
+    }
 }
@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vaticle.typedb.osi.loader.io;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class LineReaderTest {
+
+    @Test
+    public void sameLinesAsBufferedReaderTest() throws IOException {
+        StringBuilder longLine = new StringBuilder();
+        while (longLine.length() < 70_000) longLine.append("\u00e9l\u00e8ve,");
+        List<String> inputs = List.of(
+                "",
+                "a,b,c",
+                "a,b,c\n",
+                "a\r\nb\rc\n\nd",
+                "h\u00e9,\u4e2d\u6587\r\n\r\n",
+                longLine + "\nx",
+                // a "\r\n" split over two buffers
+                "x".repeat((1 << 16) - 1) + "\r\ny\n"
+        );
+        for (String input : inputs) {
+            byte[] bytes = input.getBytes(UTF_8);
+            LineReader reader = new LineReader(new ByteArrayInputStream(bytes), 0);
+            List<String> lines = new ArrayList<>();
+            String line;
+            while ((line = reader.readLine()) != null) lines.add(line);
+            Assert.assertEquals(new BufferedReader(new StringReader(input)).lines().collect(Collectors.toList()), lines);
+            Assert.assertEquals(bytes.length, reader.offset());
+        }
+    }
+
+    @Test
+    public void offsetsTest() throws IOException {
+        byte[] bytes = "id,name\n1,\u00e9\r\n2,b\n3,c".getBytes(UTF_8);
+        LineReader reader = new LineReader(new ByteArrayInputStream(bytes), 0);
+        Assert.assertTrue(reader.skipLine());
+        Assert.assertEquals(8, reader.offset());
+        Assert.assertEquals("1,\u00e9", reader.readLine());
+        Assert.assertEquals(14, reader.offset());
+
+        // resuming from an offset continues with the same lines and offsets
+        LineReader resumed = new LineReader(new ByteArrayInputStream(bytes, 14, bytes.length - 14), 14);
+        Assert.assertEquals("2,b", resumed.readLine());
+        Assert.assertEquals(18, resumed.offset());
+        Assert.assertEquals("3,c", resumed.readLine());
+        Assert.assertNull(resumed.readLine());
+        Assert.assertFalse(resumed.skipLine());
+    }
+
+    @Test
+    public void completeLinesTest() throws IOException {
+        // a file being appended to: reads see its end until more is written
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        InputStream growing = new InputStream() {
+            private int read;
+
+            @Override
+            public int read() {
+                return read < file.size() ? file.toByteArray()[read++] & 0xff : -1;
+            }
+        };
+        LineReader reader = new LineReader(growing, 0);
+        file.write("a,b\n1,\u00e9".getBytes(UTF_8));
+        Assert.assertEquals("a,b", reader.readCompleteLine());
+        Assert.assertNull(reader.readCompleteLine());
+        Assert.assertEquals(4, reader.offset());
+
+        file.write("t\r".getBytes(UTF_8));
+        Assert.assertEquals("1,\u00e9t", reader.readCompleteLine());
+        Assert.assertNull(reader.readCompleteLine());
+
+        // the "\n" of a "\r\n" written later is not an empty line
+        file.write("\n2,c\n".getBytes(UTF_8));
+        Assert.assertEquals("2,c", reader.readCompleteLine());
+        Assert.assertEquals(file.size(), reader.offset());
+        Assert.assertNull(reader.readCompleteLine());
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vaticle.typedb.osi.loader.io;
+
+import com.google.gson.Gson;
+import com.vaticle.typedb.osi.loader.util.Util;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class ReplaySourceTest {
+
+    @Test
+    public void recordedHeaderTest() throws IOException {
+        Path directory = Files.createTempDirectory("replay");
+        String gone = directory.resolve("gone.csv").toString();
+        String[] header = new String[]{"id", "name"};
+        Gson gson = new Gson();
+        Path errorLog = Files.write(directory.resolve(ErrorRecord.FILE_NAME), List.of(
+                gson.toJson(new ErrorRecord(gone, 3, ErrorRecord.Reason.NO_MATCHES, header, new String[]{"1", "a"})),
+                gson.toJson(new ErrorRecord(directory.resolve("loaded.csv").toString(), 2, ErrorRecord.Reason.MALFORMED, header, new String[]{"2", "b"}))));
+        try {
+            Assert.assertFalse(ReplaySource.isReplaying());
+            Assert.assertEquals(1, ReplaySource.load(errorLog.toString()).size());
+            Assert.assertTrue(ReplaySource.isReplaying());
+            Assert.assertTrue(ReplaySource.hasRecords(gone));
+            // rows that were loaded are not replayed, so their file is not needed
+            Assert.assertFalse(ReplaySource.hasRecords(directory.resolve("loaded.csv").toString()));
+            // the file is gone: its header is the one its rows were recorded with
+            Assert.assertArrayEquals(header, Util.getFileHeader(gone, ','));
+            Assert.assertNull(ReplaySource.header(directory.resolve("other.csv").toString()));
+        } finally {
+            ReplaySource.clear();
+        }
+    }
+}
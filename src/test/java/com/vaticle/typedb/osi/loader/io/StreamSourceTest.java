@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vaticle.typedb.osi.loader.io;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class StreamSourceTest {
+
+    @Test
+    public void isStreamTest() throws IOException {
+        Path directory = Files.createTempDirectory("streams");
+        Path file = Files.writeString(directory.resolve("data.csv"), "a,b\n");
+        Assert.assertTrue(StreamSource.isStream("-"));
+        Assert.assertFalse(StreamSource.isStream(file.toString()));
+        Assert.assertFalse(StreamSource.isStream(directory.toString()));
+        Assert.assertFalse(StreamSource.isStream(directory.resolve("missing.csv").toString()));
+    }
+
+    @Test
+    public void stdinTest() throws IOException {
+        InputStream stdin = System.in;
+        try {
+            System.setIn(new ByteArrayInputStream("id,name\n1,a\n2,b\n".getBytes(UTF_8)));
+            // the header can be read any number of times, before the rows are read once
+            Assert.assertEquals("id,name", StreamSource.header("-"));
+            Assert.assertEquals("id,name", StreamSource.header("-"));
+            LineReader reader = StreamSource.take("-");
+            Assert.assertEquals("1,a", reader.readLine());
+            Assert.assertEquals("2,b", reader.readLine());
+            Assert.assertNull(reader.readLine());
+            try {
+                StreamSource.take("-");
+                Assert.fail("a stream can only be read once");
+            } catch (IOException expected) {
+            }
+        } finally {
+            System.setIn(stdin);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.vaticle.typedb.osi.loader.loader;
+
+import com.vaticle.typedb.client.api.TypeDBTransaction;
+import com.vaticle.typedb.osi.loader.generator.Generator;
+import com.vaticle.typedb.osi.loader.io.ErrorRecord;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class AsyncLoaderWorkerTest {
+
+    @Test
+    public void replayedCellsTest() {
+        Generator gen = new HeaderGenerator(new String[]{"id", "name", "age"}, new int[]{0, 1});
+        Map<List<String>, int[]> columns = new HashMap<>();
+
+        String[] cells = new String[]{"1", "a", "5"};
+        Assert.assertSame(cells, AsyncLoaderWorker.replayedCells(record(new String[]{"id", "name", "age"}, cells), gen, columns));
+        // the file was exported again with its columns reordered
+        Assert.assertArrayEquals(new String[]{"1", "a", "5"},
+                AsyncLoaderWorker.replayedCells(record(new String[]{"name", "age", "id"}, new String[]{"a", "5", "1"}), gen, columns));
+        // a column the generator does not read may be missing
+        Assert.assertArrayEquals(new String[]{"1", "a", null},
+                AsyncLoaderWorker.replayedCells(record(new String[]{"id", "name"}, new String[]{"1", "a"}), gen, columns));
+        // a column it reads may not: the row would be loaded into the wrong attributes
+        Assert.assertNull(AsyncLoaderWorker.replayedCells(record(new String[]{"id", "full-name", "age"}, new String[]{"1", "a", "5"}), gen, columns));
+        Assert.assertNull(AsyncLoaderWorker.replayedCells(record(new String[]{"id", "full-name", "age"}, new String[]{"2", "b", "6"}), gen, columns));
+        Assert.assertNull(AsyncLoaderWorker.replayedCells(record(null, new String[]{"1", "a", "5"}), gen, columns));
+    }
+
+    private static ErrorRecord record(String[] header, String[] cells) {
+        return new ErrorRecord("persons.csv", 2, ErrorRecord.Reason.NO_MATCHES, header, cells);
+    }
+
+    private static class HeaderGenerator implements Generator {
+        private final String[] header;
+        private final int[] columns;
+
+        private HeaderGenerator(String[] header, int[] columns) {
+            this.header = header;
+            this.columns = columns;
+        }
+
+        @Override
+        public void write(TypeDBTransaction tx, String[] row, boolean allowMultiInsert) {
+        }
+
+        @Override
+        public char getFileSeparator() {
+            return ',';
+        }
+
+        @Override
+        public String[] getHeader() {
+            return header;
+        }
+
+        @Override
+        public int[] getColumns() {
+            return columns;
+        }
+    }
+}
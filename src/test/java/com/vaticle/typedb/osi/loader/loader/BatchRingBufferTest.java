@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.vaticle.typedb.osi.loader.loader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class BatchRingBufferTest {
+
+    @Test
+    public void ringBufferHandOffTest() throws InterruptedException {
+        BatchRingBuffer ring = new BatchRingBuffer(6, 10);
+        Assert.assertEquals(8, ring.capacity());
+
+        int writers = 4;
+        int rows = 100_003;
+        AtomicLong received = new AtomicLong();
+        AtomicLong checksum = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < writers; i++) {
+            Thread thread = new Thread(() -> {
+                BatchRingBuffer.Batch batch;
+                while ((batch = ring.take()) != null) {
+                    for (String[] row : batch.rows()) {
+                        received.incrementAndGet();
+                        checksum.addAndGet(Long.parseLong(row[0]));
+                    }
+                    ring.release(batch);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        BatchRingBuffer.Batch batch = null;
+        for (int i = 0; i < rows; i++) {
+            if (batch == null) batch = ring.claim();
+            batch.rows().add(new String[]{Integer.toString(i)});
+            if (batch.rows().size() == 10) {
+                ring.publish(batch);
+                batch = null;
+            }
+        }
+        if (batch != null) ring.publish(batch);
+        ring.close();
+        for (Thread thread : threads) thread.join(10_000);
+
+        // every row handed to exactly one writer, and all writers saw the end of the stream
+        Assert.assertEquals(rows, received.get());
+        Assert.assertEquals((long) rows * (rows - 1) / 2, checksum.get());
+        for (Thread thread : threads) Assert.assertFalse(thread.isAlive());
+    }
+
+    @Test
+    public void ringBufferAbortTest() {
+        BatchRingBuffer ring = new BatchRingBuffer(2, 1);
+        ring.publish(ring.claim());
+        ring.publish(ring.claim());
+        ring.abort();
+        // a full ring no longer blocks the reader, and writers stop without draining
+        Assert.assertNull(ring.claim());
+        Assert.assertNull(ring.take());
+    }
+
+    @Test
+    public void sharedAbortTest() throws InterruptedException {
+        AtomicBoolean aborted = new AtomicBoolean();
+        BatchRingBuffer full = new BatchRingBuffer(2, 1, aborted);
+        BatchRingBuffer failing = new BatchRingBuffer(2, 1, aborted);
+        full.publish(full.claim());
+        full.publish(full.claim());
+        failing.publish(failing.claim());
+
+        // the reader waits for a slot of the full ring, whose writer never releases one
+        AtomicReference<BatchRingBuffer.Batch> claimed = new AtomicReference<>();
+        CountDownLatch returned = new CountDownLatch(1);
+        Thread reader = new Thread(() -> {
+            claimed.set(full.claim());
+            returned.countDown();
+        });
+        reader.start();
+        Assert.assertFalse(returned.await(100, TimeUnit.MILLISECONDS));
+
+        // the writer of the other ring fails
+        Thread writer = new Thread(() -> {
+            BatchRingBuffer.Batch batch = failing.take();
+            Assert.assertNotNull(batch);
+            failing.abort();
+        });
+        writer.start();
+        writer.join(10_000);
+        Assert.assertTrue(returned.await(10, TimeUnit.SECONDS));
+        Assert.assertNull(claimed.get());
+        Assert.assertNull(full.take());
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.vaticle.typedb.osi.loader.loader;
+
+import com.vaticle.typedb.client.api.TypeDBSession;
+import com.vaticle.typedb.client.api.TypeDBTransaction;
+import com.vaticle.typedb.client.common.exception.ErrorMessage;
+import com.vaticle.typedb.client.common.exception.TypeDBClientException;
+import com.vaticle.typedb.osi.loader.generator.Generator;
+import com.vaticle.typedb.osi.loader.io.FileLogger;
+import com.vaticle.typedb.osi.loader.metrics.FileMetrics;
+import com.vaticle.typedb.osi.loader.metrics.MetricsRegistry;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+public class BatchWriterTest {
+
+    private static final String CONFLICT = "[TYR03] Could not commit: transaction conflict";
+    private static final String INVALID = "[THW03] Invalid Thing Write: attribute 'connection-id' is not owned by 'call'";
+
+    @Test
+    public void transientErrorRetriedTest() throws InterruptedException {
+        FakeServer server = new FakeServer();
+        server.conflicts.set(2);
+        FileMetrics metrics = metrics("transient");
+        try (BatchWriter writer = new BatchWriter(server::open, 5, false, 1)) {
+            writer.write(1, "transient.csv", server, rows("a", "b", "c"), metrics);
+        }
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), server.committed);
+        Assert.assertEquals(3, server.commits.get());
+        Assert.assertEquals(2, metrics.getRetries());
+        Assert.assertEquals(3, metrics.getRowsInserted());
+    }
+
+    @Test
+    public void invalidRowBisectedWithoutBackoffTest() throws InterruptedException {
+        FakeServer server = new FakeServer();
+        server.invalid = "bad";
+        FileMetrics metrics = metrics("invalid");
+        long start = System.nanoTime();
+        try (BatchWriter writer = new BatchWriter(server::open, 5, false, 10_000)) {
+            writer.write(1, "invalid.csv", server, rows("a", "b", "bad", "c", "d"), metrics);
+        }
+        // a backoff would have slept for seconds
+        Assert.assertTrue(System.nanoTime() - start < 2_000_000_000L);
+        FileLogger.flushLogs();
+        Assert.assertEquals(Arrays.asList("a", "b", "c", "d"), server.committed);
+        Assert.assertEquals(0, metrics.getRetries());
+        Assert.assertEquals(4, metrics.getRowsInserted());
+    }
+
+    @Test
+    public void transientErrorsExhaustedBisectedTest() throws InterruptedException {
+        FakeServer server = new FakeServer();
+        server.conflicts.set(Integer.MAX_VALUE);
+        FileMetrics metrics = metrics("exhausted");
+        try (BatchWriter writer = new BatchWriter(server::open, 1, false, 1)) {
+            writer.write(1, "exhausted.csv", server, rows("a", "b"), metrics);
+        }
+        FileLogger.flushLogs();
+        // every batch is tried twice: the two rows, then each row alone
+        Assert.assertEquals(6, server.commits.get());
+        Assert.assertEquals(3, metrics.getRetries());
+        Assert.assertTrue(server.committed.isEmpty());
+    }
+
+    @Test
+    public void sessionReopenedTest() throws InterruptedException {
+        FakeServer server = new FakeServer();
+        FileMetrics metrics = metrics("restart");
+        try (BatchWriter writer = new BatchWriter(server::open, 5, false, 1)) {
+            writer.write(1, "restart.csv", server, rows("a"), metrics);
+            server.restart(1);
+            writer.write(1, "restart.csv", server, rows("b", "c"), metrics);
+        }
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), server.committed);
+        // the first session, a failed reopening while the server is down, then a new session
+        Assert.assertEquals(3, server.opened.get());
+        Assert.assertEquals(1, metrics.getRetries());
+    }
+
+    @Test
+    public void sessionNotReopenedTest() throws InterruptedException {
+        FakeServer server = new FakeServer();
+        FileMetrics metrics = metrics("down");
+        try (BatchWriter writer = new BatchWriter(server::open, 2, false, 1)) {
+            server.restart(Integer.MAX_VALUE);
+            writer.write(1, "down.csv", server, rows("a", "b"), metrics);
+            Assert.fail();
+        } catch (TypeDBClientException expected) {
+            Assert.assertEquals(2, metrics.getRetries());
+            Assert.assertTrue(server.committed.isEmpty());
+        }
+    }
+
+    private static FileMetrics metrics(String name) {
+        return MetricsRegistry.getRegistry().generator("batch-writer-test").file(name + ".csv");
+    }
+
+    private static List<String[]> rows(String... cells) {
+        List<String[]> rows = new ArrayList<>();
+        for (String cell : cells) rows.add(new String[]{cell});
+        return rows;
+    }
+
+    // a server and generator in one: rows are written to the transaction, and kept once it commits
+    private static class FakeServer implements Generator {
+        private final List<String> committed = new ArrayList<>();
+        private final AtomicInteger commits = new AtomicInteger();
+        private final AtomicInteger conflicts = new AtomicInteger();
+        private final AtomicInteger opened = new AtomicInteger();
+        private final AtomicInteger down = new AtomicInteger();
+        private String invalid;
+        private boolean[] sessionOpen = new boolean[]{false};
+        private List<String> written;
+
+        private void restart(int unavailableOpens) {
+            sessionOpen[0] = false;
+            down.set(unavailableOpens);
+        }
+
+        private TypeDBSession open() {
+            opened.incrementAndGet();
+            if (down.getAndUpdate(left -> left > 0 ? left - 1 : 0) > 0) {
+                throw new TypeDBClientException(ErrorMessage.Client.UNABLE_TO_CONNECT);
+            }
+            boolean[] open = new boolean[]{true};
+            sessionOpen = open;
+            Supplier<TypeDBTransaction> transactions = () -> {
+                if (!open[0]) throw new TypeDBClientException(ErrorMessage.Client.SESSION_CLOSED);
+                written = new ArrayList<>();
+                return (TypeDBTransaction) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{TypeDBTransaction.class},
+                        (proxy, method, args) -> {
+                            if (method.getName().equals("commit")) {
+                                commits.incrementAndGet();
+                                if (!open[0]) throw new TypeDBClientException(ErrorMessage.Client.SESSION_CLOSED);
+                                if (conflicts.getAndUpdate(left -> left > 0 ? left - 1 : 0) > 0) {
+                                    throw new TypeDBClientException(CONFLICT, null);
+                                }
+                                committed.addAll(written);
+                            }
+                            return null;
+                        });
+            };
+            return (TypeDBSession) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{TypeDBSession.class},
+                    (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "transaction":
+                                return transactions.get();
+                            case "isOpen":
+                                return open[0];
+                            case "close":
+                                open[0] = false;
+                                return null;
+                            default:
+                                return null;
+                        }
+                    });
+        }
+
+        @Override
+        public void write(TypeDBTransaction tx, String[] row, boolean allowMultiInsert) {
+            if (row[0].equals(invalid)) throw new TypeDBClientException(INVALID, null);
+            written.add(row[0]);
+        }
+
+        @Override
+        public char getFileSeparator() {
+            return ',';
+        }
+
+        @Override
+        public String[] getHeader() {
+            return new String[]{"cell"};
+        }
+
+        @Override
+        public int[] getColumns() {
+            return new int[]{0};
+        }
+    }
+}
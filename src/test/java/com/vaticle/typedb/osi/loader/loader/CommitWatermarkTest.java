@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vaticle.typedb.osi.loader.loader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CommitWatermarkTest {
+
+    @Test
+    public void outOfOrderCommitsTest() {
+        // every line is 10 bytes long, the header included
+        CommitWatermark watermark = new CommitWatermark(1, 10);
+        watermark.dispatched(2, 10);
+        watermark.dispatched(12, 110);
+        watermark.dispatched(22, 210);
+        assertSnapshot(watermark, 1, 10);
+
+        // later batches committed first do not move the watermark past the oldest one in flight
+        watermark.committed(22, 31, 310);
+        watermark.committed(12, 21, 210);
+        assertSnapshot(watermark, 1, 10);
+
+        watermark.committed(2, 11, 110);
+        assertSnapshot(watermark, 31, 310);
+
+        watermark.dispatched(32, 310);
+        assertSnapshot(watermark, 31, 310);
+        watermark.committed(32, 35, 350);
+        assertSnapshot(watermark, 35, 350);
+    }
+
+    @Test
+    public void resumedWatermarkTest() {
+        CommitWatermark watermark = new CommitWatermark(1001, 10_010);
+        assertSnapshot(watermark, 1001, 10_010);
+        watermark.dispatched(1002, 10_010);
+        assertSnapshot(watermark, 1001, 10_010);
+    }
+
+    @Test
+    public void committedRangesTest() {
+        CommitWatermark watermark = new CommitWatermark(1, 10);
+        watermark.dispatched(2, 10);
+        watermark.dispatched(12, 110);
+        watermark.dispatched(22, 210);
+        watermark.dispatched(32, 310);
+        watermark.committed(12, 21, 210);
+        watermark.committed(22, 31, 310);
+        // partitioned dispatch: a batch of every other line
+        watermark.committed(new long[]{32, 34, 35, 38}, 4, 390);
+        CommitWatermark.Snapshot snapshot = watermark.snapshot();
+        Assert.assertEquals(1, snapshot.getCommittedLine());
+        assertRanges(snapshot, new long[][]{{12, 32}, {34, 35}, {38, 38}});
+
+        // ranges the watermark has passed are dropped
+        watermark.committed(2, 11, 110);
+        snapshot = watermark.snapshot();
+        Assert.assertEquals(38, snapshot.getCommittedLine());
+        Assert.assertEquals(0, snapshot.getCommittedRanges().length);
+    }
+
+    @Test
+    public void resumedRangesTest() {
+        CommitWatermark watermark = new CommitWatermark(11, 110, new long[][]{{22, 31}, {42, 51}});
+        assertRanges(watermark.snapshot(), new long[][]{{22, 31}, {42, 51}});
+        // the rows in between are loaded again, those of the ranges skipped
+        watermark.dispatched(12, 110);
+        watermark.committed(12, 21, 210);
+        CommitWatermark.Snapshot snapshot = watermark.snapshot();
+        Assert.assertEquals(21, snapshot.getCommittedLine());
+        assertRanges(snapshot, new long[][]{{22, 31}, {42, 51}});
+        watermark.dispatched(32, 310);
+        watermark.dispatched(52, 510);
+        watermark.committed(52, 61, 610);
+        // the resumed range right before the oldest batch in flight is covered by the watermark
+        snapshot = watermark.snapshot();
+        Assert.assertEquals(31, snapshot.getCommittedLine());
+        Assert.assertEquals(310, snapshot.getCommittedOffset());
+        assertRanges(snapshot, new long[][]{{42, 61}});
+        watermark.committed(32, 41, 410);
+        snapshot = watermark.snapshot();
+        Assert.assertEquals(61, snapshot.getCommittedLine());
+        Assert.assertEquals(610, snapshot.getCommittedOffset());
+        Assert.assertEquals(0, snapshot.getCommittedRanges().length);
+    }
+
+    @Test
+    public void consistentSnapshotTest() throws InterruptedException {
+        // every line is 10 bytes long: the line after line n starts at 10 * n
+        CommitWatermark watermark = new CommitWatermark(1, 10);
+        Thread writer = new Thread(() -> {
+            for (long line = 2; line < 200_000; line++) {
+                watermark.dispatched(line, 10 * (line - 1));
+                watermark.committed(line, line, 10 * line);
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            CommitWatermark.Snapshot snapshot = watermark.snapshot();
+            Assert.assertEquals(10 * snapshot.getCommittedLine(), snapshot.getCommittedOffset());
+        }
+        writer.join();
+    }
+
+    private static void assertSnapshot(CommitWatermark watermark, long committedLine, long committedOffset) {
+        CommitWatermark.Snapshot snapshot = watermark.snapshot();
+        Assert.assertEquals(committedLine, snapshot.getCommittedLine());
+        Assert.assertEquals(committedOffset, snapshot.getCommittedOffset());
+    }
+
+    private static void assertRanges(CommitWatermark.Snapshot snapshot, long[][] ranges) {
+        Assert.assertEquals(ranges.length, snapshot.getCommittedRanges().length);
+        for (int i = 0; i < ranges.length; i++) Assert.assertArrayEquals(ranges[i], snapshot.getCommittedRanges()[i]);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vaticle.typedb.osi.loader.loader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class WriterGateTest {
+
+    @Test
+    public void limitTest() throws InterruptedException {
+        WriterGate gate = new WriterGate(4);
+        Assert.assertEquals(4, gate.setLimit(10));
+        Assert.assertEquals(1, gate.setLimit(0));
+        gate.setLimit(2);
+        gate.acquire();
+        gate.acquire();
+        CountDownLatch admitted = new CountDownLatch(1);
+        Thread third = new Thread(() -> {
+            try {
+                gate.acquire();
+                admitted.countDown();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        third.start();
+        Assert.assertFalse(admitted.await(100, TimeUnit.MILLISECONDS));
+        gate.release();
+        Assert.assertTrue(admitted.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(2, gate.getActive());
+        third.join();
+    }
+
+    @Test
+    public void pauseTest() throws InterruptedException {
+        WriterGate gate = new WriterGate(4);
+        gate.pause();
+        AtomicInteger writes = new AtomicInteger();
+        Thread writer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 3; i++) {
+                    gate.acquire();
+                    writes.incrementAndGet();
+                    gate.release();
+                }
+            } catch (InterruptedException ignored) {
+            }
+        });
+        writer.start();
+        Thread.sleep(100);
+        Assert.assertEquals(0, writes.get());
+        Assert.assertTrue(gate.isPaused());
+        gate.resume();
+        writer.join(5_000);
+        Assert.assertEquals(3, writes.get());
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vaticle.typedb.osi.loader.metrics;
+
+import com.vaticle.typedb.osi.loader.io.ErrorRecord;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HistogramTest {
+
+    @Test
+    public void bucketsTest() {
+        long[] values = new long[]{0, 1, 31, 32, 33, 63, 64, 1000, 123_456_789, Long.MAX_VALUE};
+        for (long value : values) {
+            int index = Histogram.index(value);
+            Assert.assertTrue(Histogram.lowestValue(index) <= value);
+            Assert.assertTrue(index + 1 == (64 - 5) * 32 || Histogram.lowestValue(index + 1) > value);
+        }
+        for (int index = 1; index < (64 - 5) * 32; index++) {
+            Assert.assertEquals(index, Histogram.index(Histogram.lowestValue(index)));
+            Assert.assertEquals(index - 1, Histogram.index(Histogram.lowestValue(index) - 1));
+        }
+    }
+
+    @Test
+    public void percentilesTest() {
+        Histogram histogram = new Histogram();
+        Assert.assertEquals(0, histogram.percentile(50));
+        for (long value = 1; value <= 100_000; value++) histogram.record(value * 1000);
+        Assert.assertEquals(100_000, histogram.getCount());
+        Assert.assertEquals(100_000_000L, histogram.getMax());
+        Assert.assertEquals(50_000_500.0, histogram.getMean(), 0.001);
+        Assert.assertEquals(50_000_000, histogram.percentile(50), 50_000_000 * 0.03);
+        Assert.assertEquals(99_000_000, histogram.percentile(99), 99_000_000 * 0.03);
+        Assert.assertEquals(100_000_000L, histogram.percentile(100));
+    }
+
+    @Test
+    public void cumulativeCountsTest() {
+        Histogram histogram = new Histogram();
+        for (long value = 0; value < 10_000; value += 7) histogram.record(value);
+        long[] bounds = new long[]{-1, 0, 31, 100, 1000, 5000, 10_000, Long.MAX_VALUE};
+        long[] cumulative = histogram.cumulativeCounts(bounds);
+        Assert.assertEquals(bounds.length + 1, cumulative.length);
+        for (int i = 0; i < bounds.length; i++) {
+            Assert.assertEquals(histogram.countAtOrBelow(bounds[i]), cumulative[i]);
+        }
+        Assert.assertEquals(histogram.getCount(), cumulative[bounds.length]);
+    }
+
+    @Test
+    public void cumulativeCountsConsistentTest() throws InterruptedException {
+        Histogram histogram = new Histogram();
+        long[] bounds = new long[]{1000, 30_000};
+        Thread recorder = new Thread(() -> {
+            for (int i = 0; i < 1_000_000; i++) histogram.record(i % 20_000);
+        });
+        recorder.start();
+        while (recorder.isAlive()) {
+            long[] cumulative = histogram.cumulativeCounts(bounds);
+            Assert.assertTrue(cumulative[0] <= cumulative[1]);
+            Assert.assertEquals(cumulative[1], cumulative[2]);
+        }
+        recorder.join();
+    }
+
+    @Test
+    public void loggedRowsTest() {
+        FileMetrics file = MetricsRegistry.getRegistry().generator("histogram-test").file("data.csv");
+        MetricsRegistry.bind(file);
+        try {
+            StageTimer timer = StageTimer.reset();
+            MetricsRegistry.logged(ErrorRecord.Reason.NO_MATCHES, 2);
+            MetricsRegistry.logged(ErrorRecord.Reason.COLUMN_TYPE, 1);
+            file.committed(10, timer.getFailedRows());
+        } finally {
+            MetricsRegistry.clear();
+        }
+        Assert.assertEquals(8, file.getRowsInserted());
+        Assert.assertEquals(2, file.getRowsFailed());
+        Assert.assertEquals(1, file.getRowsLogged(ErrorRecord.Reason.COLUMN_TYPE));
+        Assert.assertEquals(2, file.getGenerator().getRowsLogged(ErrorRecord.Reason.NO_MATCHES));
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vaticle.typedb.osi.loader.metrics;
+
+import com.vaticle.typedb.osi.loader.io.FileToInputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+public class ProgressTest {
+
+    @Test
+    public void scopesTest() throws IOException {
+        Path directory = Files.createTempDirectory("progress");
+        Path first = directory.resolve("first.csv");
+        Path second = directory.resolve("second.csv");
+        Path third = directory.resolve("third.csv");
+        Files.write(first, new byte[1000]);
+        Files.write(second, new byte[3000]);
+        Files.write(third, new byte[4000]);
+
+        Progress progress = new Progress();
+        progress.add("a", first.toString());
+        progress.add("a", second.toString());
+        progress.add("b", third.toString());
+        progress.add("b", directory.resolve("missing.csv").toString());
+        Assert.assertEquals(8000, progress.overall().getTotal());
+        Assert.assertEquals(4000, progress.generator("a").getTotal());
+        Assert.assertNull(progress.file("b", directory.resolve("missing.csv").toString()));
+
+        progress.completed("a", first.toString());
+        progress.skipped("a", second.toString(), 1000);
+        progress.read("a", second.toString(), 2500);
+        Assert.assertEquals(2500, progress.file("a", second.toString()).getDone());
+        Assert.assertEquals(3500, progress.generator("a").getDone());
+        Assert.assertEquals(87.5, progress.generator("a").getPercent(), 0.001);
+        Assert.assertEquals(3500, progress.overall().getDone());
+        Assert.assertEquals(0, progress.generator("b").getDone());
+    }
+
+    @Test
+    public void rateTest() throws IOException, InterruptedException {
+        Path file = Files.createTempFile("progress", ".csv");
+        Files.write(file, new byte[1_000_000]);
+        Progress progress = new Progress();
+        progress.add("a", file.toString());
+        Progress.Estimate estimate = progress.overall();
+        Assert.assertEquals(-1, estimate.getBytesPerSecond(), 0);
+        Assert.assertEquals(-1, estimate.getSecondsLeft());
+
+        // skipped bytes were not read by this run
+        progress.skipped("a", file.toString(), 500_000);
+        Thread.sleep(50);
+        estimate = progress.overall();
+        Assert.assertEquals(0, estimate.getBytesPerSecond(), 0);
+
+        progress.read("a", file.toString(), 600_000);
+        Thread.sleep(50);
+        estimate = progress.overall();
+        Assert.assertTrue(estimate.getBytesPerSecond() > 0);
+        Assert.assertTrue(estimate.getSecondsLeft() > 0);
+        Assert.assertTrue(estimate.toString().contains("60.0% of 1.0 MB"));
+
+        progress.read("a", file.toString(), 1_000_000);
+        Assert.assertEquals(0, progress.overall().getSecondsLeft());
+    }
+
+    @Test
+    public void countedBytesTest() throws IOException {
+        Path directory = Files.createTempDirectory("progress");
+        Path plain = directory.resolve("data.csv");
+        Path gzip = directory.resolve("data.csv.gz");
+        byte[] content = new byte[200_000];
+        for (int i = 0; i < content.length; i++) content[i] = (byte) ('a' + i % 26);
+        Files.write(plain, content);
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzip))) {
+            out.write(content);
+        }
+
+        AtomicLong bytesRead = new AtomicLong();
+        try (InputStream in = FileToInputStream.getInputStream(plain.toString(), 1000, bytesRead)) {
+            Assert.assertEquals(1000, bytesRead.get());
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        Assert.assertEquals(content.length, bytesRead.get());
+
+        // compressed bytes are counted
+        try (InputStream in = FileToInputStream.getInputStream(gzip.toString(), 0, bytesRead)) {
+            Assert.assertEquals(content.length, in.transferTo(OutputStream.nullOutputStream()));
+        }
+        Assert.assertEquals(Files.size(gzip), bytesRead.get());
+    }
+}
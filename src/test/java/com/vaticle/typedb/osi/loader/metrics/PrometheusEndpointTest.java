@@ -0,0 +1,62 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vaticle.typedb.osi.loader.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class PrometheusEndpointTest {
+
+    @Test
+    public void scrapeTest() throws IOException {
+        GeneratorMetrics generator = MetricsRegistry.getRegistry().generator("prometheus \"test\"");
+        FileMetrics file = generator.file("data.csv");
+        file.read();
+        file.read();
+        file.committed(2, 0);
+        generator.stage(Stage.COMMIT).record(3_000_000);
+
+        try (PrometheusEndpoint endpoint = new PrometheusEndpoint(MetricsRegistry.getRegistry())) {
+            endpoint.gauge("typedb_loader_queue_batches", "Batches waiting.", () -> 3);
+            endpoint.start(0);
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + endpoint.getPort() + "/metrics").openConnection();
+            Assert.assertEquals(200, connection.getResponseCode());
+            Assert.assertTrue(connection.getContentType().startsWith("text/plain; version=0.0.4"));
+            String body;
+            try (InputStream in = connection.getInputStream()) {
+                body = new String(in.readAllBytes(), UTF_8);
+            }
+            String labels = "generator=\"prometheus \\\"test\\\"\"";
+            Assert.assertTrue(body, body.contains("typedb_loader_rows_read_total{" + labels + "} 2\n"));
+            Assert.assertTrue(body, body.contains("typedb_loader_rows_inserted_total{" + labels + "} 2\n"));
+            Assert.assertTrue(body, body.contains("typedb_loader_stage_seconds_bucket{" + labels + ",stage=\"commit\",le=\"0.0025\"} 0\n"));
+            Assert.assertTrue(body, body.contains("typedb_loader_stage_seconds_bucket{" + labels + ",stage=\"commit\",le=\"0.005\"} 1\n"));
+            Assert.assertTrue(body, body.contains("typedb_loader_stage_seconds_count{" + labels + ",stage=\"commit\"} 1\n"));
+            Assert.assertTrue(body, body.contains("# TYPE typedb_loader_queue_batches gauge\ntypedb_loader_queue_batches 3\n"));
+            Assert.assertTrue(body, body.contains("jvm_memory_bytes_used{area=\"heap\"} "));
+
+            HttpURLConnection other = (HttpURLConnection) new URL("http://127.0.0.1:" + endpoint.getPort() + "/other").openConnection();
+            Assert.assertEquals(404, other.getResponseCode());
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vaticle.typedb.osi.loader.metrics;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.vaticle.typedb.osi.loader.io.ErrorRecord;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+public class RunReportTest {
+
+    @Test
+    public void reportTest() throws IOException {
+        FileMetrics file = MetricsRegistry.getRegistry().generator("report-test").file("report.csv");
+        file.started(100, 4);
+        for (int i = 0; i < 250; i++) file.read();
+        file.skipped();
+        file.record(Stage.COMMIT, 2_000_000);
+        file.record(Stage.COMMIT, 4_000_000);
+        file.record(Stage.MATCH, 1_000_000);
+        file.committed(100, 0);
+        file.committed(149, 0);
+        MetricsRegistry.bind(file);
+        try {
+            MetricsRegistry.logged(ErrorRecord.Reason.NO_MATCHES, 3);
+        } finally {
+            MetricsRegistry.clear();
+        }
+        file.finished();
+
+        Path directory = Files.createTempDirectory("report");
+        Instant start = Instant.now();
+        Path path = RunReport.write(MetricsRegistry.getRegistry(), directory.toString(), "database", start, start.plusSeconds(2));
+        Assert.assertEquals(directory.resolve(RunReport.FILE_NAME), path);
+        JsonObject report;
+        try (Reader reader = Files.newBufferedReader(path, UTF_8)) {
+            report = new Gson().fromJson(reader, JsonObject.class);
+        }
+        Assert.assertEquals("database", report.get("database").getAsString());
+        Assert.assertEquals(2.0, report.get("durationSeconds").getAsDouble(), 0);
+
+        JsonObject generator = null;
+        for (int i = 0; i < report.getAsJsonArray("generators").size(); i++) {
+            JsonObject candidate = report.getAsJsonArray("generators").get(i).getAsJsonObject();
+            if (candidate.get("generator").getAsString().equals("report-test")) generator = candidate;
+        }
+        Assert.assertNotNull(generator);
+        Assert.assertEquals(250, generator.get("rowsRead").getAsLong());
+        Assert.assertEquals(249, generator.get("rowsInserted").getAsLong());
+        Assert.assertEquals(1, generator.get("rowsSkipped").getAsLong());
+        Assert.assertEquals(3, generator.get("rowsFailed").getAsLong());
+        Assert.assertEquals(3, generator.getAsJsonObject("rowsLogged").get("no_matches").getAsLong());
+        Assert.assertEquals(100, generator.getAsJsonObject("batchSize").get("configured").getAsInt());
+        Assert.assertEquals(124.5, generator.getAsJsonObject("batchSize").get("effective").getAsDouble(), 0);
+        Assert.assertEquals(4, generator.getAsJsonObject("concurrency").get("configured").getAsInt());
+
+        JsonObject commit = generator.getAsJsonObject("stages").getAsJsonObject("commit");
+        Assert.assertEquals(2, commit.get("count").getAsLong());
+        Assert.assertEquals(0.006, commit.get("totalSeconds").getAsDouble(), 0);
+        Assert.assertEquals(6.0 / 7, commit.get("share").getAsDouble(), 0.001);
+        Assert.assertEquals(4.0, commit.get("maxMillis").getAsDouble(), 0);
+        Assert.assertFalse(generator.getAsJsonObject("stages").has("insert"));
+
+        JsonObject fileReport = generator.getAsJsonArray("files").get(0).getAsJsonObject();
+        Assert.assertEquals("report.csv", fileReport.get("file").getAsString());
+        Assert.assertTrue(fileReport.get("finished").getAsBoolean());
+        Assert.assertEquals(249, fileReport.get("rowsInserted").getAsLong());
+        Assert.assertEquals(1, fileReport.getAsJsonObject("stages").getAsJsonObject("match").get("count").getAsLong());
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.vaticle.typedb.osi.loader.preprocessor;
+
+import com.google.gson.Gson;
+import com.vaticle.typedb.osi.loader.config.Configuration;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PreprocessorTest {
+
+    @Test
+    public void compiledRegexPreprocessorTest() {
+        Preprocessor pp = compile("{\"type\": \"regex\", \"parameters\": {\"regexMatch\": \"^.*(fakebook\\\\.com.*)/$\", \"regexReplace\": \"$1\"}}");
+        Assert.assertEquals("fakebook.com/personOne", pp.applyProcessor("https://www.fakebook.com/personOne/"));
+        Assert.assertEquals("personOne/", pp.applyProcessor("personOne/"));
+    }
+
+    @Test
+    public void stringPreprocessorsTest() {
+        Assert.assertEquals("a b", compile("{\"type\": \"trim\"}").applyProcessor("  a b\t"));
+        Assert.assertEquals("main street", compile("{\"type\": \"lowercase\"}").applyProcessor("Main STREET"));
+        Assert.assertEquals("INTEL", compile("{\"type\": \"uppercase\"}").applyProcessor("intel"));
+
+        Preprocessor strip = compile("{\"type\": \"strip\", \"parameters\": {\"prefix\": \"ID-\", \"suffix\": \"/\"}}");
+        Assert.assertEquals("42", strip.applyProcessor("ID-42/"));
+        Assert.assertEquals("42", strip.applyProcessor("42"));
+        Assert.assertEquals("", strip.applyProcessor("ID-"));
+        Assert.assertEquals("/", compile("{\"type\": \"strip\", \"parameters\": {\"prefix\": \"ID-\", \"suffix\": \"-\"}}").applyProcessor("ID-/"));
+
+        Preprocessor substring = compile("{\"type\": \"substring\", \"parameters\": {\"beginIndex\": 0, \"endIndex\": 10}}");
+        Assert.assertEquals("2021-01-01", substring.applyProcessor("2021-01-01 12:00:00"));
+        Assert.assertEquals("2021", substring.applyProcessor("2021"));
+        Assert.assertEquals("", compile("{\"type\": \"substring\", \"parameters\": {\"beginIndex\": 5}}").applyProcessor("abc"));
+
+        Preprocessor lookup = compile("{\"type\": \"lookup\", \"parameters\": {\"lookup\": {\"y\": \"true\", \"n\": \"false\"}}}");
+        Assert.assertEquals("true", lookup.applyProcessor("y"));
+        Assert.assertEquals("maybe", lookup.applyProcessor("maybe"));
+    }
+
+    @Test
+    public void invalidPreprocessorTest() {
+        String[] invalid = new String[]{
+                "{\"type\": \"soundex\"}",
+                "{\"parameters\": {}}",
+                "{\"type\": \"regex\", \"parameters\": {\"regexMatch\": \"(\", \"regexReplace\": \"\"}}",
+                "{\"type\": \"regex\", \"parameters\": {\"regexMatch\": \"a\"}}",
+                "{\"type\": \"strip\"}",
+                "{\"type\": \"substring\", \"parameters\": {\"beginIndex\": 3, \"endIndex\": 1}}",
+                "{\"type\": \"lookup\", \"parameters\": {}}"
+        };
+        for (String config : invalid) {
+            try {
+                compile(config);
+                Assert.fail("compiled invalid preprocessor " + config);
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    private static Preprocessor compile(String config) {
+        return Preprocessor.compile(new Gson().fromJson(config, Configuration.PreprocessorConfig.class));
+    }
+}
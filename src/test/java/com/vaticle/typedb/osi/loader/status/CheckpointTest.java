@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vaticle.typedb.osi.loader.status;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+public class CheckpointTest {
+
+    @Test
+    public void saveAndLoadTest() throws IOException {
+        Path directory = Files.createTempDirectory("checkpoint");
+        String path = directory.resolve("test.checkpoint.json").toString();
+
+        Checkpoint checkpoint = Checkpoint.create(path);
+        checkpoint.update("person", "src/test/resources/phoneCalls/person.csv", 20, 1_500, true);
+        checkpoint.update("call", "src/test/resources/phoneCalls/call.csv", 7, 700, false);
+        checkpoint.save();
+        checkpoint.update("call", "src/test/resources/phoneCalls/call.csv", 9, 900, new long[][]{{21, 30}, {41, 45}}, false);
+        checkpoint.save();
+
+        Checkpoint loaded = Checkpoint.load(path);
+        Assert.assertTrue(loaded.isCompleted("person", "src/test/resources/phoneCalls/person.csv"));
+        Assert.assertTrue(loaded.isCompleted("person", new String[]{"src/test/resources/phoneCalls/person.csv"}));
+        Assert.assertFalse(loaded.isCompleted("call", "src/test/resources/phoneCalls/call.csv"));
+        Assert.assertEquals(9, loaded.migratedRows("call", "src/test/resources/phoneCalls/call.csv"));
+        Assert.assertEquals(900, loaded.get("call", "src/test/resources/phoneCalls/call.csv").getByteOffset());
+        long[][] committedRanges = loaded.get("call", "src/test/resources/phoneCalls/call.csv").getCommittedRanges();
+        Assert.assertEquals(2, committedRanges.length);
+        Assert.assertArrayEquals(new long[]{41, 45}, committedRanges[1]);
+        Assert.assertEquals(0, loaded.get("person", "src/test/resources/phoneCalls/person.csv").getCommittedRanges().length);
+        Assert.assertEquals(0, loaded.migratedRows("call", "src/test/resources/phoneCalls/other.csv"));
+        Assert.assertEquals("call", loaded.get("call", "src/test/resources/phoneCalls/call.csv").getConceptName());
+
+        // no temporary files are left behind
+        try (Stream<Path> files = Files.list(directory)) {
+            Assert.assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    public void missingCheckpointTest() throws IOException {
+        Path directory = Files.createTempDirectory("checkpoint");
+        Checkpoint checkpoint = Checkpoint.load(directory.resolve("none.json").toString());
+        Assert.assertFalse(checkpoint.isCompleted("person", "person.csv"));
+        Assert.assertEquals(0, checkpoint.migratedRows("person", "person.csv"));
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vaticle.typedb.osi.loader.status;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+public class FingerprintStoreTest {
+
+    private static final String[] HEADER = new String[]{"id", "name", "ignored"};
+    private static final int[] COLUMNS = new int[]{0, 1};
+    private static final int[] KEY = new int[]{0};
+
+    @Test
+    public void deltaTest() throws IOException {
+        Path directory = Files.createTempDirectory("fingerprints");
+        Path sideFile = directory.resolve("person_delta.jsonl");
+
+        // first run: everything is new
+        FingerprintStore first = FingerprintStore.open(directory.toString(), "db", "person", false);
+        first.begin(HEADER, COLUMNS, KEY);
+        Assert.assertTrue(first.isNew(new String[]{"1", "a", "x"}));
+        Assert.assertTrue(first.isNew(new String[]{"2", "b", "x"}));
+        Assert.assertTrue(first.isNew(new String[]{"3", "c", "x"}));
+        Assert.assertTrue(first.finish(sideFile.toString()));
+
+        // second run: 1 unchanged (only an unread column differs), 2 changed, 3 removed, 4 new but failing
+        FingerprintStore second = FingerprintStore.open(directory.toString(), "db", "person", false);
+        second.begin(HEADER, COLUMNS, KEY);
+        Assert.assertFalse(second.isNew(new String[]{"1", "a", "y"}));
+        Assert.assertTrue(second.isNew(new String[]{"2", "b2", "x"}));
+        String[] failing = new String[]{"4", "d", "x"};
+        Assert.assertTrue(second.isNew(failing));
+        second.failed(failing);
+        Assert.assertTrue(second.finish(sideFile.toString()));
+        Assert.assertEquals(1, second.getUnchanged());
+        Assert.assertEquals(2, second.getLoaded());
+        Assert.assertEquals(1, second.getChanged());
+        Assert.assertEquals(1, second.getRemoved());
+
+        List<String> changes = Files.readAllLines(sideFile);
+        Assert.assertEquals(2, changes.size());
+        Assert.assertTrue(changes.contains("{\"generator\":\"person\",\"change\":\"CHANGED\",\"key\":{\"id\":\"2\"}}"));
+        Assert.assertTrue(changes.contains("{\"generator\":\"person\",\"change\":\"REMOVED\",\"key\":{\"id\":\"3\"}}"));
+
+        // third run: the failed row is tried again, the loaded ones are not
+        FingerprintStore third = FingerprintStore.open(directory.toString(), "db", "person", false);
+        third.begin(HEADER, COLUMNS, KEY);
+        Assert.assertTrue(third.isNew(new String[]{"4", "d", "x"}));
+        Assert.assertFalse(third.isNew(new String[]{"2", "b2", "x"}));
+        Assert.assertFalse(third.isNew(new String[]{"1", "a", "x"}));
+        third.incomplete();
+        Assert.assertFalse(third.finish(sideFile.toString()));
+        Assert.assertFalse(Files.exists(directory.resolve("db").resolve("person.fingerprints.next")));
+
+        // another database has its own store
+        FingerprintStore other = FingerprintStore.open(directory.toString(), "other", "person", false);
+        other.begin(HEADER, COLUMNS, KEY);
+        Assert.assertTrue(other.isNew(new String[]{"1", "a", "x"}));
+        other.abort();
+
+        // reset (clean migration): every row is loaded again, and nothing reported as changed or removed
+        FingerprintStore reset = FingerprintStore.open(directory.toString(), "db", "person", true);
+        reset.begin(HEADER, COLUMNS, KEY);
+        Assert.assertTrue(reset.isNew(new String[]{"1", "a", "x"}));
+        Assert.assertTrue(reset.finish(sideFile.toString()));
+        Assert.assertEquals(0, reset.getRemoved());
+        Assert.assertEquals(2, Files.readAllLines(sideFile).size());
+        FingerprintStore afterReset = FingerprintStore.open(directory.toString(), "db", "person", false);
+        afterReset.begin(HEADER, COLUMNS, KEY);
+        Assert.assertFalse(afterReset.isNew(new String[]{"1", "a", "x"}));
+        Assert.assertTrue(afterReset.isNew(new String[]{"2", "b2", "x"}));
+    }
+
+    @Test
+    public void hashTest() {
+        Assert.assertNotEquals(FingerprintStore.hash(new String[]{"ab", "c"}, COLUMNS), FingerprintStore.hash(new String[]{"a", "bc"}, COLUMNS));
+        Assert.assertNotEquals(FingerprintStore.hash(new String[]{"", "c"}, COLUMNS), FingerprintStore.hash(new String[]{null, "c"}, COLUMNS));
+        Assert.assertEquals(FingerprintStore.hash(new String[]{"a", "b", "x"}, COLUMNS), FingerprintStore.hash(new String[]{"a", "b", "y"}, COLUMNS));
+    }
+}
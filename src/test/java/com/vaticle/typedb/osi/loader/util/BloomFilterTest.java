@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.vaticle.typedb.osi.loader.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BloomFilterTest {
+
+    @Test
+    public void bloomFilterTest() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("phone-number:+7 171 898 " + i);
+        }
+        // no false negatives
+        for (int i = 0; i < 10_000; i++) {
+            Assert.assertTrue(filter.mightContain("phone-number:+7 171 898 " + i));
+        }
+        // false positives stay close to the configured rate
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.mightContain("phone-number:+263 498 " + i)) falsePositives++;
+        }
+        Assert.assertTrue("false positive rate too high: " + falsePositives, falsePositives < 2_000);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void bloomFilterInvalidRateTest() {
+        new BloomFilter(10_000, 1.0);
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.vaticle.typedb.osi.loader.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+
+public class GeneratorUtilTest {
+
+    @Test
+    public void columnIndexesTest() {
+        Map<String, Integer> columns = GeneratorUtil.getColumnIndexes(new String[]{"name", "age", "", "name"});
+        Assert.assertEquals(0, GeneratorUtil.getColumnIndexByName(columns, "name"));
+        Assert.assertEquals(1, GeneratorUtil.getColumnIndexByName(columns, "age"));
+        Assert.assertEquals(2, GeneratorUtil.getColumnIndexByName(columns, ""));
+        Assert.assertEquals(-1, GeneratorUtil.getColumnIndexByName(columns, "nickname"));
+        Assert.assertEquals(-1, GeneratorUtil.getColumnIndexByName(columns, null));
+    }
+}
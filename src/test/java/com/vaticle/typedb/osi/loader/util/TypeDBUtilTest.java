@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.vaticle.typedb.osi.loader.util;
+
+import com.vaticle.typedb.client.common.exception.ErrorMessage;
+import com.vaticle.typedb.client.common.exception.TypeDBClientException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TypeDBUtilTest {
+
+    @Test
+    public void transientErrorsTest() {
+        Assert.assertTrue(TypeDBUtil.isTransient(new TypeDBClientException(ErrorMessage.Client.UNABLE_TO_CONNECT)));
+        Assert.assertFalse(TypeDBUtil.isTransient(new TypeDBClientException(ErrorMessage.Client.SESSION_CLOSED)));
+        Assert.assertTrue(TypeDBUtil.isTransient(new TypeDBClientException("[TYR03] Could not commit: transaction conflict", null)));
+        Assert.assertFalse(TypeDBUtil.isTransient(new TypeDBClientException("[THW03] Invalid Thing Write: attribute 'name' is not owned by 'person'", null)));
+        Assert.assertFalse(TypeDBUtil.isTransient(new TypeDBClientException("[TYW05] The attribute 'age' has value type 'long', not 'string'", null)));
+        Assert.assertFalse(TypeDBUtil.isTransient(new TypeDBClientException((String) null, null)));
+    }
+
+    @Test
+    public void transientMarkersInValuesTest() {
+        // labels and values naming a transient error do not make the error transient
+        Assert.assertFalse(TypeDBUtil.isTransient(new TypeDBClientException(
+                "[THW03] Invalid Thing Write: attribute 'connection-id' is not owned by 'call'", null)));
+        Assert.assertFalse(TypeDBUtil.isTransient(new TypeDBClientException(
+                "[TYW05] The attribute 'status' with value 'conflict - timeout, aborted' has value type 'string', not 'long'", null)));
+    }
+}
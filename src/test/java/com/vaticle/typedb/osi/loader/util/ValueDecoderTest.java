@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2021 Bayer AG
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.vaticle.typedb.osi.loader.util;
+
+import com.vaticle.typeql.lang.pattern.constraint.ThingConstraint;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+
+public class ValueDecoderTest {
+
+    @Test
+    public void longValueTest() {
+        String[] values = new String[]{"0", "-0", "+7", "42", "-1234567890", "999999999999999999", "-999999999999999999",
+                "9223372036854775807", "-9223372036854775808", "9223372036854775808", "00000000000000000000001",
+                "", "-", "+", "1.0", "1e3", "12a", " 1", "n/a", "--1", "\u0661\u0662"};
+        for (String value : values) {
+            Assert.assertEquals(value, javaLong(value), value(ValueDecoder.longValue(value)));
+        }
+    }
+
+    @Test
+    public void doubleValueTest() {
+        String[] values = new String[]{"0", "-0", "0.0", "-0.0", "1", "1.", ".5", "-.5", "3.14159", "1e10", "1E-10",
+                "2.5e+3", "123456789012345678", "1234567890123456789", "0.1", "0.3", "9007199254740993", "1e22", "1e23",
+                "4.9e-324", "1.7976931348623157e308", "1e400", "NaN", "-Infinity", "0x1p3", "1d", "2.0f", " 1.5 ",
+                "", ".", "-", "e5", "1e", "1e+", "1.2.3", "1,5", "n/a", "unknown", "12abc"};
+        for (String value : values) {
+            Assert.assertEquals(value, javaDouble(value), value(ValueDecoder.doubleValue(value)));
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            double d = i % 2 == 0 ? random.nextDouble() * Math.pow(10, random.nextInt(40) - 20) : Math.round(random.nextDouble() * 1e6) / 100.0;
+            String value = Double.toString(d);
+            Assert.assertEquals(value, javaDouble(value), value(ValueDecoder.doubleValue(value)));
+        }
+    }
+
+    @Test
+    public void booleanValueTest() {
+        Assert.assertEquals(true, value(ValueDecoder.booleanValue("True")));
+        Assert.assertEquals(false, value(ValueDecoder.booleanValue("FALSE")));
+        Assert.assertNull(ValueDecoder.booleanValue("yes"));
+    }
+
+    @Test
+    public void dateTimeValueTest() {
+        String[] values = new String[]{"2021-01-01", "2021-01-01T10:15", "2021-01-01T10:15:30", "2021-01-01T10:15:30.5",
+                "2021-01-01T10:15:30.123456789", "2020-02-29", "2021-02-29", "2021-04-31", "2021-13-01", "2021-00-10",
+                "2021-01-01T24:00", "2021-01-01T10:60", "2021-01-01T10:15:60", "2021-01-01T", "2021-01-01T10:15:30.",
+                "2021-01-01+01:00", "2021-01-01T10:15+01:00", "+12021-01-01", "2021-1-1", "01/01/2021", "n/a", "",
+                "2021-01-01 10:15", "2021-01-01T10:15:30T5", "2021-01-01t10:15"};
+        for (int pass = 0; pass < 2; pass++) {
+            // the second pass is answered from the memo
+            for (String value : values) {
+                Assert.assertEquals(value, javaDateTime(value), ValueDecoder.parseDateTime(value));
+            }
+        }
+    }
+
+    private static Object value(ThingConstraint.Value<?> value) {
+        return value != null ? value.value() : null;
+    }
+
+    private static Long javaLong(String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException numberFormatException) {
+            return null;
+        }
+    }
+
+    private static Double javaDouble(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException numberFormatException) {
+            return null;
+        }
+    }
+
+    private static LocalDateTime javaDateTime(String value) {
+        try {
+            String[] dt = value.split("T");
+            LocalDate date = LocalDate.parse(dt[0], DateTimeFormatter.ISO_DATE);
+            if (dt.length > 1) {
+                return date.atTime(LocalTime.parse(dt[1], DateTimeFormatter.ISO_TIME));
+            } else {
+                return date.atStartOfDay();
+            }
+        } catch (DateTimeException dateTimeException) {
+            return null;
+        }
+    }
+}